@@ -128,6 +128,7 @@ public class NanoTorjanAuto_RedRight extends LinearOpMode
     static final double MM_PER_REVOLUTION = WHEEL_DIAMETER_MM * Math.PI; // Wheel circumference
     static final double COUNTS_PER_MM = COUNTS_PER_REVOLUTION / MM_PER_REVOLUTION; // Counts per millimeter
     static final double COUNTS_PER_INCH = COUNTS_PER_MM * 25.4; // Counts per inch
+    static final long MOTOR_POLL_MS = 10; // How often the waits below check the motors; the hub runs RUN_TO_POSITION itself
 
 
     private int frontLeftMotorCounts = 0;
@@ -271,6 +272,7 @@ public class NanoTorjanAuto_RedRight extends LinearOpMode
                 rearLeftMotor.isBusy() &&
                 rearRightMotor.isBusy()) {
             // Wait for motors to reach target position
+            sleep(MOTOR_POLL_MS);
         }
 
         resetEncoderCounts();
@@ -304,6 +306,7 @@ public class NanoTorjanAuto_RedRight extends LinearOpMode
             // Wait for motors to reach target position
 
             //telemetry.addData(" Parallel Right Encoder Current Position",parallel2.getCurrentPosition());
+            sleep(MOTOR_POLL_MS);
         }
 
         resetEncoderCounts();
@@ -335,6 +338,7 @@ public class NanoTorjanAuto_RedRight extends LinearOpMode
                 rearLeftMotor.isBusy() &&
                 rearRightMotor.isBusy()) {
             // Wait for motors to reach target position
+            sleep(MOTOR_POLL_MS);
         }
 
         stopRobot();
@@ -363,6 +367,7 @@ public class NanoTorjanAuto_RedRight extends LinearOpMode
         while (opModeIsActive() && frontLeftMotor.isBusy() && frontRightMotor.isBusy() &&
                 rearLeftMotor.isBusy() &&rearRightMotor.isBusy()) {
             // Wait until motors reach target position
+            sleep(MOTOR_POLL_MS);
         }
 
         frontLeftMotor.setPower(0);
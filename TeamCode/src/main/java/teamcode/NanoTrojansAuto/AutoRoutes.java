@@ -0,0 +1,211 @@
+package teamcode.NanoTrojansAuto;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+
+import teamcode.trajectorysequence.TrajectorySequence;
+import teamcode.trajectorysequence.TrajectorySequenceBuilder;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Every route driven by the OpenCV autonomous programs. Each route starts at the origin and is
+ * named {@code <auto>_<detection>_<step>}; the steps of one detection branch are driven one after
+ * another. Turns stop the robot: {@link TrajectorySequenceBuilder#blendTurns(boolean)} can blend
+ * them into the move before, but blended turns cut corners, so a route should only use it once it
+ * has been checked on the field.
+ * <p>
+ * The routes are compiled into the APK assets on the build machine by the TeamCode
+ * {@code compileRoutes} task, which also fails the build if a route breaks the drive constraints
+ * or a branch does not fit in the autonomous period. This class must therefore only use Road
+ * Runner and the trajectory sequence builder, nothing that needs the robot.
+ */
+public final class AutoRoutes {
+    public static final String BLUE_CLOSE = "BlueClose";
+    public static final String RED_CLOSE = "RedClose";
+    public static final String BLUE_FAR = "BlueFar";
+    public static final String RED_FAR = "RedFar";
+
+    public static final Pose2d START_POSE = new Pose2d();
+
+    private static final Map<String, UnaryOperator<TrajectorySequenceBuilder>> routes = new LinkedHashMap<>();
+
+    static {
+        route(BLUE_CLOSE, "RIGHT", 0, builder -> builder
+                .forward(28)
+                .turn(-Math.toRadians(89))
+                .back(8)
+                .forward(5));
+        route(BLUE_CLOSE, "RIGHT", 1, builder -> builder
+                .forward(39)
+                .strafeRight(6));
+        route(BLUE_CLOSE, "RIGHT", 2, builder -> builder
+                .strafeLeft(33));
+        route(BLUE_CLOSE, "CENTER", 0, builder -> builder
+                .forward(27)
+                .turn(Math.toRadians(89))
+                .turn(Math.toRadians(89)));
+        route(BLUE_CLOSE, "CENTER", 1, builder -> builder
+                .strafeRight(20)
+                .turn(Math.toRadians(89))
+                .forward(17));
+        route(BLUE_CLOSE, "CENTER", 2, builder -> builder
+                .strafeLeft(29));
+        route(BLUE_CLOSE, "LEFT", 0, builder -> builder
+                .forward(28)
+                .turn(-Math.toRadians(89))
+                .forward(21));
+        route(BLUE_CLOSE, "LEFT", 1, builder -> builder
+                .strafeLeft(8)
+                .forward(17));
+        route(BLUE_CLOSE, "LEFT", 2, builder -> builder
+                .strafeLeft(19));
+
+        route(RED_CLOSE, "LEFT", 0, builder -> builder
+                .forward(28)
+                .turn(Math.toRadians(89))
+                .back(8)
+                .forward(5));
+        route(RED_CLOSE, "LEFT", 1, builder -> builder
+                .forward(38)
+                .strafeLeft(6));
+        route(RED_CLOSE, "LEFT", 2, builder -> builder
+                .strafeRight(31)
+                .forward(7));
+        route(RED_CLOSE, "CENTER", 0, builder -> builder
+                .forward(27)
+                .turn(Math.toRadians(89))
+                .turn(Math.toRadians(89))
+                .back(6)
+                .forward(6));
+        route(RED_CLOSE, "CENTER", 1, builder -> builder
+                .strafeLeft(18)
+                .turn(-Math.toRadians(89))
+                .forward(18)
+                .strafeRight(2));
+        route(RED_CLOSE, "CENTER", 2, builder -> builder
+                .strafeRight(24)
+                .forward(7));
+        route(RED_CLOSE, "RIGHT", 0, builder -> builder
+                .forward(28)
+                .turn(Math.toRadians(89))
+                .forward(21));
+        route(RED_CLOSE, "RIGHT", 1, builder -> builder
+                .strafeRight(9)
+                .forward(16));
+        route(RED_CLOSE, "RIGHT", 2, builder -> builder
+                .strafeRight(19)
+                .forward(7));
+
+        route(BLUE_FAR, "LEFT", 0, builder -> builder
+                .forward(24)
+                .turn(Math.toRadians(89))
+                .back(9)
+                .forward(6)
+                .strafeLeft(8));
+        route(BLUE_FAR, "LEFT", 1, builder -> builder
+                .strafeLeft(18)
+                .turn(Math.toRadians(89))
+                .turn(Math.toRadians(89))
+                .forward(87)
+                .strafeLeft(25));
+        route(BLUE_FAR, "LEFT", 2, builder -> builder
+                .strafeRight(25));
+        route(BLUE_FAR, "CENTER", 0, builder -> builder
+                .forward(48));
+        route(BLUE_FAR, "CENTER", 1, builder -> builder
+                .forward(2)
+                .turn(-Math.toRadians(89))
+                .forward(89)
+                .strafeLeft(23));
+        route(BLUE_FAR, "CENTER", 2, builder -> builder
+                .strafeRight(23));
+        route(BLUE_FAR, "RIGHT", 0, builder -> builder
+                .forward(27)
+                .turn(-Math.toRadians(89))
+                .back(3)
+                .forward(6));
+        route(BLUE_FAR, "RIGHT", 1, builder -> builder
+                .strafeRight(25)
+                .forward(86)
+                .strafeLeft(19));
+        route(BLUE_FAR, "RIGHT", 2, builder -> builder
+                .strafeRight(18));
+
+        route(RED_FAR, "RIGHT", 0, builder -> builder
+                .forward(28)
+                .turn(-Math.toRadians(90))
+                .back(7)
+                .forward(5)
+                .strafeRight(6));
+        route(RED_FAR, "RIGHT", 1, builder -> builder
+                .strafeRight(18)
+                .turn(Math.toRadians(89))
+                .turn(Math.toRadians(89))
+                .forward(88)
+                .strafeRight(27));
+        route(RED_FAR, "RIGHT", 2, builder -> builder
+                .strafeLeft(27));
+        route(RED_FAR, "CENTER", 0, builder -> builder
+                .forward(50));
+        route(RED_FAR, "CENTER", 1, builder -> builder
+                .forward(2)
+                .turn(Math.toRadians(89))
+                .forward(90)
+                .strafeRight(20));
+        route(RED_FAR, "CENTER", 2, builder -> builder
+                .strafeLeft(21));
+        route(RED_FAR, "LEFT", 0, builder -> builder
+                .forward(27)
+                .turn(Math.toRadians(89))
+                .back(3)
+                .forward(5));
+        route(RED_FAR, "LEFT", 1, builder -> builder
+                .strafeLeft(25)
+                .forward(86)
+                .strafeRight(15));
+        route(RED_FAR, "LEFT", 2, builder -> builder
+                .strafeLeft(18));
+    }
+
+    private AutoRoutes() {
+    }
+
+    private static void route(String auto, String detection, int step, UnaryOperator<TrajectorySequenceBuilder> route) {
+        routes.put(name(auto, detection, step), route);
+    }
+
+    public static String name(String auto, String detection, int step) {
+        return auto + "_" + detection + "_" + step;
+    }
+
+    public static String name(String auto, Enum<?> detection, int step) {
+        return name(auto, detection.name(), step);
+    }
+
+    /**
+     * Name of the detection branch a route belongs to, i.e. its name without the step.
+     */
+    public static String branch(String name) {
+        return name.substring(0, name.lastIndexOf('_'));
+    }
+
+    public static Map<String, UnaryOperator<TrajectorySequenceBuilder>> getRoutes() {
+        return Collections.unmodifiableMap(routes);
+    }
+
+    /**
+     * Builds a route with a builder that starts at {@link #START_POSE}.
+     */
+    public static TrajectorySequence build(String name, TrajectorySequenceBuilder builder) {
+        UnaryOperator<TrajectorySequenceBuilder> route = routes.get(name);
+
+        if (route == null) {
+            throw new IllegalArgumentException("No route named " + name);
+        }
+
+        return route.apply(builder).build();
+    }
+}
@@ -23,7 +23,6 @@
 package teamcode.NanoTrojansAuto;
 
 import com.acmerobotics.dashboard.config.Config;
-import com.acmerobotics.roadrunner.geometry.Pose2d;
 import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.CRServo;
@@ -37,9 +36,11 @@ import org.openftc.easyopencv.OpenCvCameraRotation;
 import org.openftc.easyopencv.OpenCvWebcam;
 
 import teamcode.OpenCVExt.LCamConeLocDetection;
+import teamcode.OpenCVExt.LCamConeLocDetection.LSideConePosition;
 import teamcode.controls_NanoTrojans;
 import teamcode.drive.SampleMecanumDrive;
-import teamcode.trajectorysequence.TrajectorySequence;
+import teamcode.trajectorysequence.TrajectorySequenceCache;
+import teamcode.util.AssetsTrajectoryManager;
 
 /**
  * This class contains the Autonomous Mode program.
@@ -54,6 +55,7 @@ public class NanoTorjanAuto_1_BlueClose_OpenCV extends LinearOpMode {
     static final double MM_PER_REVOLUTION = WHEEL_DIAMETER_MM * Math.PI; // Wheel circumference
     static final double COUNTS_PER_MM = COUNTS_PER_REVOLUTION / MM_PER_REVOLUTION; // Counts per millimeter
     static final double COUNTS_PER_INCH = COUNTS_PER_MM * 25.4; // Counts per inch
+    static final long MOTOR_POLL_MS = 10; // How often the waits below check the motors; the hub runs RUN_TO_POSITION itself
     OpenCvWebcam webcam2;
     LCamConeLocDetection pipeline2;
     LCamConeLocDetection.LSideConePosition position2 = LCamConeLocDetection.LSideConePosition.OTHER;
@@ -152,8 +154,34 @@ public class NanoTorjanAuto_1_BlueClose_OpenCV extends LinearOpMode {
         SampleMecanumDrive drive = new SampleMecanumDrive(hardwareMap);
         boolean stop = false;
 
+        /*
+         *  Build every branch of the route now, while we wait for start, so that following a
+         *  branch after detection costs nothing on the match clock
+         */
+        TrajectorySequenceCache<LSideConePosition> routes = new TrajectorySequenceCache<>();
+        for (LSideConePosition position : new LSideConePosition[]{LSideConePosition.LEFT, LSideConePosition.CENTER, LSideConePosition.RIGHT}) {
+            for (int step = 0; step < 3; step++) {
+                // compiled into the assets at build time, see AutoRoutes
+                String name = AutoRoutes.name(AutoRoutes.BLUE_CLOSE, position, step);
+                routes.put(position, step, () -> AssetsTrajectoryManager.loadCompiledSequence(name,
+                        () -> AutoRoutes.build(name, drive.trajectorySequenceBuilder(AutoRoutes.START_POSE))));
+            }
+        }
+        routes.buildAsync();
+
+        while (opModeInInit()) {
+            for (String line : routes.getBuildReport()) {
+                telemetry.addLine(line);
+            }
+            telemetry.update();
+            sleep(50);
+        }
+
         waitForStart();
 
+        // keep the pose current through the claw and arm sleeps between routes
+        drive.startOdometryService();
+
         while (opModeIsActive() && !stop) {
 
             g2control.closeClaw();
@@ -170,25 +198,12 @@ public class NanoTorjanAuto_1_BlueClose_OpenCV extends LinearOpMode {
                 telemetry.addLine("Detected Cone at Right");
                 telemetry.update();
 
-                TrajectorySequence trajSeq = drive.trajectorySequenceBuilder(new Pose2d())
-                        .forward(28)
-                        .turn(-Math.toRadians(89))
-                        .back(8)
-                        .forward(5)
-                        .build();
-                drive.followTrajectorySequence(trajSeq);
+                drive.followTrajectorySequence(routes.get(LSideConePosition.RIGHT, 0));
                 dropTheConePixel();
-                TrajectorySequence trajSeq2 = drive.trajectorySequenceBuilder(new Pose2d())
-                        .forward(39)
-                        .strafeRight(6)
-                        .build();
-                drive.followTrajectorySequence(trajSeq2);
+                drive.followTrajectorySequence(routes.get(LSideConePosition.RIGHT, 1));
                 sleep(500);
                 doRestStuff();
-                TrajectorySequence trajSeq3 = drive.trajectorySequenceBuilder(new Pose2d())
-                        .strafeLeft(33)
-                        .build();
-                drive.followTrajectorySequence(trajSeq3);
+                drive.followTrajectorySequence(routes.get(LSideConePosition.RIGHT, 2));
 
                 stop = true;
 
@@ -196,32 +211,18 @@ public class NanoTorjanAuto_1_BlueClose_OpenCV extends LinearOpMode {
             } else if (position2 == LCamConeLocDetection.LSideConePosition.CENTER) {
                 telemetry.addLine("Detected Cone at Center");
                 telemetry.update();
-                TrajectorySequence trajSeq = drive.trajectorySequenceBuilder(new Pose2d())
-                        .forward(27)
-                        .turn(Math.toRadians(89))
-                        .turn(Math.toRadians(89))
-                        .build();
-                drive.followTrajectorySequence(trajSeq);
+                drive.followTrajectorySequence(routes.get(LSideConePosition.CENTER, 0));
                 //sleep(500);
                 dropTheConePixel();
 
-                TrajectorySequence trajSeq2 = drive.trajectorySequenceBuilder(new Pose2d())
-                        .strafeRight(20)
-                        .turn(Math.toRadians(89))
-                        .forward(17)
-                        //.strafeRight(1)
-                        .build();
-                drive.followTrajectorySequence(trajSeq2);
+                drive.followTrajectorySequence(routes.get(LSideConePosition.CENTER, 1));
 //                turnLeft90D5MoreD(0.8);
                 //sleep(500);
 
                 //sleep(500);
                 doRestStuff();
                 //********Parking
-                TrajectorySequence trajSeq4 = drive.trajectorySequenceBuilder(new Pose2d())
-                        .strafeLeft(29)
-                        .build();
-                drive.followTrajectorySequence(trajSeq4);
+                drive.followTrajectorySequence(routes.get(LSideConePosition.CENTER, 2));
 
                 stop = true;
 
@@ -229,26 +230,13 @@ public class NanoTorjanAuto_1_BlueClose_OpenCV extends LinearOpMode {
                 telemetry.addLine("Detected Cone at LEFT");
                 telemetry.update();
 
-                TrajectorySequence trajSeq = drive.trajectorySequenceBuilder(new Pose2d())
-                        .forward(28)
-                        .turn(-Math.toRadians(89))
-                        .forward(21)
-                        .build();
-                drive.followTrajectorySequence(trajSeq);
+                drive.followTrajectorySequence(routes.get(LSideConePosition.LEFT, 0));
                 dropTheConePixel();
 
-                TrajectorySequence trajSeq2 = drive.trajectorySequenceBuilder(new Pose2d())
-
-                        .strafeLeft(8)
-                        .forward(17)
-                        .build();
-                drive.followTrajectorySequence(trajSeq2);
+                drive.followTrajectorySequence(routes.get(LSideConePosition.LEFT, 1));
                 doRestStuff();
 
-                TrajectorySequence trajSeq3 = drive.trajectorySequenceBuilder(new Pose2d())
-                        .strafeLeft(19)
-                        .build();
-                drive.followTrajectorySequence(trajSeq3);
+                drive.followTrajectorySequence(routes.get(LSideConePosition.LEFT, 2));
 
                 stop = true;
             }
@@ -325,6 +313,7 @@ public class NanoTorjanAuto_1_BlueClose_OpenCV extends LinearOpMode {
                 rearLeftMotor.isBusy() &&
                 rearRightMotor.isBusy()) {
             // Wait for motors to reach target position
+            sleep(MOTOR_POLL_MS);
         }
 
         resetEncoderCounts();
@@ -358,6 +347,7 @@ public class NanoTorjanAuto_1_BlueClose_OpenCV extends LinearOpMode {
             // Wait for motors to reach target position
 
             //telemetry.addData(" Parallel Right Encoder Current Position",parallel2.getCurrentPosition());
+            sleep(MOTOR_POLL_MS);
         }
 
         resetEncoderCounts();
@@ -389,6 +379,7 @@ public class NanoTorjanAuto_1_BlueClose_OpenCV extends LinearOpMode {
                 rearLeftMotor.isBusy() &&
                 rearRightMotor.isBusy()) {
             // Wait for motors to reach target position
+            sleep(MOTOR_POLL_MS);
         }
 
         stopRobot();
@@ -417,6 +408,7 @@ public class NanoTorjanAuto_1_BlueClose_OpenCV extends LinearOpMode {
         while (opModeIsActive() && frontLeftMotor.isBusy() && frontRightMotor.isBusy() &&
                 rearLeftMotor.isBusy() && rearRightMotor.isBusy()) {
             // Wait until motors reach target position
+            sleep(MOTOR_POLL_MS);
         }
 
         frontLeftMotor.setPower(0);
@@ -451,6 +443,7 @@ public class NanoTorjanAuto_1_BlueClose_OpenCV extends LinearOpMode {
         while (opModeIsActive() && frontLeftMotor.isBusy() && frontRightMotor.isBusy() &&
                 rearLeftMotor.isBusy() && rearRightMotor.isBusy()) {
             // Wait until motors reach target position
+            sleep(MOTOR_POLL_MS);
         }
 
         frontLeftMotor.setPower(0);
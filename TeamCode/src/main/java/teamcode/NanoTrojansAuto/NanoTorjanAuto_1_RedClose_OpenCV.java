@@ -23,7 +23,6 @@
 package teamcode.NanoTrojansAuto;
 
 import com.acmerobotics.dashboard.config.Config;
-import com.acmerobotics.roadrunner.geometry.Pose2d;
 import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.CRServo;
@@ -37,9 +36,11 @@ import org.openftc.easyopencv.OpenCvCameraRotation;
 import org.openftc.easyopencv.OpenCvWebcam;
 
 import teamcode.OpenCVExt.RCamConeLocDetection;
+import teamcode.OpenCVExt.RCamConeLocDetection.RSideConePosition;
 import teamcode.controls_NanoTrojans;
 import teamcode.drive.SampleMecanumDrive;
-import teamcode.trajectorysequence.TrajectorySequence;
+import teamcode.trajectorysequence.TrajectorySequenceCache;
+import teamcode.util.AssetsTrajectoryManager;
 
 /**
  * This class contains the Autonomous Mode program.
@@ -54,6 +55,7 @@ public class NanoTorjanAuto_1_RedClose_OpenCV extends LinearOpMode {
     static final double MM_PER_REVOLUTION = WHEEL_DIAMETER_MM * Math.PI; // Wheel circumference
     static final double COUNTS_PER_MM = COUNTS_PER_REVOLUTION / MM_PER_REVOLUTION; // Counts per millimeter
     static final double COUNTS_PER_INCH = COUNTS_PER_MM * 25.4; // Counts per inch
+    static final long MOTOR_POLL_MS = 10; // How often the waits below check the motors; the hub runs RUN_TO_POSITION itself
     OpenCvWebcam webcam;
     RCamConeLocDetection pipeline;
     RCamConeLocDetection.RSideConePosition position = RCamConeLocDetection.RSideConePosition.OTHER;
@@ -150,8 +152,34 @@ public class NanoTorjanAuto_1_RedClose_OpenCV extends LinearOpMode {
         SampleMecanumDrive drive = new SampleMecanumDrive(hardwareMap);
         boolean stop = false;
 
+        /*
+         *  Build every branch of the route now, while we wait for start, so that following a
+         *  branch after detection costs nothing on the match clock
+         */
+        TrajectorySequenceCache<RSideConePosition> routes = new TrajectorySequenceCache<>();
+        for (RSideConePosition position : new RSideConePosition[]{RSideConePosition.LEFT, RSideConePosition.CENTER, RSideConePosition.RIGHT}) {
+            for (int step = 0; step < 3; step++) {
+                // compiled into the assets at build time, see AutoRoutes
+                String name = AutoRoutes.name(AutoRoutes.RED_CLOSE, position, step);
+                routes.put(position, step, () -> AssetsTrajectoryManager.loadCompiledSequence(name,
+                        () -> AutoRoutes.build(name, drive.trajectorySequenceBuilder(AutoRoutes.START_POSE))));
+            }
+        }
+        routes.buildAsync();
+
+        while (opModeInInit()) {
+            for (String line : routes.getBuildReport()) {
+                telemetry.addLine(line);
+            }
+            telemetry.update();
+            sleep(50);
+        }
+
         waitForStart();
 
+        // keep the pose current through the claw and arm sleeps between routes
+        drive.startOdometryService();
+
         while (opModeIsActive() && !stop) {
 
             g2control.closeClaw();
@@ -168,27 +196,12 @@ public class NanoTorjanAuto_1_RedClose_OpenCV extends LinearOpMode {
                 telemetry.addLine("Detected Cone at Left");
                 telemetry.update();
 
-                TrajectorySequence trajSeq = drive.trajectorySequenceBuilder(new Pose2d())
-                        .forward(28)
-                        .turn(Math.toRadians(89))
-                        .back(8)
-                        .forward(5)
-                        .build();
-                drive.followTrajectorySequence(trajSeq);
+                drive.followTrajectorySequence(routes.get(RSideConePosition.LEFT, 0));
                 dropTheConePixel();
-                TrajectorySequence trajSeq2 = drive.trajectorySequenceBuilder(new Pose2d())
-                        .forward(38)
-                        .strafeLeft(6)
-                        //.forward(6)
-                        .build();
-                drive.followTrajectorySequence(trajSeq2);
+                drive.followTrajectorySequence(routes.get(RSideConePosition.LEFT, 1));
                 sleep(500);
                 doRestStuff();
-                TrajectorySequence trajSeq3 = drive.trajectorySequenceBuilder(new Pose2d())
-                        .strafeRight(31)
-                        .forward(7)
-                        .build();
-                drive.followTrajectorySequence(trajSeq3);
+                drive.followTrajectorySequence(routes.get(RSideConePosition.LEFT, 2));
 
                 stop = true;
 
@@ -196,31 +209,14 @@ public class NanoTorjanAuto_1_RedClose_OpenCV extends LinearOpMode {
             } else if (position == RCamConeLocDetection.RSideConePosition.CENTER) {
                 telemetry.addLine("Detected Cone at Center");
                 telemetry.update();
-                TrajectorySequence trajSeq = drive.trajectorySequenceBuilder(new Pose2d())
-                        .forward(27)
-                        .turn(Math.toRadians(89))
-                        .turn(Math.toRadians(89))
-                        .back(6)
-                        .forward(6)
-                        .build();
-                drive.followTrajectorySequence(trajSeq);
+                drive.followTrajectorySequence(routes.get(RSideConePosition.CENTER, 0));
 
                 dropTheConePixel();
 
-                TrajectorySequence trajSeq2 = drive.trajectorySequenceBuilder(new Pose2d())
-                        .strafeLeft(18)
-                        .turn(-Math.toRadians(89))
-                        .forward(18)
-                        .strafeRight(2)
-                        .build();
-                drive.followTrajectorySequence(trajSeq2);
+                drive.followTrajectorySequence(routes.get(RSideConePosition.CENTER, 1));
                 doRestStuff();
                 //********Parking
-                TrajectorySequence trajSeq4 = drive.trajectorySequenceBuilder(new Pose2d())
-                        .strafeRight(24)
-                        .forward(7)
-                        .build();
-                drive.followTrajectorySequence(trajSeq4);
+                drive.followTrajectorySequence(routes.get(RSideConePosition.CENTER, 2));
 
                 stop = true;
 
@@ -228,26 +224,13 @@ public class NanoTorjanAuto_1_RedClose_OpenCV extends LinearOpMode {
                 telemetry.addLine("Detected Cone at Right");
                 telemetry.update();
 
-                TrajectorySequence trajSeq = drive.trajectorySequenceBuilder(new Pose2d())
-                        .forward(28)
-                        .turn(Math.toRadians(89))
-                        .forward(21)
-                        .build();
-                drive.followTrajectorySequence(trajSeq);
+                drive.followTrajectorySequence(routes.get(RSideConePosition.RIGHT, 0));
                 dropTheConePixel();
 
-                TrajectorySequence trajSeq2 = drive.trajectorySequenceBuilder(new Pose2d())
-                        .strafeRight(9)
-                        .forward(16)
-                        .build();
-                drive.followTrajectorySequence(trajSeq2);
+                drive.followTrajectorySequence(routes.get(RSideConePosition.RIGHT, 1));
                 doRestStuff();
 
-                TrajectorySequence trajSeq3 = drive.trajectorySequenceBuilder(new Pose2d())
-                        .strafeRight(19)
-                        .forward(7)
-                        .build();
-                drive.followTrajectorySequence(trajSeq3);
+                drive.followTrajectorySequence(routes.get(RSideConePosition.RIGHT, 2));
 
                 stop = true;
             }
@@ -327,6 +310,7 @@ public class NanoTorjanAuto_1_RedClose_OpenCV extends LinearOpMode {
                 rearLeftMotor.isBusy() &&
                 rearRightMotor.isBusy()) {
             // Wait for motors to reach target position
+            sleep(MOTOR_POLL_MS);
         }
 
         resetEncoderCounts();
@@ -360,6 +344,7 @@ public class NanoTorjanAuto_1_RedClose_OpenCV extends LinearOpMode {
             // Wait for motors to reach target position
 
             //telemetry.addData(" Parallel Right Encoder Current Position",parallel2.getCurrentPosition());
+            sleep(MOTOR_POLL_MS);
         }
 
         resetEncoderCounts();
@@ -391,6 +376,7 @@ public class NanoTorjanAuto_1_RedClose_OpenCV extends LinearOpMode {
                 rearLeftMotor.isBusy() &&
                 rearRightMotor.isBusy()) {
             // Wait for motors to reach target position
+            sleep(MOTOR_POLL_MS);
         }
 
         stopRobot();
@@ -419,6 +405,7 @@ public class NanoTorjanAuto_1_RedClose_OpenCV extends LinearOpMode {
         while (opModeIsActive() && frontLeftMotor.isBusy() && frontRightMotor.isBusy() &&
                 rearLeftMotor.isBusy() && rearRightMotor.isBusy()) {
             // Wait until motors reach target position
+            sleep(MOTOR_POLL_MS);
         }
 
         frontLeftMotor.setPower(0);
@@ -453,6 +440,7 @@ public class NanoTorjanAuto_1_RedClose_OpenCV extends LinearOpMode {
         while (opModeIsActive() && frontLeftMotor.isBusy() && frontRightMotor.isBusy() &&
                 rearLeftMotor.isBusy() && rearRightMotor.isBusy()) {
             // Wait until motors reach target position
+            sleep(MOTOR_POLL_MS);
         }
 
         frontLeftMotor.setPower(0);
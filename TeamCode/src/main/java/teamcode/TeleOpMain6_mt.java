@@ -7,11 +7,23 @@ import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 import com.qualcomm.robotcore.hardware.CRServo;
 import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.Gamepad;
 import com.qualcomm.robotcore.hardware.Servo;
 
 import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
 import org.firstinspires.ftc.robotcore.internal.system.Deadline;
-
+import teamcode.util.ActionTimeline;
+import teamcode.util.ActuatorBus;
+import teamcode.util.CachingCRServo;
+import teamcode.util.CachingDcMotor;
+import teamcode.util.CachingServo;
+import teamcode.util.ControlScheduler;
+import teamcode.util.GamepadService;
+import teamcode.util.TimelineRunner;
+import teamcode.util.WriteCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @TeleOp(name = "TeleOpMain6_mt", group = "TeleOp")
@@ -56,31 +68,54 @@ public class TeleOpMain6_mt extends LinearOpMode {
     //private DriveControl driveControl;
 
     private controls_NanoTrojans g2control;
+
+    // issued and suppressed writes of every cached output, by configuration name
+    private final Map<String, WriteCache> writeCaches = new LinkedHashMap<>();
+
+    // both control threads share the outputs, so only this bus's thread writes to them
+    private final ActuatorBus actuatorBus = new ActuatorBus();
+
+    // the control tasks read the gamepads only through snapshots from here
+    private GamepadService gamepads;
+
+    // runs the drive, arm and telemetry at fixed rates instead of spinning
+    private final ControlScheduler scheduler = new ControlScheduler();
+    private static final double DRIVE_HZ = 200;
+    private static final double MECHANISM_HZ = 50;
+    private static final double TELEMETRY_HZ = 10;
+
+    // timeline channels: a new scoring macro or manual arm input cancels the one running
+    private static final String SCORE = "score";
+    private static final String PLANE = "plane";
+    // lift stick travel that counts as the operator taking over from a macro
+    private static final double STICK_DEADBAND = 0.05;
+
     @Override
     public void runOpMode()  throws InterruptedException {
-        frontLeft = hardwareMap.dcMotor.get("frontLeft");
-        backLeft = hardwareMap.dcMotor.get("backLeft");
-        frontRight = hardwareMap.dcMotor.get("frontRight");
-        backRight = hardwareMap.dcMotor.get("backRight");
-
-        lsRight = hardwareMap.dcMotor.get("lsRight");
-        lsLeft = hardwareMap.dcMotor.get("lsLeft");
+        // outputs are written by actuatorBus and only send writes that change something
+        frontLeft = cachedMotor("frontLeft");
+        backLeft = cachedMotor("backLeft");
+        frontRight = cachedMotor("frontRight");
+        backRight = cachedMotor("backRight");
+
+        lsRight = cachedMotor("lsRight");
+        lsLeft = cachedMotor("lsLeft");
         //intake = hardwareMap.dcMotor.get("intake");
 
         //Servo Motors
-        planeLaunch = hardwareMap.crservo.get("planeLaunch");
-        robotLift = hardwareMap.crservo.get("robotLift");
+        planeLaunch = cachedCRServo("planeLaunch");
+        robotLift = cachedCRServo("robotLift");
 
         //hang
 
 
         // get 2 claw motors
-        clawLeft = hardwareMap.servo.get("clawLeft");
-        clawRight = hardwareMap.servo.get("clawRight");
+        clawLeft = cachedServo("clawLeft");
+        clawRight = cachedServo("clawRight");
 
         // get 2 arm motors
-        clawLift = hardwareMap.servo.get("clawLift");
-        armLift = hardwareMap.servo.get("armLift");
+        clawLift = cachedServo("clawLift");
+        armLift = cachedServo("armLift");
 
         dcArm = hardwareMap.dcMotor.get("dcArm");
 
@@ -118,24 +153,37 @@ public class TeleOpMain6_mt extends LinearOpMode {
                                           clawLeft, clawRight, clawLift, armLift, robotLift);
 
         waitForStart();
-        Thread baseControlThread = new Thread(new baseControl());
-        Thread armControlThread = new Thread(new armControl());
+        actuatorBus.start();
+        gamepads = new GamepadService(gamepad1, gamepad2);
+
         //Thread dronControlThread = new Thread(new droneControl());
 
-        //Start 2  threads
-        baseControlThread.start();
-        armControlThread.start();
+        // the base, arm and telemetry run on the scheduler
+        scheduler.schedule("drive", DRIVE_HZ, new baseControl());
+        scheduler.schedule("arm", MECHANISM_HZ, new armControl());
+        scheduler.schedule("telemetry", TELEMETRY_HZ, dt -> showStats());
         //dronControlThread.start();
 
-        // This is the 3rd thread
         //The following  loop is just to keep this main thread running.
-        // Add above 2 threads basicall we have 3 threads running
-        while (opModeIsActive()) {
-            //put some code here for more actions on the control thread
-            // Game Pad 2 controller for other motors
-            // control intake motor
-            //intake.setPower(gamepad2.left_stick_y * 0.5);
-
+        try {
+            while (opModeIsActive()) {
+                //put some code here for more actions on the control thread
+                // Game Pad 2 controller for other motors
+                // control intake motor
+                //intake.setPower(gamepad2.left_stick_y * 0.5);
+
+                // the bus has already stopped the outputs, so end the opmode with its error
+                RuntimeException busFailure = actuatorBus.getFailure();
+                if (busFailure != null) throw busFailure;
+                // a task that threw has stopped running, so don't carry on without it
+                RuntimeException taskFailure = scheduler.getFailure();
+                if (taskFailure != null) throw taskFailure;
+
+                sleep(50);
+            }
+        } finally {
+            scheduler.shutdown();
+            actuatorBus.stop();
         }
 
 
@@ -147,25 +195,33 @@ public class TeleOpMain6_mt extends LinearOpMode {
 //        }
     }
 
-    // This is the thread class to control the base of the robot to move arround, this normally is
+    // This is the scheduled task to control the base of the robot to move arround, this normally is
     // controlled by another person seperated from the base control person
-    private class baseControl implements Runnable {
+    private class baseControl implements ControlScheduler.PeriodicTask {
         boolean droneLaunced = false;
+
+        final TimelineRunner timelines = new TimelineRunner();
+        // the plane launcher keeps running for 100 ms after the bumper is released; holding the
+        // bumper restarts the pulse every run, so it must not stop the launcher when cancelled
+        final ActionTimeline planePulse = new ActionTimeline.Builder()
+                .run(g2control::planeLaunch)
+                .waitSeconds(0.1)
+                .run(g2control::planeLaunchstop)
+                .build();
+
         @Override
-        public void run() {
-            waitForStart();
-            while (!Thread.interrupted() && opModeIsActive()) {
-                // Motor control logic for motors 1 and 2
-                //Call Robot base movement algorithem to drive the base
-                driveControl.driveRobot(gamepad1.left_stick_x, gamepad1.left_stick_y, gamepad1.right_stick_x);
+        public void run(double dt) {
+            Gamepad gamepad1 = gamepads.update().getGamepad1();
 
-                if ( gamepad1.left_bumper ){
-                    g2control.planeLaunch();
-                    sleep(100);
-                    g2control.planeLaunchstop();
-                    //droneLaunced = true;
-                }
+            // Motor control logic for motors 1 and 2
+            //Call Robot base movement algorithem to drive the base
+            driveControl.driveRobot(gamepad1.left_stick_x, gamepad1.left_stick_y, gamepad1.right_stick_x);
+
+            if ( gamepad1.left_bumper ){
+                timelines.start(PLANE, planePulse);
+                //droneLaunced = true;
             }
+            timelines.update();
         }
     }//end of class baseControl
 
@@ -192,273 +248,332 @@ public class TeleOpMain6_mt extends LinearOpMode {
         }
     }//end of class baseControl
 
-    // This is the thread class to control arms , claws
-    private class armControl implements Runnable {
-        @Override
-        public void run() {
-
-            //intake.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
-            double lspower = 0;
-            boolean moveup = false;
-            boolean moveup2 = false;
-            boolean moveup3 = false;
-            boolean lsmove = false;
-            boolean lsmove2 = false;
-            boolean clawopen = true;
-            boolean clawup = true;
-            boolean defaultscore = false;
-            boolean mediumscore = false;
-            boolean highscore = false;
-            boolean hang = false;
-            boolean hangcount = false;
-            boolean leftclawopen = false;
-            boolean rightclawopen = false;
-            boolean armup = false;
-            boolean lowscore = false;
-
-            waitForStart();
-            //set closed claw and claw lift down
-            //while (!isStopRequested()) {
-            while (!Thread.interrupted() && opModeIsActive()) {
+    // This is the scheduled task to control arms , claws
+    // The scoring macros run as timelines, so the arm keeps reading input while they move
+    private class armControl implements ControlScheduler.PeriodicTask {
+        //intake.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        double lspower = 0;
+        boolean moveup = false;
+        boolean moveup2 = false;
+        boolean moveup3 = false;
+        boolean lsmove = false;
+        boolean lsmove2 = false;
+        boolean clawopen = true;
+        boolean clawup = true;
+        boolean defaultscore = false;
+        boolean mediumscore = false;
+        boolean highscore = false;
+        boolean hang = false;
+        boolean hangcount = false;
+        boolean leftclawopen = false;
+        boolean rightclawopen = false;
+        boolean armup = false;
+        boolean lowscore = false;
+
+        final TimelineRunner timelines = new TimelineRunner();
+        // gamepad 2 as of the previous run, so buttons act once per press
+        Gamepad previous = new Gamepad();
+
+        // the plane launcher keeps running for a second after the bumper is released, restarted
+        // like the one in baseControl
+        final ActionTimeline planePulse = new ActionTimeline.Builder()
+                .run(g2control::planeLaunch)
+                .waitSeconds(1)
+                .run(g2control::planeLaunchstop)
+                .build();
 
-                //lift power take from the second game pad
-                lspower = gamepad2.right_stick_y;
+        @Override
+        public void run(double dt) {
+            Gamepad gamepad2 = gamepads.update().getGamepad2();
+
+            //lift power take from the second game pad, moving the stick cancels a scoring macro
+            lspower = gamepad2.right_stick_y;
+            if (Math.abs(lspower) > STICK_DEADBAND) timelines.cancel(SCORE);
+            //the macros drive the slides themselves while they run
+            if (!timelines.isRunning(SCORE)) {
                 lsRight.setPower(lspower);
                 lsLeft.setPower(-lspower);
+            }
 
-                //Claw contols  -  close and open, when the claw is closed, then open it, when claw is open, then close it
-                if (gamepad2.right_bumper) {
-                    if (leftclawopen) {
-                        g2control.closeLeftClaw();
-                        sleep(250);
-                    }
-                    else {
-                        g2control.openLeftClaw();
-                        sleep(250);
-                    }
-                    leftclawopen=!leftclawopen;
-
+            //Claw contols  -  close and open, when the claw is closed, then open it, when claw is open, then close it
+            if (gamepad2.right_bumper && !previous.right_bumper) {
+                if (leftclawopen) {
+                    g2control.closeLeftClaw();
+                }
+                else {
+                    g2control.openLeftClaw();
                 }
+                leftclawopen=!leftclawopen;
 
-                if (gamepad2.left_bumper){
-                    if(rightclawopen){
-                        g2control.closeRightClaw();
-                        sleep(250);
-                    }
-                    else{
-                        g2control.openRightClaw();
-                        sleep(250);
-                    }
-                    rightclawopen= !rightclawopen;
+            }
+
+            if (gamepad2.left_bumper && !previous.left_bumper){
+                if(rightclawopen){
+                    g2control.closeRightClaw();
                 }
-                if (gamepad2.left_trigger>=0.1) {
-                    //if claw is closed then open it
-                    if (clawopen == false) {
-                        g2control.openClaw();
-                        sleep(250);
-                    }
-                    //if claw is opened then close it
-                    else {
-                        g2control.closeClaw();
-                        sleep(250);
-                    }
-                    clawopen = !clawopen;
-                    rightclawopen= !rightclawopen;
-                    leftclawopen = !leftclawopen;
+                else{
+                    g2control.openRightClaw();
                 }
-
-                //Claw - move up and down, when its already up, move it down, when its already down, then move up
-                if (gamepad2.right_trigger >= 0.1) {
-                    if (clawup) {
-                        g2control.clawDown();
-                        sleep(250);
-                    } else {
-                        g2control.clawFull();
-                        sleep(250);
-                    }
-                    clawup = !clawup;
+                rightclawopen= !rightclawopen;
+            }
+            if (gamepad2.left_trigger>=0.1 && previous.left_trigger<0.1) {
+                //if claw is closed then open it
+                if (clawopen == false) {
+                    g2control.openClaw();
                 }
-                if(gamepad2.left_bumper){
-                    g2control.planeLaunch();
-                    sleep(1000);
-                    g2control.planeLaunchstop();
-
+                //if claw is opened then close it
+                else {
+                    g2control.closeClaw();
                 }
-                //make the arm lift so we can manually reset it
-                if (gamepad2.a) {
-                    g2control.armFull();
+                clawopen = !clawopen;
+                rightclawopen= !rightclawopen;
+                leftclawopen = !leftclawopen;
+            }
 
+            //Claw - move up and down, when its already up, move it down, when its already down, then move up
+            if (gamepad2.right_trigger >= 0.1 && previous.right_trigger < 0.1) {
+                if (clawup) {
+                    g2control.clawDown();
+                } else {
+                    g2control.clawFull();
                 }
-                //make the arm go back down to default position on the ground
-                if (gamepad2.x) {
-                    g2control.armDown();
+                clawup = !clawup;
+            }
+            if(gamepad2.left_bumper){
+                timelines.start(PLANE, planePulse);
+            }
+            //make the arm lift so we can manually reset it
+            if (gamepad2.a) {
+                timelines.cancel(SCORE);
+                g2control.armFull();
+
+            }
+            //make the arm go back down to default position on the ground
+            if (gamepad2.x) {
+                timelines.cancel(SCORE);
+                g2control.armDown();
 
+            }
+            if (gamepad2.dpad_left && !previous.dpad_left) {
+                if (lowscore == false) {
+                    //move up linear slides
+                    //end move up
+                    timelines.start(SCORE, scoreMacro()
+                            .run(g2control::armFull)
+                            .waitSeconds(0.5)
+                            .run(g2control::clawUp)
+                            .waitSeconds(0.25)
+                            .build());
+                }
+                //automation to reset position
+                else if (lowscore == true) {
+                    timelines.start(SCORE, stow(scoreMacro()
+                            .run(g2control::armUp)
+                            .waitSeconds(1)
+                            .run(g2control::clawUp))
+                            .build());
+                }
+                lowscore = !lowscore;
+            }
+            if (gamepad2.dpad_up && !previous.dpad_up) {
+                if (defaultscore == false) {
+                    //move up linear slides
+                    timelines.start(SCORE, scoreMacro()
+                            .run(g2control::armFull)
+                            .waitSeconds(0.5)
+                            .run(g2control::clawUp)
+                            .waitSeconds(0.25)
+                            .run(() -> {
+                                g2control.smallls();
+                                lsmove=true;
+                            })
+                            .waitSeconds(0.25)
+                            .run(g2control::smalllsstop)
+                            .build());
+                    //end move up
                 }
-                if (gamepad2.dpad_left) {
-                    if (lowscore == false) {
-                        //move up linear slides
-                        //end move up
-                        g2control.armFull();
-                        sleep(500);
-                        g2control.clawUp();
-                        sleep(250);
+                //automation to reset position
+                else if (defaultscore == true) {
+                    ActionTimeline.Builder reset = scoreMacro();
+                    if (lsmove){
+                        reset.run(g2control::reversesmallls)
+                                .waitSeconds(0.25)
+                                .run(() -> {
+                                    g2control.reversesmalllsstop();
+                                    lsmove=false;
+                                });
                     }
-                    //automation to reset position
-                    else if (lowscore == true) {
 
-                        g2control.armUp();
-                        sleep(1000);
-                        g2control.clawUp();
-                        g2control.closeClaw();
-                        g2control.armDown();
-                        sleep(250);
-                        g2control.clawDown();
-                        g2control.openClaw();
-                        clawup = false;
-                        clawopen = true;
-                        rightclawopen= true;
-                        leftclawopen = true;
-                        sleep(250);
-                    }
-                    lowscore = !lowscore;
+                    reset.run(g2control::armUp)
+                            .waitSeconds(1)
+                            .run(g2control::clawUp);
+                    timelines.start(SCORE, stow(reset).build());
                 }
-                if (gamepad2.dpad_up) {
-                    if (defaultscore == false) {
-                        //move up linear slides
-                        g2control.armFull();
-                        sleep(500);
-                        g2control.clawUp();
-                        sleep(250);
-                        g2control.smallls();
-                        sleep(250);
-                        g2control.smalllsstop();
-                        //end move up
-
-                        lsmove=true;
+                defaultscore = !defaultscore;
+            }
+            if (gamepad2.dpad_right && !previous.dpad_right) {
+                if (mediumscore == false) {
+                    timelines.start(SCORE, scoreMacro()
+                            .run(g2control::armFull)
+                            .waitSeconds(1.5)
+                            .run(() -> {
+                                g2control.clawFull();
+                                g2control.smallls();
+                                moveup3 = true;
+                            })
+                            .waitSeconds(0.25)
+                            .run(() -> {
+                                g2control.smalllsstop();
+                                //end move up
+                                g2control.mediumls();
+                                lsmove2 = true;
+                            })
+                            .waitSeconds(0.75)
+                            .run(g2control::mediumlsstop)
+                            .waitSeconds(0.25)
+                            .build());
+                } else if (mediumscore == true) {
+                    ActionTimeline.Builder reset = scoreMacro()
+                            .run(g2control::armUp)
+                            .waitSeconds(1.5)
+                            .run(g2control::clawUp);
+                    if (moveup3) {
+                        //reset linear slides only if it was up
+                        reset.run(g2control::reversesmallls)
+                                .waitSeconds(0.25)
+                                .run(() -> {
+                                    g2control.reversesmalllsstop();
+                                    moveup3 = false;
+                                });
                     }
-                    //automation to reset position
-                    else if (defaultscore == true) {
-                        if (lsmove){
-                            g2control.reversesmallls();
-                            sleep(250);
-                            g2control.reversesmalllsstop();
-                        }
-
-                        g2control.armUp();
-                        sleep(1000);
-                        g2control.clawUp();
-                        g2control.closeClaw();
-                        g2control.armDown();
-                        sleep(250);
-                        g2control.clawDown();
-                        g2control.openClaw();
-                        clawup = false;
-                        clawopen = true;
-                        rightclawopen= true;
-                        leftclawopen = true;
-                        lsmove=false;
-                        sleep(250);
+                    if (lsmove2) {
+                        reset.run(g2control::reversemediumls)
+                                .waitSeconds(0.75)
+                                .run(() -> {
+                                    g2control.reversemediumlsstop();
+                                    lsmove2 = false;
+                                });
+
                     }
-                    defaultscore = !defaultscore;
+                    timelines.start(SCORE, stow(reset).build());
                 }
-                if (gamepad2.dpad_right) {
-                    if (mediumscore == false) {
-                        g2control.armFull();
-                        sleep(1500);
-                        g2control.clawFull();
-                        g2control.smallls();
-                        sleep(250);
-                        g2control.smalllsstop();
-                        //end move up
-                        g2control.mediumls();
-                        sleep(750);
-                        g2control.mediumlsstop();
-                        moveup3 = true;
-                        lsmove2 = true;
-                        sleep(250);
-                    } else if (mediumscore == true) {
-                        g2control.armUp();
-                        sleep(1500);
-                        g2control.clawUp();
-                        if (moveup3) {
-                            //reset linear slides only if it was up
-                            g2control.reversesmallls();
-                            sleep(250);
-                            g2control.reversesmalllsstop();
-                            moveup3 = false;
-                        }
-                        if (lsmove2) {
-                            g2control.reversemediumls();
-                            sleep(750);
-                            g2control.reversemediumlsstop();
-                            lsmove2 = false;
-
-                        }
-                        g2control.closeClaw();
-                        g2control.armDown();
-                        sleep(250);
-                        g2control.clawDown();
-                        g2control.openClaw();
-                        clawup = false;
-                        clawopen = true;
-                        rightclawopen= true;
-                        leftclawopen = true;
-                        sleep(250);
+                mediumscore = !mediumscore;
+            }
+            //automation to score pixel
+            if (gamepad2.dpad_down && !previous.dpad_down) {
+                if (highscore == false) {
+                    timelines.start(SCORE, scoreMacro()
+                            .run(g2control::armFull)
+                            .waitSeconds(1.25)
+                            .run(() -> {
+                                g2control.clawFull();
+                                g2control.smallls();
+                                moveup2 = true;
+                            })
+                            .waitSeconds(0.25)
+                            .run(() -> {
+                                g2control.smalllsstop();
+                                //end move up
+
+                                //linear slide go up
+                                g2control.highls();
+                                lsmove = true;
+                            })
+                            .waitSeconds(2)
+                            .run(g2control::highlsstop)
+                            .waitSeconds(0.25)
+                            .build());
+                } else if (highscore == true) {
+                    ActionTimeline.Builder reset = scoreMacro()
+                            .run(g2control::armUp)
+                            .waitSeconds(0.5)
+                            .run(g2control::clawUp);
+                    if (moveup2) {
+                        //reset linear slides only if it was up
+                        reset.run(g2control::reversesmallls)
+                                .waitSeconds(0.25)
+                                .run(() -> {
+                                    g2control.reversesmalllsstop();
+                                    moveup2 = false;
+                                });
+                    }
+                    if (lsmove) {
+                        reset.run(g2control::reversehighls)
+                                .waitSeconds(1.25)
+                                .run(() -> {
+                                    g2control.reversehighlsstop();
+                                    lsmove = false;
+                                });
                     }
-                    mediumscore = !mediumscore;
+                    timelines.start(SCORE, stow(reset).build());
                 }
-                //automation to score pixel
-                if (gamepad2.dpad_down) {
-                    if (highscore == false) {
-                        g2control.armFull();
-                        sleep(1250);
-                        g2control.clawFull();
-                        g2control.smallls();
-                        sleep(250);
-                        g2control.smalllsstop();
-                        //end move up
-
-                        //linear slide go up
-                        g2control.highls();
-                        sleep(2000);
-                        g2control.highlsstop();
-                        moveup2 = true;
-                        lsmove = true;
-                        sleep(250);
-                    } else if (highscore == true) {
-                        g2control.armUp();
-                        sleep(500);
-                        g2control.clawUp();
-                        if (moveup2) {
-                            //reset linear slides only if it was up
-                            g2control.reversesmallls();
-                            sleep(250);
-                            g2control.reversesmalllsstop();
-                            moveup2 = false;
-                        }
-                        if (lsmove) {
-                            g2control.reversehighls();
-                            sleep(1250);
-                            g2control.reversehighlsstop();
-                            lsmove = false;
-                        }
+                highscore = !highscore;
+            }
+
+            timelines.update();
+            previous.copy(gamepad2);
+        }
+
+        // a scoring macro stops the slides if it is cut short while they move
+        private ActionTimeline.Builder scoreMacro() {
+            return new ActionTimeline.Builder().onCancel(g2control::smalllsstop);
+        }
+
+        // the end of every reset: arm and claw back down, claw open for the next pixel
+        private ActionTimeline.Builder stow(ActionTimeline.Builder macro) {
+            return macro
+                    .run(() -> {
                         g2control.closeClaw();
                         g2control.armDown();
-                        sleep(250);
+                    })
+                    .waitSeconds(0.25)
+                    .run(() -> {
                         g2control.clawDown();
                         g2control.openClaw();
                         clawup = false;
                         clawopen = true;
                         rightclawopen= true;
                         leftclawopen = true;
-                        sleep(250);
-                    }
-                    highscore = !highscore;
-                }
-                telemetry.update();
-            }
-        } //end of class armControl.run()
+                    })
+                    .waitSeconds(0.25);
+        }
     }//end of class armControl
 
+    private void showStats() {
+        for (Map.Entry<String, WriteCache> entry : writeCaches.entrySet()) {
+            WriteCache writeCache = entry.getValue();
+            telemetry.addData(entry.getKey(), "%d writes, %d suppressed",
+                    writeCache.getIssuedWrites(), writeCache.getSuppressedWrites());
+        }
+        telemetry.addData("actuator queue", "%d queued, %d max",
+                actuatorBus.getQueueDepth(), actuatorBus.getMaxQueueDepth());
+        telemetry.addData("actuator writes", "%.2f ms last cycle, %.2f ms max, %.2f ms max latency",
+                actuatorBus.getLastCycleWriteTime(), actuatorBus.getMaxCycleWriteTime(),
+                actuatorBus.getMaxCommandLatency());
+        for (ControlScheduler.TaskStats stats : scheduler.getTaskStats()) {
+            telemetry.addData(stats.getName(), "%d overruns, %.2f ms avg jitter, %.2f ms max jitter",
+                    stats.getOverruns(), stats.getAverageJitter(), stats.getMaxJitter());
+        }
+        telemetry.update();
+    }
+
+    private DcMotor cachedMotor(String name) {
+        CachingDcMotor motor = new CachingDcMotor(hardwareMap.dcMotor.get(name));
+        writeCaches.put(name, motor.getWriteCache());
+        return actuatorBus.motor(name, motor);
+    }
+
+    private Servo cachedServo(String name) {
+        CachingServo servo = new CachingServo(hardwareMap.servo.get(name));
+        writeCaches.put(name, servo.getWriteCache());
+        return actuatorBus.servo(name, servo);
+    }
+
+    private CRServo cachedCRServo(String name) {
+        CachingCRServo servo = new CachingCRServo(hardwareMap.crservo.get(name));
+        writeCaches.put(name, servo.getWriteCache());
+        return actuatorBus.crServo(name, servo);
+    }
+
 }//end of main class to3controlchange_ms
 
@@ -0,0 +1,66 @@
+package teamcode.drive;
+
+import androidx.annotation.Nullable;
+
+import com.acmerobotics.roadrunner.drive.Drive;
+
+import teamcode.util.MutablePose2d;
+
+/**
+ * Allocation-free replacement for Road Runner's mecanum drive encoder localizer, with the same
+ * kinematics. Wheels are ordered front left, rear left, rear right, front right.
+ */
+public class MecanumWheelLocalizer extends WheelOdometry {
+    /**
+     * Source of the drive wheel readings, in the order above.
+     */
+    public interface Wheels {
+        void readWheelPositions(double[] positions);
+
+        /**
+         * Returns false if the wheels cannot measure velocity.
+         */
+        boolean readWheelVelocities(double[] velocities);
+    }
+
+    private final Wheels wheels;
+
+    private final double lateralMultiplier;
+    // average of the track width and wheelbase
+    private final double k;
+
+    public MecanumWheelLocalizer(
+            Wheels wheels, @Nullable Drive headingSource,
+            double trackWidth, double wheelBase, double lateralMultiplier
+    ) {
+        super(4, headingSource);
+
+        this.wheels = wheels;
+        this.lateralMultiplier = lateralMultiplier;
+        this.k = (trackWidth + wheelBase) / 2.0;
+    }
+
+    @Override
+    protected void readWheelPositions(double[] positions) {
+        wheels.readWheelPositions(positions);
+    }
+
+    @Override
+    protected boolean readWheelVelocities(double[] velocities) {
+        return wheels.readWheelVelocities(velocities);
+    }
+
+    @Override
+    protected void wheelToRobot(double[] wheels, MutablePose2d robot) {
+        double frontLeft = wheels[0];
+        double rearLeft = wheels[1];
+        double rearRight = wheels[2];
+        double frontRight = wheels[3];
+
+        robot.set(
+                (frontLeft + rearLeft + rearRight + frontRight) * 0.25,
+                (rearLeft + frontRight - frontLeft - rearRight) / lateralMultiplier * 0.25,
+                (rearRight + frontRight - frontLeft - rearLeft) / k * 0.25
+        );
+    }
+}
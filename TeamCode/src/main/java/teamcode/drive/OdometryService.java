@@ -0,0 +1,298 @@
+package teamcode.drive;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.localization.Localizer;
+
+import teamcode.util.MutablePose2d;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a localizer at a fixed rate on its own thread, so the pose keeps updating while the opmode
+ * sleeps or runs a mechanism macro. Install it in place of the localizer it wraps; its
+ * {@link #update()} does nothing because the thread already updates.
+ * <p>
+ * Poses are published through a seqlock: the writer makes the sequence odd, writes the fields
+ * and makes it even again, and a reader retries if the sequence was odd or changed while it read.
+ * Readers never block the odometry thread or each other, and reading does not allocate unless a
+ * {@link Pose2d} is asked for.
+ */
+public class OdometryService implements Localizer {
+    private final Localizer localizer;
+    private final long periodNanos;
+
+    // serializes the odometry thread and setPoseEstimate(); readers never take it
+    private final Object writeLock = new Object();
+
+    private volatile int sequence;
+    private volatile double x, y, heading;
+    private volatile double xVelocity, yVelocity, headingVelocity;
+    private volatile boolean hasVelocity;
+    private volatile long sampleTime;
+
+    private volatile Thread thread;
+    private volatile boolean running;
+    private volatile RuntimeException failure;
+
+    private volatile long updateCount;
+    private volatile long overrunCount;
+
+    public OdometryService(Localizer localizer, double rateHz) {
+        if (rateHz <= 0) throw new IllegalArgumentException("rateHz must be positive");
+
+        this.localizer = localizer;
+        this.periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rateHz);
+
+        synchronized (writeLock) {
+            publish();
+        }
+    }
+
+    public Localizer getLocalizer() {
+        return localizer;
+    }
+
+    public synchronized void start() {
+        if (thread != null) return;
+
+        failure = null;
+        running = true;
+
+        thread = new Thread(this::run, "OdometryService");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stops the odometry thread and waits for its last update to finish.
+     */
+    public synchronized void stop() {
+        Thread thread = this.thread;
+        if (thread == null) return;
+
+        running = false;
+        thread.interrupt();
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.thread = null;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * What stopped the odometry thread, if it died instead of being stopped.
+     */
+    @Nullable
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * Number of updates that took longer than the period, after which the schedule restarts
+     * from the current time instead of trying to catch up.
+     */
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+
+    private void run() {
+        long next = System.nanoTime();
+
+        try {
+            while (running) {
+                synchronized (writeLock) {
+                    localizer.update();
+                    publish();
+                }
+                updateCount++;
+
+                next += periodNanos;
+
+                long wait;
+                if (next - System.nanoTime() <= 0) {
+                    overrunCount++;
+                    next = System.nanoTime();
+                } else {
+                    // parking can return early, so wait out the rest of the period
+                    while (running && (wait = next - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // reads interrupted by stop() are not failures
+            if (running) failure = e;
+        } finally {
+            running = false;
+        }
+    }
+
+    /**
+     * Copies the localizer's current pose into the published fields. Must hold the write lock.
+     */
+    private void publish() {
+        double newX, newY, newHeading;
+        double newXVelocity = 0, newYVelocity = 0, newHeadingVelocity = 0;
+        boolean newHasVelocity;
+
+        if (localizer instanceof WheelOdometry) {
+            // no intermediate Pose2d for the odometry this drive uses
+            WheelOdometry odometry = (WheelOdometry) localizer;
+            MutablePose2d pose = odometry.getMutablePoseEstimate();
+            MutablePose2d velocity = odometry.getMutablePoseVelocity();
+
+            newX = pose.getX();
+            newY = pose.getY();
+            newHeading = pose.getHeading();
+
+            newHasVelocity = velocity != null;
+            if (newHasVelocity) {
+                newXVelocity = velocity.getX();
+                newYVelocity = velocity.getY();
+                newHeadingVelocity = velocity.getHeading();
+            }
+        } else {
+            Pose2d pose = localizer.getPoseEstimate();
+            Pose2d velocity = localizer.getPoseVelocity();
+
+            newX = pose.getX();
+            newY = pose.getY();
+            newHeading = pose.getHeading();
+
+            newHasVelocity = velocity != null;
+            if (newHasVelocity) {
+                newXVelocity = velocity.getX();
+                newYVelocity = velocity.getY();
+                newHeadingVelocity = velocity.getHeading();
+            }
+        }
+
+        sequence++;
+
+        x = newX;
+        y = newY;
+        heading = newHeading;
+        xVelocity = newXVelocity;
+        yVelocity = newYVelocity;
+        headingVelocity = newHeadingVelocity;
+        hasVelocity = newHasVelocity;
+        sampleTime = System.nanoTime();
+
+        sequence++;
+    }
+
+    /**
+     * Copies the latest pose into {@code pose} and returns the {@link System#nanoTime()} at which
+     * it was sampled.
+     */
+    public long readPose(MutablePose2d pose) {
+        while (true) {
+            int before = sequence;
+
+            if ((before & 1) == 0) {
+                double x = this.x;
+                double y = this.y;
+                double heading = this.heading;
+                long sampleTime = this.sampleTime;
+
+                if (sequence == before) {
+                    pose.set(x, y, heading);
+                    return sampleTime;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the latest velocity into {@code velocity}, returning false if the localizer does not
+     * measure velocity.
+     */
+    public boolean readPoseVelocity(MutablePose2d velocity) {
+        while (true) {
+            int before = sequence;
+
+            if ((before & 1) == 0) {
+                double x = xVelocity;
+                double y = yVelocity;
+                double heading = headingVelocity;
+                boolean hasVelocity = this.hasVelocity;
+
+                if (sequence == before) {
+                    velocity.set(x, y, heading);
+                    return hasVelocity;
+                }
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public Pose2d getPoseEstimate() {
+        while (true) {
+            int before = sequence;
+
+            if ((before & 1) == 0) {
+                double x = this.x;
+                double y = this.y;
+                double heading = this.heading;
+
+                if (sequence == before) return new Pose2d(x, y, heading);
+            }
+        }
+    }
+
+    @Override
+    public void setPoseEstimate(@NonNull Pose2d pose) {
+        synchronized (writeLock) {
+            localizer.setPoseEstimate(pose);
+            publish();
+        }
+    }
+
+    @Nullable
+    @Override
+    public Pose2d getPoseVelocity() {
+        while (true) {
+            int before = sequence;
+
+            if ((before & 1) == 0) {
+                double x = xVelocity;
+                double y = yVelocity;
+                double heading = headingVelocity;
+                boolean hasVelocity = this.hasVelocity;
+
+                if (sequence == before) return hasVelocity ? new Pose2d(x, y, heading) : null;
+            }
+        }
+    }
+
+    /**
+     * Does nothing while the odometry thread runs; updates the localizer directly otherwise, so the
+     * service can stand in for it either way.
+     */
+    @Override
+    public void update() {
+        if (running) return;
+
+        synchronized (writeLock) {
+            localizer.update();
+            publish();
+        }
+    }
+}
@@ -6,7 +6,6 @@ import com.acmerobotics.dashboard.config.Config;
 import com.acmerobotics.roadrunner.control.PIDCoefficients;
 import com.acmerobotics.roadrunner.drive.DriveSignal;
 import com.acmerobotics.roadrunner.drive.MecanumDrive;
-import com.acmerobotics.roadrunner.followers.HolonomicPIDVAFollower;
 import com.acmerobotics.roadrunner.followers.TrajectoryFollower;
 import com.acmerobotics.roadrunner.geometry.Pose2d;
 import com.acmerobotics.roadrunner.trajectory.Trajectory;
@@ -17,8 +16,10 @@ import com.acmerobotics.roadrunner.trajectory.constraints.MinVelocityConstraint;
 import com.acmerobotics.roadrunner.trajectory.constraints.ProfileAccelerationConstraint;
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryAccelerationConstraint;
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryVelocityConstraint;
-import com.qualcomm.hardware.lynx.LynxModule;
 import com.qualcomm.hardware.rev.RevHubOrientationOnRobot;
+import com.qualcomm.robotcore.eventloop.opmode.OpMode;
+import com.qualcomm.robotcore.eventloop.opmode.OpModeManagerImpl;
+import com.qualcomm.robotcore.eventloop.opmode.OpModeManagerNotifier;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.HardwareMap;
@@ -28,10 +29,17 @@ import com.qualcomm.robotcore.hardware.VoltageSensor;
 import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
 
 import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import teamcode.trajectorysequence.BakedHolonomicPIDVAFollower;
+import teamcode.trajectorysequence.LazyTrajectorySequence;
 import teamcode.trajectorysequence.TrajectorySequence;
 import teamcode.trajectorysequence.TrajectorySequenceBuilder;
 import teamcode.trajectorysequence.TrajectorySequenceRunner;
+import teamcode.util.HardwareCycle;
+import teamcode.util.ImuSampler;
 import teamcode.util.LynxModuleUtil;
+import teamcode.util.MutableDriveSignal;
+import teamcode.util.MutablePose2d;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -53,7 +61,8 @@ import static teamcode.drive.DriveConstants.kV;
  * Simple mecanum drive hardware implementation for REV hardware.
  */
 @Config
-public class SampleMecanumDrive extends MecanumDrive {
+public class SampleMecanumDrive extends MecanumDrive
+        implements MecanumWheelLocalizer.Wheels, WheelOdometry.HeadingVelocitySource {
     public static PIDCoefficients TRANSLATIONAL_PID = new PIDCoefficients(0, 0, 0);
     public static PIDCoefficients HEADING_PID = new PIDCoefficients(0, 0, 0);
 
@@ -66,6 +75,21 @@ public class SampleMecanumDrive extends MecanumDrive {
     public static double VY_WEIGHT = 1;
     public static double OMEGA_WEIGHT = 1;
 
+    // timestep (s) at which trajectory segments are pre-sampled when a sequence is built; 0 disables,
+    // which also makes every follower update allocate
+    public static double TRAJECTORY_BAKE_DT = 0.01;
+
+    // coarsest profile resolution (in) for straight paths; 0 keeps the fixed 0.25 in everywhere
+    public static double MAX_PATH_RESOLUTION = 0;
+    // accuracy bounds for curved paths when MAX_PATH_RESOLUTION is set
+    public static double MAX_PATH_DEVIATION = 0.002;
+    public static double MAX_HEADING_STEP = Math.toRadians(0.5);
+
+    // rate of the background odometry thread started by startOdometryService()
+    public static double ODOMETRY_HZ = 200;
+    // rate at which the IMU is polled in the background; the IMU's fusion output runs at 100 Hz
+    public static double IMU_SAMPLE_HZ = 100;
+
     private TrajectorySequenceRunner trajectorySequenceRunner;
 
     private static final TrajectoryVelocityConstraint VEL_CONSTRAINT = getVelocityConstraint(MAX_VEL, MAX_ANG_VEL, TRACK_WIDTH);
@@ -73,28 +97,56 @@ public class SampleMecanumDrive extends MecanumDrive {
 
     private TrajectoryFollower follower;
 
+    private OdometryService odometryService;
+    // stops the background threads with the opmode; kept here because the manager only holds a
+    // weak reference to its listeners
+    private final OpModeManagerNotifier.Notifications backgroundThreadStopper =
+            new OpModeManagerNotifier.Notifications() {
+                @Override
+                public void onOpModePreInit(OpMode opMode) {
+                }
+
+                @Override
+                public void onOpModePreStart(OpMode opMode) {
+                }
+
+                @Override
+                public void onOpModePostStop(OpMode opMode) {
+                    stopOdometryService();
+                    imuSampler.stop();
+                }
+            };
+
     private DcMotorEx frontLeft, backLeft, backRight, frontRight;
     private List<DcMotorEx> motors;
 
     private IMU imu;
+    private ImuSampler imuSampler;
     private VoltageSensor batteryVoltageSensor;
+    private HardwareCycle hardwareCycle;
+
+    // drive command of the last update, written in place by the runner
+    private final MutableDriveSignal driveSignal = new MutableDriveSignal();
+    // kinematics the superclass was built with, for setDriveSignal(MutableDriveSignal)
+    private final double wheelBaseRadius = (TRACK_WIDTH + TRACK_WIDTH) / 2;
+    private final double lateralMultiplier = LATERAL_MULTIPLIER;
 
-    private List<Integer> lastEncPositions = new ArrayList<>();
-    private List<Integer> lastEncVels = new ArrayList<>();
+    // raw encoder readings of the last update, for logging
+    private final int[] lastEncPositions = new int[4];
+    private final int[] lastEncVels = new int[4];
 
     public SampleMecanumDrive(HardwareMap hardwareMap) {
         super(kV, kA, kStatic, TRACK_WIDTH, TRACK_WIDTH, LATERAL_MULTIPLIER);
 
-        follower = new HolonomicPIDVAFollower(TRANSLATIONAL_PID, TRANSLATIONAL_PID, HEADING_PID,
+        follower = new BakedHolonomicPIDVAFollower(TRANSLATIONAL_PID, TRANSLATIONAL_PID, HEADING_PID,
                 new Pose2d(0.5, 0.5, Math.toRadians(5.0)), 0.5);
 
         LynxModuleUtil.ensureMinimumFirmwareVersion(hardwareMap);
 
         batteryVoltageSensor = hardwareMap.voltageSensor.iterator().next();
 
-        for (LynxModule module : hardwareMap.getAll(LynxModule.class)) {
-            module.setBulkCachingMode(LynxModule.BulkCachingMode.AUTO);
-        }
+        // each localizer update starts a cycle; other subsystems can read from the same snapshot
+        hardwareCycle = new HardwareCycle(hardwareMap);
 
         // TODO: adjust the names of the following hardware devices to match your configuration
         imu = hardwareMap.get(IMU.class, "imu");
@@ -102,6 +154,14 @@ public class SampleMecanumDrive extends MecanumDrive {
                 DriveConstants.LOGO_FACING_DIR, DriveConstants.USB_FACING_DIR));
         imu.initialize(parameters);
 
+        // keeps the I2C reads off the control loop
+        imuSampler = new ImuSampler(imu, IMU_SAMPLE_HZ);
+        imuSampler.start();
+
+        OpModeManagerImpl.getOpModeManagerOfActivity(
+                AppUtil.getInstance().getActivity()
+        ).registerListener(backgroundThreadStopper);
+
         //victor the following code is not straft let's swith front and back wheels on one side
 
         //the following turn clock wise
@@ -149,16 +209,24 @@ public class SampleMecanumDrive extends MecanumDrive {
 
         // TODO: reverse any motors using DcMotor.setDirection()
 
-        List<Integer> lastTrackingEncPositions = new ArrayList<>();
-        List<Integer> lastTrackingEncVels = new ArrayList<>();
+        int[] lastTrackingEncPositions = new int[0];
+        int[] lastTrackingEncVels = new int[0];
+
+        // same kinematics as Road Runner's default mecanum localizer, without allocating every loop
+        setLocalizer(new MecanumWheelLocalizer(this, this, TRACK_WIDTH, TRACK_WIDTH, LATERAL_MULTIPLIER));
 
         // TODO: if desired, use setLocalizer() to change the localization method
+        // lastTrackingEncPositions = new int[3];
+        // lastTrackingEncVels = new int[3];
         // setLocalizer(new StandardTrackingWheelLocalizer(hardwareMap, lastTrackingEncPositions, lastTrackingEncVels));
 
         trajectorySequenceRunner = new TrajectorySequenceRunner(
                 follower, HEADING_PID, batteryVoltageSensor,
                 lastEncPositions, lastEncVels, lastTrackingEncPositions, lastTrackingEncVels
         );
+        // only used once REPLAN_TRANSLATIONAL_ERROR, REPLAN_HEADING_ERROR_DEG or REPLAN_ALONG_TRACK_ERROR
+        // is set
+        trajectorySequenceRunner.setReplanBuilder(this::trajectorySequenceBuilder);
     }
 
     public TrajectoryBuilder trajectoryBuilder(Pose2d startPose) {
@@ -178,7 +246,8 @@ public class SampleMecanumDrive extends MecanumDrive {
                 startPose,
                 VEL_CONSTRAINT, ACCEL_CONSTRAINT,
                 MAX_ANG_VEL, MAX_ANG_ACCEL
-        );
+        ).bake(TRAJECTORY_BAKE_DT)
+                .adaptiveResolution(MAX_PATH_RESOLUTION, MAX_PATH_DEVIATION, MAX_HEADING_STEP);
     }
 
     public void turnAsync(double angle) {
@@ -216,14 +285,80 @@ public class SampleMecanumDrive extends MecanumDrive {
         waitForIdle();
     }
 
+    public void followTrajectorySequenceAsync(LazyTrajectorySequence trajectorySequence) {
+        trajectorySequenceRunner.followTrajectorySequenceAsync(trajectorySequence);
+    }
+
+    public void followTrajectorySequence(LazyTrajectorySequence trajectorySequence) {
+        followTrajectorySequenceAsync(trajectorySequence);
+        waitForIdle();
+    }
+
+    /**
+     * Number of times following a lazy sequence had to wait for a segment to be generated.
+     */
+    public int getTrajectoryStallCount() {
+        return trajectorySequenceRunner.getStallCount();
+    }
+
+    /**
+     * Number of times following was re-planned after the robot was pushed off its trajectory.
+     */
+    public int getTrajectoryReplanCount() {
+        return trajectorySequenceRunner.getReplanCount();
+    }
+
+    public void breakFollowing() {
+        trajectorySequenceRunner.interrupt();
+        setDriveSignal(new DriveSignal());
+    }
+
+    public boolean resumeFollowing() {
+        return trajectorySequenceRunner.resume(getPoseEstimate());
+    }
+
+    /**
+     * Bulk read coordinator of this drive's hubs. Subsystems on the same hubs read from the
+     * snapshot of the drive's last update instead of issuing their own bulk reads.
+     */
+    public HardwareCycle getHardwareCycle() {
+        return hardwareCycle;
+    }
+
     public Pose2d getLastError() {
         return trajectorySequenceRunner.getLastPoseError();
     }
 
+    /**
+     * Moves localization to a background thread running at ODOMETRY_HZ, so the pose stays current
+     * while the opmode sleeps or runs a mechanism macro between trajectories. update() keeps
+     * working as before and reads the latest pose the thread published. The thread stops with the
+     * opmode, or earlier through {@link #stopOdometryService()}.
+     */
+    public synchronized void startOdometryService() {
+        if (odometryService != null) return;
+
+        odometryService = new OdometryService(getLocalizer(), ODOMETRY_HZ);
+        setLocalizer(odometryService);
+        odometryService.start();
+    }
+
+    /**
+     * Stops the odometry thread and goes back to updating the pose in update().
+     */
+    public synchronized void stopOdometryService() {
+        if (odometryService == null) return;
+
+        odometryService.stop();
+        setLocalizer(odometryService.getLocalizer());
+        odometryService = null;
+    }
+
     public void update() {
         updatePoseEstimate();
-        DriveSignal signal = trajectorySequenceRunner.update(getPoseEstimate(), getPoseVelocity());
-        if (signal != null) setDriveSignal(signal);
+        if (trajectorySequenceRunner.update(getPoseEstimate(), getPoseVelocity(), driveSignal)) {
+            setDriveSignal(driveSignal);
+        }
     }
 
     public void waitForIdle() {
@@ -278,33 +413,108 @@ public class SampleMecanumDrive extends MecanumDrive {
         setDrivePower(vel);
     }
 
+    /**
+     * Starts a new {@link HardwareCycle}, since the wheel positions are the first thing read in
+     * every localizer update.
+     */
+    @Override
+    public void readWheelPositions(double[] positions) {
+        hardwareCycle.begin();
+
+        readPositions(positions);
+    }
+
+    private void readPositions(double[] positions) {
+        // indexed so no iterator is created every loop
+        for (int i = 0; i < motors.size(); i++) {
+            int position = motors.get(i).getCurrentPosition();
+            lastEncPositions[i] = position;
+            positions[i] = encoderTicksToInches(position);
+        }
+    }
+
+    @Override
+    public boolean readWheelVelocities(double[] velocities) {
+        for (int i = 0; i < motors.size(); i++) {
+            int vel = (int) motors.get(i).getVelocity();
+            lastEncVels[i] = vel;
+            velocities[i] = encoderTicksToInches(vel);
+        }
+        return true;
+    }
+
+    /**
+     * Allocates a new list on every call; localization reads the wheels through
+     * {@link #readWheelPositions(double[])} instead.
+     */
     @NonNull
     @Override
     public List<Double> getWheelPositions() {
-        lastEncPositions.clear();
+        double[] positions = new double[motors.size()];
+        beginTunerCycle();
+        readPositions(positions);
 
         List<Double> wheelPositions = new ArrayList<>();
-        for (DcMotorEx motor : motors) {
-            int position = motor.getCurrentPosition();
-            lastEncPositions.add(position);
-            wheelPositions.add(encoderTicksToInches(position));
+        for (double position : positions) {
+            wheelPositions.add(position);
         }
         return wheelPositions;
     }
 
     @Override
     public List<Double> getWheelVelocities() {
-        lastEncVels.clear();
+        beginTunerCycle();
+
+        double[] velocities = new double[motors.size()];
+        readWheelVelocities(velocities);
 
         List<Double> wheelVelocities = new ArrayList<>();
-        for (DcMotorEx motor : motors) {
-            int vel = (int) motor.getVelocity();
-            lastEncVels.add(vel);
-            wheelVelocities.add(encoderTicksToInches(vel));
+        for (double velocity : velocities) {
+            wheelVelocities.add(velocity);
         }
         return wheelVelocities;
     }
 
+    /**
+     * Tuners read the wheels on their own, outside of a localizer update, so they start their own
+     * cycle. While the odometry service runs its thread owns the cycle, and they read its snapshot.
+     */
+    private void beginTunerCycle() {
+        if (odometryService == null) hardwareCycle.begin();
+    }
+
+    /**
+     * Same as {@link #setDriveSignal(DriveSignal)}, i.e. MecanumKinematics and
+     * Kinematics.calculateMotorFeedforward, without the intermediate lists.
+     */
+    public void setDriveSignal(MutableDriveSignal signal) {
+        MutablePose2d vel = signal.getVel();
+        MutablePose2d accel = signal.getAccel();
+
+        double velX = vel.getX();
+        double velY = lateralMultiplier * vel.getY();
+        double velTurn = wheelBaseRadius * vel.getHeading();
+
+        double accelX = accel.getX();
+        double accelY = lateralMultiplier * accel.getY();
+        double accelTurn = wheelBaseRadius * accel.getHeading();
+
+        setMotorPowers(
+                feedforward(velX - velY - velTurn, accelX - accelY - accelTurn),
+                feedforward(velX + velY - velTurn, accelX + accelY - accelTurn),
+                feedforward(velX - velY + velTurn, accelX - accelY + accelTurn),
+                feedforward(velX + velY + velTurn, accelX + accelY + accelTurn)
+        );
+    }
+
+    private static double feedforward(double vel, double accel) {
+        double basePower = vel * kV + accel * kA;
+        if (Math.abs(basePower) < 1e-6) {
+            return 0;
+        }
+        return basePower + Math.signum(basePower) * kStatic;
+    }
+
     @Override
     public void setMotorPowers(double v, double v1, double v2, double v3) {
         frontLeft.setPower(v);
@@ -315,12 +525,40 @@ public class SampleMecanumDrive extends MecanumDrive {
 
     @Override
     public double getRawExternalHeading() {
-        return imu.getRobotYawPitchRollAngles().getYaw(AngleUnit.RADIANS);
+        if (!imuSampler.isRunning() || !imuSampler.hasSample()) {
+            return imu.getRobotYawPitchRollAngles().getYaw(AngleUnit.RADIANS);
+        }
+
+        return imuSampler.getHeading(headingSampleTime());
     }
 
     @Override
     public Double getExternalHeadingVelocity() {
-        return (double) imu.getRobotAngularVelocity(AngleUnit.RADIANS).zRotationRate;
+        return readExternalHeadingVelocity();
+    }
+
+    /**
+     * Same as {@link #getExternalHeadingVelocity()} without boxing, for the localizer.
+     */
+    @Override
+    public double readExternalHeadingVelocity() {
+        if (!imuSampler.isRunning() || !imuSampler.hasSample()) {
+            return imu.getRobotAngularVelocity(AngleUnit.RADIANS).zRotationRate;
+        }
+
+        return imuSampler.getHeadingVelocity(headingSampleTime());
+    }
+
+    /**
+     * When the heading should be sampled: when this cycle's encoder snapshot was taken, so both
+     * describe the same instant, unless the snapshot is older than a couple of IMU samples and
+     * the caller is not part of a localizer update.
+     */
+    private long headingSampleTime() {
+        long now = System.nanoTime();
+        long cycleStart = hardwareCycle.getCycleStartNanos();
+
+        return now - cycleStart < 2e9 / IMU_SAMPLE_HZ ? cycleStart : now;
     }
 
     public static TrajectoryVelocityConstraint getVelocityConstraint(double maxVel, double maxAngularVel, double trackWidth) {
@@ -17,7 +17,6 @@ import com.acmerobotics.roadrunner.trajectory.constraints.ProfileAccelerationCon
 import com.acmerobotics.roadrunner.trajectory.constraints.TankVelocityConstraint;
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryAccelerationConstraint;
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryVelocityConstraint;
-import com.qualcomm.hardware.lynx.LynxModule;
 import com.qualcomm.hardware.rev.RevHubOrientationOnRobot;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorEx;
@@ -28,12 +27,13 @@ import com.qualcomm.robotcore.hardware.VoltageSensor;
 import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
 
 import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import teamcode.trajectorysequence.LazyTrajectorySequence;
 import teamcode.trajectorysequence.TrajectorySequence;
 import teamcode.trajectorysequence.TrajectorySequenceBuilder;
 import teamcode.trajectorysequence.TrajectorySequenceRunner;
+import teamcode.util.HardwareCycle;
 import teamcode.util.LynxModuleUtil;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -72,6 +72,7 @@ public class SampleTankDrive extends TankDrive {
     private IMU imu;
 
     private VoltageSensor batteryVoltageSensor;
+    private HardwareCycle hardwareCycle;
 
     public SampleTankDrive(HardwareMap hardwareMap) {
         super(kV, kA, kStatic, TRACK_WIDTH);
@@ -83,9 +84,8 @@ public class SampleTankDrive extends TankDrive {
 
         batteryVoltageSensor = hardwareMap.voltageSensor.iterator().next();
 
-        for (LynxModule module : hardwareMap.getAll(LynxModule.class)) {
-            module.setBulkCachingMode(LynxModule.BulkCachingMode.AUTO);
-        }
+        // each localizer update starts a cycle; other subsystems can read from the same snapshot
+        hardwareCycle = new HardwareCycle(hardwareMap);
 
         // TODO: adjust the names of the following hardware devices to match your configuration
         imu = hardwareMap.get(IMU.class, "imu");
@@ -126,7 +126,7 @@ public class SampleTankDrive extends TankDrive {
 
         trajectorySequenceRunner = new TrajectorySequenceRunner(
                 follower, HEADING_PID, batteryVoltageSensor,
-                new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>()
+                new int[0], new int[0], new int[0], new int[0]
         );
     }
 
@@ -185,6 +185,39 @@ public class SampleTankDrive extends TankDrive {
         waitForIdle();
     }
 
+    public void followTrajectorySequenceAsync(LazyTrajectorySequence trajectorySequence) {
+        trajectorySequenceRunner.followTrajectorySequenceAsync(trajectorySequence);
+    }
+
+    public void followTrajectorySequence(LazyTrajectorySequence trajectorySequence) {
+        followTrajectorySequenceAsync(trajectorySequence);
+        waitForIdle();
+    }
+
+    /**
+     * Number of times following a lazy sequence had to wait for a segment to be generated.
+     */
+    public int getTrajectoryStallCount() {
+        return trajectorySequenceRunner.getStallCount();
+    }
+
+    public void breakFollowing() {
+        trajectorySequenceRunner.interrupt();
+        setDriveSignal(new DriveSignal());
+    }
+
+    public boolean resumeFollowing() {
+        return trajectorySequenceRunner.resume(getPoseEstimate());
+    }
+
+    /**
+     * Bulk read coordinator of this drive's hubs. Subsystems on the same hubs read from the
+     * snapshot of the drive's last update instead of issuing their own bulk reads.
+     */
+    public HardwareCycle getHardwareCycle() {
+        return hardwareCycle;
+    }
+
     public Pose2d getLastError() {
         return trajectorySequenceRunner.getLastPoseError();
     }
@@ -248,9 +281,15 @@ public class SampleTankDrive extends TankDrive {
         setDrivePower(vel);
     }
 
+    /**
+     * Starts a new {@link HardwareCycle}, since the wheel positions are the first thing read in
+     * every localizer update.
+     */
     @NonNull
     @Override
     public List<Double> getWheelPositions() {
+        hardwareCycle.begin();
+
         double leftSum = 0, rightSum = 0;
         for (DcMotorEx leftMotor : leftMotors) {
             leftSum += encoderTicksToInches(leftMotor.getCurrentPosition());
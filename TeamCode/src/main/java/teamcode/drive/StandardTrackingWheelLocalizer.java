@@ -4,10 +4,10 @@ import androidx.annotation.NonNull;
 
 import com.acmerobotics.dashboard.config.Config;
 import com.acmerobotics.roadrunner.geometry.Pose2d;
-import com.acmerobotics.roadrunner.localization.ThreeTrackingWheelLocalizer;
 import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 import teamcode.util.Encoder;
+import teamcode.util.MutablePose2d;
 
 import java.util.Arrays;
 import java.util.List;
@@ -26,7 +26,7 @@ import java.util.List;
  *
  */
 @Config
-public class StandardTrackingWheelLocalizer extends ThreeTrackingWheelLocalizer {
+public class StandardTrackingWheelLocalizer extends WheelOdometry {
     public static double TICKS_PER_REV = 0;
     public static double WHEEL_RADIUS = 2; // in
     public static double GEAR_RATIO = 1; // output (wheel) speed / input (encoder) speed
@@ -36,10 +36,20 @@ public class StandardTrackingWheelLocalizer extends ThreeTrackingWheelLocalizer
 
     private Encoder leftEncoder, rightEncoder, frontEncoder;
 
-    private List<Integer> lastEncPositions, lastEncVels;
+    private int[] lastEncPositions, lastEncVels;
 
-    public StandardTrackingWheelLocalizer(HardwareMap hardwareMap, List<Integer> lastTrackingEncPositions, List<Integer> lastTrackingEncVels) {
-        super(Arrays.asList(
+    // row-major inverse of the matrix mapping a robot displacement to the wheel displacements
+    private final double[] inverse;
+
+    /**
+     * @param lastTrackingEncPositions receives the raw left, right and front encoder positions
+     *                                 on every update for logging, if it has room for them
+     * @param lastTrackingEncVels      the same for the encoder velocities
+     */
+    public StandardTrackingWheelLocalizer(HardwareMap hardwareMap, int[] lastTrackingEncPositions, int[] lastTrackingEncVels) {
+        super(3, null);
+
+        inverse = invert(Arrays.asList(
                 new Pose2d(0, LATERAL_DISTANCE / 2, 0), // left
                 new Pose2d(0, -LATERAL_DISTANCE / 2, 0), // right
                 new Pose2d(FORWARD_OFFSET, 0, Math.toRadians(90)) // front
@@ -55,45 +65,109 @@ public class StandardTrackingWheelLocalizer extends ThreeTrackingWheelLocalizer
         // TODO: reverse any encoders using Encoder.setDirection(Encoder.Direction.REVERSE)
     }
 
+    /**
+     * Each wheel measures the robot displacement projected on its direction, plus the rotation
+     * times its lever arm: {@code cos * dx + sin * dy + (x * sin - y * cos) * dHeading}. The
+     * inverse of that matrix is taken once here instead of solving it on every update.
+     */
+    private static double[] invert(List<Pose2d> wheelPoses) {
+        double[] m = new double[9];
+
+        for (int i = 0; i < 3; i++) {
+            Pose2d wheel = wheelPoses.get(i);
+            double cos = Math.cos(wheel.getHeading());
+            double sin = Math.sin(wheel.getHeading());
+
+            m[3 * i] = cos;
+            m[3 * i + 1] = sin;
+            m[3 * i + 2] = wheel.getX() * sin - wheel.getY() * cos;
+        }
+
+        double c00 = m[4] * m[8] - m[5] * m[7];
+        double c01 = m[5] * m[6] - m[3] * m[8];
+        double c02 = m[3] * m[7] - m[4] * m[6];
+
+        double determinant = m[0] * c00 + m[1] * c01 + m[2] * c02;
+        if (Math.abs(determinant) < 1e-9) {
+            throw new IllegalArgumentException("The tracking wheel configuration is degenerate");
+        }
+
+        return new double[]{
+                c00 / determinant, (m[2] * m[7] - m[1] * m[8]) / determinant, (m[1] * m[5] - m[2] * m[4]) / determinant,
+                c01 / determinant, (m[0] * m[8] - m[2] * m[6]) / determinant, (m[2] * m[3] - m[0] * m[5]) / determinant,
+                c02 / determinant, (m[1] * m[6] - m[0] * m[7]) / determinant, (m[0] * m[4] - m[1] * m[3]) / determinant
+        };
+    }
+
     public static double encoderTicksToInches(double ticks) {
         return WHEEL_RADIUS * 2 * Math.PI * GEAR_RATIO * ticks / TICKS_PER_REV;
     }
 
-    @NonNull
     @Override
-    public List<Double> getWheelPositions() {
+    protected void readWheelPositions(double[] positions) {
         int leftPos = leftEncoder.getCurrentPosition();
         int rightPos = rightEncoder.getCurrentPosition();
         int frontPos = frontEncoder.getCurrentPosition();
 
-        lastEncPositions.clear();
-        lastEncPositions.add(leftPos);
-        lastEncPositions.add(rightPos);
-        lastEncPositions.add(frontPos);
+        if (lastEncPositions.length >= 3) {
+            lastEncPositions[0] = leftPos;
+            lastEncPositions[1] = rightPos;
+            lastEncPositions[2] = frontPos;
+        }
 
-        return Arrays.asList(
-                encoderTicksToInches(leftPos),
-                encoderTicksToInches(rightPos),
-                encoderTicksToInches(frontPos)
-        );
+        positions[0] = encoderTicksToInches(leftPos);
+        positions[1] = encoderTicksToInches(rightPos);
+        positions[2] = encoderTicksToInches(frontPos);
     }
 
-    @NonNull
     @Override
-    public List<Double> getWheelVelocities() {
+    protected boolean readWheelVelocities(double[] velocities) {
         int leftVel = (int) leftEncoder.getCorrectedVelocity();
         int rightVel = (int) rightEncoder.getCorrectedVelocity();
         int frontVel = (int) frontEncoder.getCorrectedVelocity();
 
-        lastEncVels.clear();
-        lastEncVels.add(leftVel);
-        lastEncVels.add(rightVel);
-        lastEncVels.add(frontVel);
+        if (lastEncVels.length >= 3) {
+            lastEncVels[0] = leftVel;
+            lastEncVels[1] = rightVel;
+            lastEncVels[2] = frontVel;
+        }
+
+        velocities[0] = encoderTicksToInches(leftVel);
+        velocities[1] = encoderTicksToInches(rightVel);
+        velocities[2] = encoderTicksToInches(frontVel);
+
+        return true;
+    }
 
-        return Arrays.asList(
-                encoderTicksToInches(leftVel),
-                encoderTicksToInches(rightVel),
-                encoderTicksToInches(frontVel)
+    @Override
+    protected void wheelToRobot(double[] wheels, MutablePose2d robot) {
+        robot.set(
+                inverse[0] * wheels[0] + inverse[1] * wheels[1] + inverse[2] * wheels[2],
+                inverse[3] * wheels[0] + inverse[4] * wheels[1] + inverse[5] * wheels[2],
+                inverse[6] * wheels[0] + inverse[7] * wheels[1] + inverse[8] * wheels[2]
         );
     }
+
+    /**
+     * Wheel positions in inches, left, right and front. Allocates; meant for tuning tools.
+     */
+    @NonNull
+    public List<Double> getWheelPositions() {
+        double[] positions = new double[3];
+        readWheelPositions(positions);
+
+        return Arrays.asList(positions[0], positions[1], positions[2]);
+    }
+
+    /**
+     * Wheel velocities in inches per second, left, right and front. Allocates; meant for tuning
+     * tools.
+     */
+    @NonNull
+    public List<Double> getWheelVelocities() {
+        double[] velocities = new double[3];
+        readWheelVelocities(velocities);
+
+        return Arrays.asList(velocities[0], velocities[1], velocities[2]);
+    }
 }
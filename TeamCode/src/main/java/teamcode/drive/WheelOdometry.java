@@ -0,0 +1,166 @@
+package teamcode.drive;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.acmerobotics.roadrunner.drive.Drive;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.localization.Localizer;
+import com.acmerobotics.roadrunner.util.Angle;
+
+import teamcode.util.MutablePose2d;
+
+/**
+ * Base for wheel odometry that does not allocate while it runs. Wheel readings go into
+ * preallocated arrays and the pose is integrated in place; an immutable {@link Pose2d} is only
+ * created when the pose or velocity is asked for after it changed.
+ * <p>
+ * If a drive is given as heading source, its external heading (usually the IMU) replaces the
+ * heading the wheels measure, like Road Runner's own mecanum localizer does by default. Road
+ * Runner's {@link Drive#getExternalHeadingVelocity()} returns a boxed {@code Double}, so the heading
+ * source must also implement {@link HeadingVelocitySource} for updates not to allocate.
+ */
+public abstract class WheelOdometry implements Localizer {
+    /**
+     * A heading source that reports its heading velocity as a primitive.
+     */
+    public interface HeadingVelocitySource {
+        /**
+         * Heading velocity in radians per second, or NaN if it is not known.
+         */
+        double readExternalHeadingVelocity();
+    }
+
+    private final Drive headingSource;
+
+    private final double[] wheelPositions;
+    private final double[] lastWheelPositions;
+    private final double[] wheelDeltas;
+    private final double[] wheelVelocities;
+
+    private final MutablePose2d pose = new MutablePose2d();
+    private final MutablePose2d delta = new MutablePose2d();
+    private final MutablePose2d velocity = new MutablePose2d();
+
+    private boolean hasLastWheelPositions;
+    private double lastExternalHeading = Double.NaN;
+    private boolean hasVelocity;
+
+    // handed out until the pose or velocity changes again; null once stale
+    private Pose2d poseEstimate = new Pose2d();
+    private Pose2d poseVelocity;
+
+    protected WheelOdometry(int wheelCount, @Nullable Drive headingSource) {
+        this.headingSource = headingSource;
+
+        wheelPositions = new double[wheelCount];
+        lastWheelPositions = new double[wheelCount];
+        wheelDeltas = new double[wheelCount];
+        wheelVelocities = new double[wheelCount];
+    }
+
+    /**
+     * Reads every wheel's position in inches into {@code positions}.
+     */
+    protected abstract void readWheelPositions(double[] positions);
+
+    /**
+     * Reads every wheel's velocity in inches per second into {@code velocities}, returning false
+     * if the wheels cannot measure velocity.
+     */
+    protected boolean readWheelVelocities(double[] velocities) {
+        return false;
+    }
+
+    /**
+     * Converts wheel displacements (or velocities) to the robot-relative displacement (or
+     * velocity) they add up to.
+     */
+    protected abstract void wheelToRobot(double[] wheels, MutablePose2d robot);
+
+    @NonNull
+    @Override
+    public Pose2d getPoseEstimate() {
+        if (poseEstimate == null) poseEstimate = pose.toPose2d();
+
+        return poseEstimate;
+    }
+
+    @Override
+    public void setPoseEstimate(@NonNull Pose2d pose) {
+        this.pose.set(pose);
+        poseEstimate = pose;
+
+        hasLastWheelPositions = false;
+        lastExternalHeading = Double.NaN;
+
+        if (headingSource != null) headingSource.setExternalHeading(pose.getHeading());
+    }
+
+    @Nullable
+    @Override
+    public Pose2d getPoseVelocity() {
+        if (!hasVelocity) return null;
+        if (poseVelocity == null) poseVelocity = velocity.toPose2d();
+
+        return poseVelocity;
+    }
+
+    /**
+     * Same as {@link #getPoseEstimate()} without creating a pose.
+     */
+    public MutablePose2d getMutablePoseEstimate() {
+        return pose;
+    }
+
+    /**
+     * Same as {@link #getPoseVelocity()} without creating a pose.
+     */
+    @Nullable
+    public MutablePose2d getMutablePoseVelocity() {
+        return hasVelocity ? velocity : null;
+    }
+
+    @Override
+    public void update() {
+        readWheelPositions(wheelPositions);
+        double externalHeading = headingSource != null ? headingSource.getExternalHeading() : Double.NaN;
+
+        if (hasLastWheelPositions) {
+            for (int i = 0; i < wheelPositions.length; i++) {
+                wheelDeltas[i] = wheelPositions[i] - lastWheelPositions[i];
+            }
+
+            wheelToRobot(wheelDeltas, delta);
+            if (headingSource != null) delta.setHeading(Angle.normDelta(externalHeading - lastExternalHeading));
+
+            pose.relativeOdometryUpdate(delta.getX(), delta.getY(), delta.getHeading());
+            poseEstimate = null;
+        }
+
+        System.arraycopy(wheelPositions, 0, lastWheelPositions, 0, wheelPositions.length);
+        hasLastWheelPositions = true;
+        lastExternalHeading = externalHeading;
+
+        hasVelocity = readWheelVelocities(wheelVelocities);
+        if (hasVelocity) {
+            wheelToRobot(wheelVelocities, velocity);
+
+            if (headingSource != null) {
+                double externalHeadingVelocity = readExternalHeadingVelocity();
+                if (!Double.isNaN(externalHeadingVelocity)) velocity.setHeading(externalHeadingVelocity);
+            }
+
+            poseVelocity = null;
+        }
+    }
+
+    private double readExternalHeadingVelocity() {
+        if (headingSource instanceof HeadingVelocitySource) {
+            return ((HeadingVelocitySource) headingSource).readExternalHeadingVelocity();
+        }
+
+        Double externalHeadingVelocity = headingSource.getExternalHeadingVelocity();
+        return externalHeadingVelocity != null ? externalHeadingVelocity : Double.NaN;
+    }
+}
@@ -0,0 +1,119 @@
+package teamcode.drive.opmode;
+
+import static teamcode.drive.DriveConstants.MAX_ACCEL;
+import static teamcode.drive.DriveConstants.MAX_ANG_ACCEL;
+import static teamcode.drive.DriveConstants.MAX_ANG_VEL;
+import static teamcode.drive.DriveConstants.MAX_VEL;
+import static teamcode.drive.DriveConstants.TRACK_WIDTH;
+
+import com.acmerobotics.dashboard.FtcDashboard;
+import com.acmerobotics.dashboard.config.Config;
+import com.acmerobotics.dashboard.telemetry.MultipleTelemetry;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.geometry.Vector2d;
+import com.acmerobotics.roadrunner.util.Angle;
+import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import teamcode.drive.SampleMecanumDrive;
+import teamcode.trajectorysequence.TrajectorySequence;
+import teamcode.trajectorysequence.TrajectorySequenceBuilder;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Compares sequences built with adaptive path resolution against the fixed 0.25 in baseline. For
+ * a few representative routes it reports the build time of both, the difference in duration and
+ * the largest pose deviation between them sampled every SAMPLE_DT seconds. No hardware is used.
+ * <p>
+ * Tune MAX_RESOLUTION, MAX_DEVIATION and MAX_HEADING_STEP_DEG until the deviation is negligible,
+ * then copy them into SampleMecanumDrive.
+ */
+@Config
+@Autonomous(group = "drive")
+public class AdaptiveResolutionTest extends LinearOpMode {
+    public static double MAX_RESOLUTION = 4;
+    public static double MAX_DEVIATION = 0.002;
+    public static double MAX_HEADING_STEP_DEG = 0.5;
+
+    public static double SAMPLE_DT = 0.01;
+    public static int REPEATS = 5;
+
+    @Override
+    public void runOpMode() throws InterruptedException {
+        Telemetry telemetry = new MultipleTelemetry(this.telemetry, FtcDashboard.getInstance().getTelemetry());
+
+        telemetry.addLine("Press start to compare path resolutions.");
+        telemetry.update();
+
+        waitForStart();
+
+        if (isStopRequested()) return;
+
+        telemetry.clearAll();
+
+        compare(telemetry, "forward 87", builder -> builder.forward(87));
+        compare(telemetry, "strafe 48", builder -> builder.strafeLeft(48));
+        compare(telemetry, "spline", builder -> builder.splineTo(new Vector2d(48, 24), Math.toRadians(90)));
+        compare(telemetry, "linear heading", builder -> builder.lineToLinearHeading(new Pose2d(48, 0, Math.toRadians(90))));
+        compare(telemetry, "auto-like", builder -> builder
+                .forward(24)
+                .turn(Math.toRadians(90))
+                .back(9)
+                .strafeRight(20)
+                .splineToConstantHeading(new Vector2d(40, 10), 0)
+                .forward(30));
+
+        while (!isStopRequested()) {
+            idle();
+        }
+    }
+
+    private void compare(Telemetry telemetry, String name, UnaryOperator<TrajectorySequenceBuilder> route) {
+        if (isStopRequested()) return;
+
+        long start = System.nanoTime();
+        TrajectorySequence baseline = null;
+        for (int i = 0; i < REPEATS; i++) {
+            baseline = route.apply(builder()).build();
+        }
+        double baselineMs = (System.nanoTime() - start) / 1e6 / REPEATS;
+
+        start = System.nanoTime();
+        TrajectorySequence adaptive = null;
+        for (int i = 0; i < REPEATS; i++) {
+            adaptive = route.apply(builder()
+                    .adaptiveResolution(MAX_RESOLUTION, MAX_DEVIATION, Math.toRadians(MAX_HEADING_STEP_DEG))
+            ).build();
+        }
+        double adaptiveMs = (System.nanoTime() - start) / 1e6 / REPEATS;
+
+        double maxTranslationalError = 0.0;
+        double maxHeadingError = 0.0;
+
+        double duration = Math.max(baseline.duration(), adaptive.duration());
+        for (double t = 0.0; t <= duration; t += SAMPLE_DT) {
+            Pose2d expected = baseline.poseAt(t);
+            Pose2d actual = adaptive.poseAt(t);
+
+            maxTranslationalError = Math.max(maxTranslationalError, expected.vec().minus(actual.vec()).norm());
+            maxHeadingError = Math.max(maxHeadingError, Math.abs(Angle.normDelta(expected.getHeading() - actual.getHeading())));
+        }
+
+        telemetry.addData(name, "build %.2f -> %.2f ms, duration %+.3f s, max error %.3f in / %.2f deg",
+                baselineMs, adaptiveMs,
+                adaptive.duration() - baseline.duration(),
+                maxTranslationalError, Math.toDegrees(maxHeadingError));
+        telemetry.update();
+    }
+
+    private static TrajectorySequenceBuilder builder() {
+        return new TrajectorySequenceBuilder(
+                new Pose2d(),
+                SampleMecanumDrive.getVelocityConstraint(MAX_VEL, MAX_ANG_VEL, TRACK_WIDTH),
+                SampleMecanumDrive.getAccelerationConstraint(MAX_ACCEL),
+                MAX_ANG_VEL, MAX_ANG_ACCEL
+        );
+    }
+}
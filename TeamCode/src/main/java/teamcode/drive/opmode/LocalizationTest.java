@@ -6,6 +6,7 @@ import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 import com.qualcomm.robotcore.hardware.DcMotor;
 
 import teamcode.drive.SampleMecanumDrive;
+import teamcode.util.HardwareCycle;
 
 /**
  * This is a simple teleop routine for testing localization. Drive the robot around like a normal
@@ -22,6 +23,9 @@ public class LocalizationTest extends LinearOpMode {
 
         drive.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
 
+        HardwareCycle hardwareCycle = drive.getHardwareCycle();
+        long lastBulkReadCount = hardwareCycle.getBulkReadCount();
+
         waitForStart();
 
         while (!isStopRequested()) {
@@ -39,6 +43,13 @@ public class LocalizationTest extends LinearOpMode {
             telemetry.addData("x", poseEstimate.getX());
             telemetry.addData("y", poseEstimate.getY());
             telemetry.addData("heading", poseEstimate.getHeading());
+
+            // one per hub is the best a loop can do; more means something started an extra cycle
+            long bulkReadCount = hardwareCycle.getBulkReadCount();
+            telemetry.addData("bulk reads per loop", bulkReadCount - lastBulkReadCount);
+            telemetry.addData("hubs", hardwareCycle.getHubCount());
+            lastBulkReadCount = bulkReadCount;
+
             telemetry.update();
         }
     }
@@ -0,0 +1,185 @@
+package teamcode.drive.opmode;
+
+import static teamcode.drive.DriveConstants.TRACK_WIDTH;
+import static teamcode.drive.DriveConstants.encoderTicksToInches;
+import static teamcode.drive.DriveConstants.kA;
+import static teamcode.drive.DriveConstants.kStatic;
+import static teamcode.drive.DriveConstants.kV;
+
+import android.os.Debug;
+
+import androidx.annotation.NonNull;
+
+import com.acmerobotics.dashboard.FtcDashboard;
+import com.acmerobotics.dashboard.config.Config;
+import com.acmerobotics.dashboard.telemetry.MultipleTelemetry;
+import com.acmerobotics.roadrunner.drive.MecanumDrive;
+import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import teamcode.drive.MecanumWheelLocalizer;
+import teamcode.drive.SampleMecanumDrive;
+import teamcode.drive.WheelOdometry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the cost of one drive encoder odometry update before and after the allocation-free
+ * localizer: Road Runner's mecanum localizer fed boxed wheel lists, as SampleMecanumDrive used to,
+ * against {@link MecanumWheelLocalizer}. Both read the same simulated encoders, so no hardware is
+ * used and the robot can stay on the bench.
+ * <p>
+ * Reports the average time and the bytes allocated per update, measured with the runtime's
+ * allocation counters, over UPDATES updates after WARMUP_UPDATES.
+ */
+@Config
+@Autonomous(group = "drive")
+public class OdometryBenchmark extends LinearOpMode {
+    public static int UPDATES = 100_000;
+    public static int WARMUP_UPDATES = 10_000;
+
+    @Override
+    public void runOpMode() throws InterruptedException {
+        Telemetry telemetry = new MultipleTelemetry(this.telemetry, FtcDashboard.getInstance().getTelemetry());
+
+        telemetry.addLine("Press start to benchmark odometry updates.");
+        telemetry.update();
+
+        waitForStart();
+
+        if (isStopRequested()) return;
+
+        telemetry.clearAll();
+
+        SimulatedDrive before = new SimulatedDrive();
+
+        SimulatedDrive after = new SimulatedDrive();
+        after.setLocalizer(new MecanumWheelLocalizer(
+                after, after, TRACK_WIDTH, TRACK_WIDTH, SampleMecanumDrive.LATERAL_MULTIPLIER));
+
+        report(telemetry, "before (boxed lists)", before);
+        report(telemetry, "after (primitive arrays)", after);
+
+        while (!isStopRequested()) {
+            idle();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void report(Telemetry telemetry, String name, SimulatedDrive drive) {
+        for (int i = 0; i < WARMUP_UPDATES; i++) {
+            drive.updatePoseEstimate();
+        }
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocSize();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) {
+            drive.updatePoseEstimate();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long allocated = Debug.getThreadAllocSize();
+        Debug.stopAllocCounting();
+
+        telemetry.addData(name, "%.0f ns, %.1f bytes per update",
+                (double) elapsed / UPDATES, (double) allocated / UPDATES);
+        telemetry.update();
+    }
+
+    /**
+     * Mecanum drive whose encoders count up at a steady rate and whose "IMU" turns slowly. The
+     * boxed list methods are the ones SampleMecanumDrive had before it read into arrays.
+     */
+    private static class SimulatedDrive extends MecanumDrive
+            implements MecanumWheelLocalizer.Wheels, WheelOdometry.HeadingVelocitySource {
+        private final List<Integer> lastEncPositions = new ArrayList<>();
+        private final List<Integer> lastEncVels = new ArrayList<>();
+
+        private final int[] encPositions = new int[4];
+        private final int[] encVels = new int[4];
+
+        private int ticks;
+        private double heading;
+
+        SimulatedDrive() {
+            super(kV, kA, kStatic, TRACK_WIDTH, TRACK_WIDTH, SampleMecanumDrive.LATERAL_MULTIPLIER);
+        }
+
+        private int position(int wheel) {
+            return ticks * (wheel + 1);
+        }
+
+        @NonNull
+        @Override
+        public List<Double> getWheelPositions() {
+            ticks++;
+            lastEncPositions.clear();
+
+            List<Double> wheelPositions = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                int position = position(i);
+                lastEncPositions.add(position);
+                wheelPositions.add(encoderTicksToInches(position));
+            }
+            return wheelPositions;
+        }
+
+        @Override
+        public List<Double> getWheelVelocities() {
+            lastEncVels.clear();
+
+            List<Double> wheelVelocities = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                int vel = 50 * (i + 1);
+                lastEncVels.add(vel);
+                wheelVelocities.add(encoderTicksToInches(vel));
+            }
+            return wheelVelocities;
+        }
+
+        @Override
+        public void readWheelPositions(double[] positions) {
+            ticks++;
+
+            for (int i = 0; i < 4; i++) {
+                int position = position(i);
+                encPositions[i] = position;
+                positions[i] = encoderTicksToInches(position);
+            }
+        }
+
+        @Override
+        public boolean readWheelVelocities(double[] velocities) {
+            for (int i = 0; i < 4; i++) {
+                int vel = 50 * (i + 1);
+                encVels[i] = vel;
+                velocities[i] = encoderTicksToInches(vel);
+            }
+            return true;
+        }
+
+        @Override
+        public void setMotorPowers(double v, double v1, double v2, double v3) {
+        }
+
+        @Override
+        public double getRawExternalHeading() {
+            heading += 1e-4;
+            return heading;
+        }
+
+        @Override
+        public Double getExternalHeadingVelocity() {
+            return readExternalHeadingVelocity();
+        }
+
+        @Override
+        public double readExternalHeadingVelocity() {
+            return 0.005;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package teamcode.drive.opmode;
+
+import static teamcode.drive.DriveConstants.MAX_ACCEL;
+import static teamcode.drive.DriveConstants.MAX_ANG_ACCEL;
+import static teamcode.drive.DriveConstants.MAX_ANG_VEL;
+import static teamcode.drive.DriveConstants.MAX_VEL;
+import static teamcode.drive.DriveConstants.TRACK_WIDTH;
+
+import com.acmerobotics.dashboard.FtcDashboard;
+import com.acmerobotics.dashboard.config.Config;
+import com.acmerobotics.dashboard.telemetry.MultipleTelemetry;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.geometry.Vector2d;
+import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import teamcode.drive.SampleMecanumDrive;
+import teamcode.trajectorysequence.TrajectorySequenceBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how long TrajectorySequenceBuilder.build() takes for a route of SEGMENTS straight legs
+ * as the number of markers grows. No hardware is used, so the robot can stay on the bench.
+ * <p>
+ * Each marker count in MARKER_COUNTS is split evenly between temporal, displacement and spatial
+ * markers and built REPEATS times, both serially and with buildParallel() on a pool of THREADS
+ * threads (0 uses every core); the average build times are reported.
+ */
+@Config
+@Autonomous(group = "drive")
+public class TrajectoryBuildBenchmark extends LinearOpMode {
+    public static int SEGMENTS = 20;
+    public static int REPEATS = 5;
+    public static int[] MARKER_COUNTS = {0, 10, 50, 100, 200};
+    public static int THREADS = 0;
+
+    @Override
+    public void runOpMode() throws InterruptedException {
+        Telemetry telemetry = new MultipleTelemetry(this.telemetry, FtcDashboard.getInstance().getTelemetry());
+
+        telemetry.addLine("Press start to benchmark sequence builds.");
+        telemetry.update();
+
+        waitForStart();
+
+        if (isStopRequested()) return;
+
+        telemetry.clearAll();
+
+        ExecutorService executor = new ForkJoinPool(THREADS > 0 ? THREADS : Runtime.getRuntime().availableProcessors());
+
+        try {
+            for (int markers : MARKER_COUNTS) {
+                if (isStopRequested()) return;
+
+                // warm up so class loading does not land in the first measurement
+                builder(markers).build();
+                builder(markers).buildParallel(executor);
+
+                long start = System.nanoTime();
+                for (int i = 0; i < REPEATS; i++) {
+                    builder(markers).build();
+                }
+                double serialMs = (System.nanoTime() - start) / 1e6 / REPEATS;
+
+                start = System.nanoTime();
+                for (int i = 0; i < REPEATS; i++) {
+                    builder(markers).buildParallel(executor);
+                }
+                double parallelMs = (System.nanoTime() - start) / 1e6 / REPEATS;
+
+                telemetry.addData(markers + " markers", "%.2f ms serial, %.2f ms parallel", serialMs, parallelMs);
+                telemetry.update();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        while (!isStopRequested()) {
+            idle();
+        }
+    }
+
+    private static TrajectorySequenceBuilder builder(int markers) {
+        TrajectorySequenceBuilder builder = new TrajectorySequenceBuilder(
+                new Pose2d(),
+                SampleMecanumDrive.getVelocityConstraint(MAX_VEL, MAX_ANG_VEL, TRACK_WIDTH),
+                SampleMecanumDrive.getAccelerationConstraint(MAX_ACCEL),
+                MAX_ANG_VEL, MAX_ANG_ACCEL
+        );
+
+        double legLength = 24;
+
+        for (int i = 0; i < SEGMENTS; i++) {
+            double y = (i % 2 == 0) ? legLength : 0;
+            builder.lineTo(new Vector2d(legLength * (i + 1), y));
+        }
+
+        for (int i = 0; i < markers; i++) {
+            double fraction = (i + 0.5) / markers;
+
+            switch (i % 3) {
+                case 0:
+                    builder.addTemporalMarker(fraction, 0, () -> {});
+                    break;
+                case 1:
+                    builder.addDisplacementMarker(fraction, 0, () -> {});
+                    break;
+                default:
+                    builder.addSpatialMarker(new Vector2d(fraction * legLength * SEGMENTS, legLength / 2), () -> {});
+                    break;
+            }
+        }
+
+        return builder;
+    }
+}
@@ -6,10 +6,13 @@ import com.qualcomm.hardware.dfrobot.HuskyLens;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.Gamepad;
 import com.qualcomm.robotcore.hardware.Servo;
 
 import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
 import org.firstinspires.ftc.robotcore.internal.system.Deadline;
+import teamcode.util.GamepadService;
+import teamcode.util.GamepadSnapshot;
 
 import java.util.concurrent.TimeUnit;
 
@@ -46,6 +49,9 @@ public class to3controlchange extends LinearOpMode {
     Orientation angles;
 
     private DriveControl_NanoTorjan driveControl;
+
+    // the loop reads the gamepads once per iteration through snapshots from here
+    private GamepadService gamepads;
     //private DriveControl driveControl;
 
 
@@ -127,12 +133,16 @@ public class to3controlchange extends LinearOpMode {
         boolean highscore=false;
 
         waitForStart();
+        gamepads = new GamepadService(gamepad1, gamepad2);
         //set closed claw and claw lift down
         clawLeft.setPosition(1);
         clawRight.setPosition(0.6);
         clawLift.setPosition(0.173);
         //while (!isStopRequested()) {
         while (opModeIsActive()) {
+            GamepadSnapshot pads = gamepads.update();
+            Gamepad gamepad1 = pads.getGamepad1();
+            Gamepad gamepad2 = pads.getGamepad2();
 
             //Call Robot base movement algorithem to drive the base
             driveControl.driveRobot(gamepad1.left_stick_x, gamepad1.left_stick_y, gamepad1.right_stick_x);
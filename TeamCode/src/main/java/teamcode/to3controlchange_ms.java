@@ -6,10 +6,12 @@ import com.qualcomm.hardware.dfrobot.HuskyLens;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.Gamepad;
 import com.qualcomm.robotcore.hardware.Servo;
 
 import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
 import org.firstinspires.ftc.robotcore.internal.system.Deadline;
+import teamcode.util.GamepadService;
 
 import java.util.concurrent.TimeUnit;
 
@@ -48,6 +50,9 @@ public class to3controlchange_ms extends LinearOpMode {
     Orientation angles;
 
     private DriveControl_NanoTorjan driveControl;
+
+    // the control threads read the gamepads only through snapshots from here
+    private GamepadService gamepads;
     //private DriveControl driveControl;
 
     @Override
@@ -103,6 +108,7 @@ public class to3controlchange_ms extends LinearOpMode {
         driveControl = new DriveControl_NanoTorjan(frontLeft, frontRight, backLeft, backRight, imu);
         //driveControl = new DriveControl(frontLeft, frontRight, backLeft, backRight, imu);
 
+        gamepads = new GamepadService(gamepad1, gamepad2);
 
         Thread baseControlThread = new Thread(new baseControl());
         Thread armControlThread = new Thread(new armControl());
@@ -117,7 +123,7 @@ public class to3controlchange_ms extends LinearOpMode {
               //put some code here for more actions on the control thread
             // Game Pad 2 controller for other motors
             // control intake motor
-            intake.setPower(gamepad2.left_stick_y * 0.5);
+            intake.setPower(gamepads.update().getGamepad2().left_stick_y * 0.5);
 
         }
     }
@@ -128,6 +134,8 @@ public class to3controlchange_ms extends LinearOpMode {
         @Override
         public void run() {
             while (!Thread.interrupted() && opModeIsActive()) {
+                Gamepad gamepad1 = gamepads.update().getGamepad1();
+
                 // Motor control logic for motors 1 and 2
                 //Call Robot base movement algorithem to drive the base
                 driveControl.driveRobot(gamepad1.left_stick_x, gamepad1.left_stick_y, gamepad1.right_stick_x);
@@ -161,6 +169,7 @@ public class to3controlchange_ms extends LinearOpMode {
             clawLift.setPosition(0.173);
             //while (!isStopRequested()) {
             while (!Thread.interrupted() && opModeIsActive()) {
+                Gamepad gamepad2 = gamepads.update().getGamepad2();
 
                 //lift power take from the second game pad
                 lspower = gamepad2.right_stick_y;
@@ -0,0 +1,235 @@
+package teamcode.trajectorysequence;
+
+import androidx.annotation.Nullable;
+
+import com.acmerobotics.roadrunner.control.PIDCoefficients;
+import com.acmerobotics.roadrunner.drive.DriveSignal;
+import com.acmerobotics.roadrunner.followers.TrajectoryFollower;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+import com.acmerobotics.roadrunner.trajectory.TrajectoryMarker;
+import com.acmerobotics.roadrunner.util.Angle;
+
+import teamcode.trajectorysequence.sequencesegment.TrajectoryLookupTable;
+import teamcode.util.MutableDriveSignal;
+import teamcode.util.MutablePose2d;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Same control law as Road Runner's HolonomicPIDVAFollower, but reads the target pose, velocity and
+ * acceleration from a pre-sampled {@link TrajectoryLookupTable} when one is supplied, falling back
+ * to evaluating the trajectory otherwise.
+ * <p>
+ * {@link #update(Pose2d, Pose2d, MutableDriveSignal)} does the math on primitives and writes into
+ * the caller's signal, so following a baked trajectory does not allocate. It keeps its own end of
+ * trajectory state and fires the trajectory's markers, with the same rules as
+ * {@link TrajectoryFollower#update}; use its return value instead of {@link #isFollowing()}.
+ */
+public class BakedHolonomicPIDVAFollower extends TrajectoryFollower {
+    private final PIDController axialController;
+    private final PIDController lateralController;
+    private final PIDController headingController;
+
+    private final double admissibleX;
+    private final double admissibleY;
+    private final double admissibleHeading;
+    private final double timeout;
+
+    private Trajectory currentTrajectory;
+    private TrajectoryLookupTable lookupTable;
+    private double duration;
+    private final MutablePose2d endPose = new MutablePose2d();
+    private boolean finished;
+
+    // markers of the current trajectory sorted by time, fired by update()
+    private final List<TrajectoryMarker> markers = new ArrayList<>();
+    private int nextMarker;
+
+    private final MutablePose2d targetPose = new MutablePose2d();
+    private final MutablePose2d targetVel = new MutablePose2d();
+    private final MutablePose2d targetAccel = new MutablePose2d();
+
+    private final MutablePose2d lastError = new MutablePose2d();
+    private final MutableDriveSignal signal = new MutableDriveSignal();
+
+    public BakedHolonomicPIDVAFollower(
+            PIDCoefficients axialCoeffs, PIDCoefficients lateralCoeffs, PIDCoefficients headingCoeffs,
+            Pose2d admissibleError, double timeout
+    ) {
+        super(admissibleError, timeout);
+
+        axialController = new PIDController(axialCoeffs);
+        lateralController = new PIDController(lateralCoeffs);
+        headingController = new PIDController(headingCoeffs);
+        headingController.setInputBounds(-Math.PI, Math.PI);
+
+        admissibleX = admissibleError.getX();
+        admissibleY = admissibleError.getY();
+        admissibleHeading = admissibleError.getHeading();
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void followTrajectory(Trajectory trajectory) {
+        axialController.reset();
+        lateralController.reset();
+        headingController.reset();
+
+        currentTrajectory = trajectory;
+        lookupTable = null;
+        duration = trajectory.duration();
+        endPose.set(trajectory.end());
+        finished = false;
+
+        markers.clear();
+        markers.addAll(trajectory.getMarkers());
+        markers.sort(Comparator.comparingDouble(TrajectoryMarker::getTime));
+        nextMarker = 0;
+
+        super.followTrajectory(trajectory);
+    }
+
+    public void followTrajectory(Trajectory trajectory, @Nullable TrajectoryLookupTable lookupTable) {
+        followTrajectory(trajectory);
+
+        this.lookupTable = lookupTable;
+    }
+
+    /**
+     * Writes the command for the current pose into {@code signal} and returns true, or writes a
+     * zero signal and returns false once the trajectory is done: its time is up and the robot is
+     * within the admissible error of the end pose, or the timeout has passed as well.
+     */
+    public boolean update(Pose2d currentPose, @Nullable Pose2d currentRobotVel, MutableDriveSignal signal) {
+        double t = elapsedTime();
+
+        while (nextMarker < markers.size() && t > markers.get(nextMarker).getTime()) {
+            markers.get(nextMarker++).getCallback().onMarkerReached();
+        }
+
+        if (!finished && t >= duration) {
+            // like TrajectoryFollower, the end error is taken in the field frame
+            boolean admissible = Math.abs(endPose.getX() - currentPose.getX()) < admissibleX
+                    && Math.abs(endPose.getY() - currentPose.getY()) < admissibleY
+                    && Math.abs(Angle.normDelta(endPose.getHeading() - currentPose.getHeading())) < admissibleHeading;
+
+            finished = admissible || t >= duration + timeout;
+
+            if (finished) {
+                while (nextMarker < markers.size()) {
+                    markers.get(nextMarker++).getCallback().onMarkerReached();
+                }
+            }
+        }
+
+        if (finished) {
+            signal.setZero();
+            return false;
+        }
+
+        update(t, currentPose, currentRobotVel, signal);
+        return true;
+    }
+
+    /**
+     * The control law alone, for the target at time {@code t}.
+     */
+    private void update(double t, Pose2d currentPose, @Nullable Pose2d currentRobotVel, MutableDriveSignal signal) {
+        if (lookupTable != null) {
+            lookupTable.get(t, targetPose);
+            lookupTable.velocity(t, targetVel);
+            lookupTable.acceleration(t, targetAccel);
+        } else {
+            targetPose.set(currentTrajectory.get(t));
+            targetVel.set(currentTrajectory.velocity(t));
+            targetAccel.set(currentTrajectory.acceleration(t));
+        }
+
+        // field to robot frame, as in Kinematics.fieldToRobotVelocity and fieldToRobotAcceleration
+        double cos = Math.cos(targetPose.getHeading());
+        double sin = Math.sin(targetPose.getHeading());
+        double omega = targetVel.getHeading();
+
+        double robotVelX = targetVel.getX() * cos + targetVel.getY() * sin;
+        double robotVelY = -targetVel.getX() * sin + targetVel.getY() * cos;
+
+        double robotAccelX = targetAccel.getX() * cos + targetAccel.getY() * sin
+                + (-targetVel.getX() * sin + targetVel.getY() * cos) * omega;
+        double robotAccelY = -targetAccel.getX() * sin + targetAccel.getY() * cos
+                + (-targetVel.getX() * cos - targetVel.getY() * sin) * omega;
+
+        robotPoseError(targetPose, currentPose, lastError);
+
+        // the error is passed as the setpoint with a measurement of zero
+        axialController.setTargetPosition(lastError.getX());
+        lateralController.setTargetPosition(lastError.getY());
+        headingController.setTargetPosition(lastError.getHeading());
+
+        axialController.setTargetVelocity(robotVelX);
+        lateralController.setTargetVelocity(robotVelY);
+        headingController.setTargetVelocity(omega);
+
+        // feedforward is applied at the wheel level by the drive
+        double axialCorrection = axialController.update(0.0, currentRobotVel == null ? Double.NaN : currentRobotVel.getX());
+        double lateralCorrection = lateralController.update(0.0, currentRobotVel == null ? Double.NaN : currentRobotVel.getY());
+        double headingCorrection = headingController.update(0.0, currentRobotVel == null ? Double.NaN : currentRobotVel.getHeading());
+
+        signal.set(
+                robotVelX + axialCorrection, robotVelY + lateralCorrection, omega + headingCorrection,
+                robotAccelX, robotAccelY, targetAccel.getHeading()
+        );
+    }
+
+    /**
+     * Same as Kinematics.calculateRobotPoseError, written into {@code error}.
+     */
+    private static void robotPoseError(MutablePose2d target, Pose2d current, MutablePose2d error) {
+        double dx = target.getX() - current.getX();
+        double dy = target.getY() - current.getY();
+
+        double cos = Math.cos(current.getHeading());
+        double sin = Math.sin(current.getHeading());
+
+        error.set(
+                dx * cos + dy * sin,
+                -dx * sin + dy * cos,
+                Angle.normDelta(target.getHeading() - current.getHeading())
+        );
+    }
+
+    @Override
+    protected DriveSignal internalUpdate(Pose2d currentPose, @Nullable Pose2d currentRobotVel) {
+        // TrajectoryFollower.update has already fired the markers and checked for the end
+        update(elapsedTime(), currentPose, currentRobotVel, signal);
+
+        return signal.toDriveSignal();
+    }
+
+    /**
+     * Markers of the current trajectory that have not fired yet, as a view that changes with the
+     * next update.
+     */
+    public List<TrajectoryMarker> getRemainingMarkers() {
+        return markers.subList(nextMarker, markers.size());
+    }
+
+    /**
+     * Error of the last update in the robot frame. Updated in place; copy it to keep it.
+     */
+    public MutablePose2d getMutableLastError() {
+        return lastError;
+    }
+
+    @Override
+    public Pose2d getLastError() {
+        return lastError.toPose2d();
+    }
+
+    @Override
+    protected void setLastError(Pose2d lastError) {
+        this.lastError.set(lastError);
+    }
+}
@@ -0,0 +1,120 @@
+package teamcode.trajectorysequence;
+
+import androidx.annotation.Nullable;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.path.Path;
+
+import teamcode.trajectorysequence.sequencesegment.SequenceSegment;
+import teamcode.trajectorysequence.sequencesegment.TrajectorySegment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * A trajectory sequence whose segments are still being generated in order on a background thread,
+ * see {@link TrajectorySequenceBuilder#buildLazy()}. The first segment is always ready; the path
+ * geometry of every segment is known up front so it can be drawn before it is generated.
+ */
+public class LazyTrajectorySequence {
+    private final List<CompletableFuture<SequenceSegment>> segments;
+    private final Path[] paths;
+
+    private final CompletableFuture<TrajectorySequence> sequence = new CompletableFuture<>();
+
+    LazyTrajectorySequence(int size, Path[] paths) {
+        segments = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            segments.add(new CompletableFuture<>());
+        }
+
+        this.paths = paths;
+    }
+
+    void publish(int i, SequenceSegment segment) {
+        // on the generating thread, so following does not build it
+        if (segment instanceof TrajectorySegment) ((TrajectorySegment) segment).getProjectionIndex();
+
+        segments.get(i).complete(segment);
+    }
+
+    void finish() {
+        List<SequenceSegment> sequenceList = new ArrayList<>(segments.size());
+        for (CompletableFuture<SequenceSegment> segment : segments) {
+            sequenceList.add(segment.join());
+        }
+
+        sequence.complete(new TrajectorySequence(sequenceList));
+    }
+
+    void fail(Throwable t) {
+        for (CompletableFuture<SequenceSegment> segment : segments) {
+            segment.completeExceptionally(t);
+        }
+
+        sequence.completeExceptionally(t);
+    }
+
+    public int size() {
+        return segments.size();
+    }
+
+    public boolean isReady(int i) {
+        return segments.get(i).isDone();
+    }
+
+    /**
+     * Returns the i-th segment, waiting for it to be generated if necessary.
+     */
+    public SequenceSegment get(int i) {
+        return await(segments.get(i), "segment " + i);
+    }
+
+    /**
+     * Path of the i-th segment, or null if it is a turn or a wait.
+     */
+    public @Nullable Path getPath(int i) {
+        return paths[i];
+    }
+
+    public Pose2d start() {
+        return get(0).getStartPose();
+    }
+
+    /**
+     * Time from the start of the sequence to the start of the i-th segment. Waits for the segments
+     * before it to be generated.
+     */
+    public double getSegmentStartTime(int i) {
+        double time = 0.0;
+        for (int j = 0; j < i; j++) {
+            time += get(j).getDuration();
+        }
+        return time;
+    }
+
+    public boolean isDone() {
+        return sequence.isDone();
+    }
+
+    /**
+     * Returns the complete sequence, waiting for the remaining segments to be generated.
+     */
+    public TrajectorySequence getSequence() {
+        return await(sequence, "sequence");
+    }
+
+    private static <T> T await(Future<T> future, String what) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for " + what, e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to build " + what, e.getCause());
+        }
+    }
+}
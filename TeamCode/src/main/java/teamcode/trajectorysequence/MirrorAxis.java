@@ -0,0 +1,42 @@
+package teamcode.trajectorysequence;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.geometry.Vector2d;
+import com.acmerobotics.roadrunner.util.Angle;
+
+/**
+ * Field axis to reflect a route across, see {@link TrajectorySequence#mirrored(MirrorAxis)}.
+ */
+public enum MirrorAxis {
+    /**
+     * Reflects across the x axis: y and headings change sign.
+     */
+    X,
+
+    /**
+     * Reflects across the y axis: x changes sign and headings become {@code PI - heading}.
+     */
+    Y;
+
+    public Vector2d mirror(Vector2d vector) {
+        return this == X
+                ? new Vector2d(vector.getX(), -vector.getY())
+                : new Vector2d(-vector.getX(), vector.getY());
+    }
+
+    public double mirrorHeading(double heading) {
+        return this == X ? Angle.norm(-heading) : Angle.norm(Math.PI - heading);
+    }
+
+    public Pose2d mirror(Pose2d pose) {
+        return new Pose2d(mirror(pose.vec()), mirrorHeading(pose.getHeading()));
+    }
+
+    /**
+     * Mirrors a derivative of a pose, such as a velocity or acceleration. Angular rates change
+     * sign across either axis.
+     */
+    public Pose2d mirrorDeriv(Pose2d deriv) {
+        return new Pose2d(mirror(deriv.vec()), -deriv.getHeading());
+    }
+}
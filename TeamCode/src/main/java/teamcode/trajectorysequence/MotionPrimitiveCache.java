@@ -0,0 +1,220 @@
+package teamcode.trajectorysequence;
+
+import com.acmerobotics.roadrunner.profile.MotionProfile;
+import com.acmerobotics.roadrunner.profile.MotionProfileGenerator;
+import com.acmerobotics.roadrunner.profile.MotionSegment;
+import com.acmerobotics.roadrunner.profile.MotionState;
+import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryAccelerationConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryVelocityConstraint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide cache of the motion profiles of relative primitives (forward, back, strafes and
+ * turns), shared by every sequence built while the app is running. A straight primitive's profile
+ * along its own path does not depend on where it starts, so it is generated once and reused with
+ * the path moved to each new start pose.
+ * <p>
+ * This assumes the velocity and acceleration constraints do not depend on the robot's position on
+ * the field, which holds for the stock drive constraints. Constraints are matched by identity, so
+ * only primitives built with the drive's shared constraints are cached; per-move constraints would
+ * add a new entry on every build. The cache is also cleared once it holds {@link #MAX_SIZE}
+ * profiles, so it can never grow without bound over a long session.
+ */
+public final class MotionPrimitiveCache {
+    public enum Type {
+        FORWARD, BACK, STRAFE_LEFT, STRAFE_RIGHT
+    }
+
+    public static final int MAX_SIZE = 256;
+
+    private static final Map<Object, MotionProfile> profiles = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger hits = new AtomicInteger();
+    private static final AtomicInteger misses = new AtomicInteger();
+
+    private MotionPrimitiveCache() {
+    }
+
+    /**
+     * Displacement profile of a straight primitive, generated with {@code generator} on the first
+     * request only.
+     */
+    static MotionProfile straight(Straight primitive, double resolution, Supplier<MotionProfile> generator) {
+        if (!primitive.shared) return generator.get();
+
+        return lookup(new StraightKey(primitive, resolution), generator);
+    }
+
+    /**
+     * Heading profile of a turn by {@code angle} starting at {@code startHeading}.
+     */
+    public static MotionProfile turn(double startHeading, double angle, double maxAngVel, double maxAngAccel) {
+        MotionProfile profile = lookup(new TurnKey(angle, maxAngVel, maxAngAccel), () ->
+                MotionProfileGenerator.generateSimpleMotionProfile(
+                        new MotionState(0.0, 0.0, 0.0, 0.0),
+                        new MotionState(angle, 0.0, 0.0, 0.0),
+                        maxAngVel,
+                        maxAngAccel
+                )
+        );
+
+        return startHeading == 0.0 ? profile : shift(profile, startHeading);
+    }
+
+    private static MotionProfile lookup(Object key, Supplier<MotionProfile> generator) {
+        MotionProfile profile = profiles.get(key);
+
+        if (profile != null) {
+            hits.incrementAndGet();
+            return profile;
+        }
+
+        misses.incrementAndGet();
+
+        // generated outside the map so a slow profile does not block other lookups
+        profile = generator.get();
+
+        // a full cache starts over rather than tracking which entries are still in use
+        if (profiles.size() >= MAX_SIZE) profiles.clear();
+        MotionProfile existing = profiles.putIfAbsent(key, profile);
+
+        return existing != null ? existing : profile;
+    }
+
+    private static MotionProfile shift(MotionProfile profile, double offset) {
+        List<MotionSegment> segments = new ArrayList<>();
+
+        for (MotionSegment segment : profile.getSegments()) {
+            MotionState start = segment.getStart();
+            segments.add(new MotionSegment(
+                    new MotionState(start.getX() + offset, start.getV(), start.getA(), start.getJ()),
+                    segment.getDt()
+            ));
+        }
+
+        return new MotionProfile(segments);
+    }
+
+    public static int size() {
+        return profiles.size();
+    }
+
+    public static int getHitCount() {
+        return hits.get();
+    }
+
+    public static int getMissCount() {
+        return misses.get();
+    }
+
+    public static void clear() {
+        profiles.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * A straight primitive as described to the builder, before its resolution is known.
+     */
+    static final class Straight {
+        private final Type type;
+        private final double distance;
+        private final TrajectoryVelocityConstraint velConstraint;
+        private final TrajectoryAccelerationConstraint accelConstraint;
+        // whether the constraints are the drive's own, which outlive a single build
+        private final boolean shared;
+
+        Straight(
+                Type type, double distance,
+                TrajectoryVelocityConstraint velConstraint, TrajectoryAccelerationConstraint accelConstraint,
+                boolean shared
+        ) {
+            this.type = type;
+            this.distance = distance;
+            this.velConstraint = velConstraint;
+            this.accelConstraint = accelConstraint;
+            this.shared = shared;
+        }
+
+        TrajectoryVelocityConstraint getVelConstraint() {
+            return velConstraint;
+        }
+
+        TrajectoryAccelerationConstraint getAccelConstraint() {
+            return accelConstraint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Straight)) return false;
+
+            Straight other = (Straight) o;
+            return type == other.type
+                    && Double.compare(distance, other.distance) == 0
+                    && velConstraint == other.velConstraint
+                    && accelConstraint == other.accelConstraint;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, distance, System.identityHashCode(velConstraint), System.identityHashCode(accelConstraint));
+        }
+    }
+
+    private static final class StraightKey {
+        private final Straight primitive;
+        private final double resolution;
+
+        StraightKey(Straight primitive, double resolution) {
+            this.primitive = primitive;
+            this.resolution = resolution;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof StraightKey)) return false;
+
+            StraightKey other = (StraightKey) o;
+            return primitive.equals(other.primitive) && Double.compare(resolution, other.resolution) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * primitive.hashCode() + Double.hashCode(resolution);
+        }
+    }
+
+    private static final class TurnKey {
+        private final double angle;
+        private final double maxAngVel;
+        private final double maxAngAccel;
+
+        TurnKey(double angle, double maxAngVel, double maxAngAccel) {
+            this.angle = angle;
+            this.maxAngVel = maxAngVel;
+            this.maxAngAccel = maxAngAccel;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TurnKey)) return false;
+
+            TurnKey other = (TurnKey) o;
+            return Double.compare(angle, other.angle) == 0
+                    && Double.compare(maxAngVel, other.maxAngVel) == 0
+                    && Double.compare(maxAngAccel, other.maxAngAccel) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(angle, maxAngVel, maxAngAccel);
+        }
+    }
+}
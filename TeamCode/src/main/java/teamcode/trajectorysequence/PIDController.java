@@ -0,0 +1,109 @@
+package teamcode.trajectorysequence;
+
+import com.acmerobotics.roadrunner.control.PIDCoefficients;
+import com.acmerobotics.roadrunner.util.NanoClock;
+
+/**
+ * The PID part of Road Runner's PIDFController, for the follower loops that run every cycle.
+ * PIDFController takes the measured velocity as a nullable {@code Double} and calls its kF
+ * function with boxed arguments, which allocates on every update. This one takes primitives only.
+ * The followers apply feedforward themselves, so there is no kV, kA, kStatic or kF.
+ */
+final class PIDController {
+    private final PIDCoefficients pid;
+    private final NanoClock clock;
+
+    private double targetPosition;
+    private double targetVelocity;
+
+    private boolean inputBounded;
+    private double minInput;
+    private double maxInput;
+
+    private double errorSum;
+    private double lastError;
+    private double lastUpdateTimestamp = Double.NaN;
+
+    PIDController(PIDCoefficients pid) {
+        this(pid, NanoClock.system());
+    }
+
+    PIDController(PIDCoefficients pid, NanoClock clock) {
+        this.pid = pid;
+        this.clock = clock;
+    }
+
+    /**
+     * Treats the input as periodic over {@code [min, max]}, e.g. an angle, so the error is always
+     * the shorter way around.
+     */
+    void setInputBounds(double min, double max) {
+        inputBounded = true;
+        minInput = min;
+        maxInput = max;
+    }
+
+    void setTargetPosition(double targetPosition) {
+        this.targetPosition = targetPosition;
+    }
+
+    void setTargetVelocity(double targetVelocity) {
+        this.targetVelocity = targetVelocity;
+    }
+
+    double getLastError() {
+        return lastError;
+    }
+
+    void reset() {
+        errorSum = 0.0;
+        lastError = 0.0;
+        lastUpdateTimestamp = Double.NaN;
+    }
+
+    /**
+     * Same as {@link #update(double, double)}, with the derivative term taken from the change in
+     * error since the last update.
+     */
+    double update(double measuredPosition) {
+        return update(measuredPosition, Double.NaN);
+    }
+
+    /**
+     * Returns the correction for the measured position and velocity. A NaN velocity is treated as
+     * unknown. Like PIDFController, the first update after a reset only records the error and
+     * returns zero.
+     */
+    double update(double measuredPosition, double measuredVelocity) {
+        double currentTimestamp = clock.seconds();
+        double error = positionError(measuredPosition);
+
+        if (Double.isNaN(lastUpdateTimestamp)) {
+            lastError = error;
+            lastUpdateTimestamp = currentTimestamp;
+            return 0.0;
+        }
+
+        double dt = currentTimestamp - lastUpdateTimestamp;
+        errorSum += 0.5 * (error + lastError) * dt;
+        double errorDeriv = Double.isNaN(measuredVelocity) ? (error - lastError) / dt : targetVelocity - measuredVelocity;
+
+        lastError = error;
+        lastUpdateTimestamp = currentTimestamp;
+
+        return pid.kP * error + pid.kI * errorSum + pid.kD * errorDeriv;
+    }
+
+    private double positionError(double measuredPosition) {
+        double error = targetPosition - measuredPosition;
+
+        if (inputBounded) {
+            double inputRange = maxInput - minInput;
+            while (Math.abs(error) > inputRange / 2.0) {
+                error -= Math.signum(error) * inputRange;
+            }
+        }
+
+        return error;
+    }
+}
@@ -0,0 +1,192 @@
+package teamcode.trajectorysequence;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.geometry.Vector2d;
+import com.acmerobotics.roadrunner.path.ConstantInterpolator;
+import com.acmerobotics.roadrunner.path.HeadingInterpolator;
+import com.acmerobotics.roadrunner.path.LineSegment;
+import com.acmerobotics.roadrunner.path.LinearInterpolator;
+import com.acmerobotics.roadrunner.path.ParametricCurve;
+import com.acmerobotics.roadrunner.path.Path;
+import com.acmerobotics.roadrunner.path.PathSegment;
+import com.acmerobotics.roadrunner.path.QuinticPolynomial;
+import com.acmerobotics.roadrunner.path.QuinticSpline;
+import com.acmerobotics.roadrunner.path.SplineInterpolator;
+import com.acmerobotics.roadrunner.path.TangentInterpolator;
+import com.acmerobotics.roadrunner.profile.MotionProfile;
+import com.acmerobotics.roadrunner.profile.MotionSegment;
+import com.acmerobotics.roadrunner.profile.MotionState;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+import com.acmerobotics.roadrunner.util.Angle;
+
+import teamcode.trajectorysequence.sequencesegment.SequenceSegment;
+import teamcode.trajectorysequence.sequencesegment.TrajectoryLookupTable;
+import teamcode.trajectorysequence.sequencesegment.TrajectorySegment;
+import teamcode.trajectorysequence.sequencesegment.TurnSegment;
+import teamcode.trajectorysequence.sequencesegment.WaitSegment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reflects generated segments across a field axis. A reflection preserves arc length, so every
+ * displacement and heading profile, duration and marker time stays valid as is; only the path
+ * geometry, headings and lookup table samples are mirrored.
+ */
+final class SequenceMirror {
+    // Road Runner's defaults for the arc length parametrization of splines
+    private static final double SPLINE_MAX_DELTA_K = 0.01;
+    private static final double SPLINE_MAX_SEGMENT_LENGTH = 0.25;
+    private static final int SPLINE_MAX_DEPTH = 30;
+
+    private SequenceMirror() {
+    }
+
+    static SequenceSegment mirror(SequenceSegment segment, MirrorAxis axis) {
+        if (segment instanceof TrajectorySegment) {
+            TrajectorySegment trajectorySegment = (TrajectorySegment) segment;
+            Trajectory trajectory = trajectorySegment.getTrajectory();
+
+            return new TrajectorySegment(
+                    new Trajectory(mirror(trajectory.getPath(), axis), trajectory.getProfile(), trajectory.getMarkers()),
+                    trajectorySegment.isBaked() ? mirror(trajectorySegment.getLookupTable(), axis) : null
+            );
+        } else if (segment instanceof TurnSegment) {
+            TurnSegment turnSegment = (TurnSegment) segment;
+            Pose2d startPose = axis.mirror(segment.getStartPose());
+
+            return new TurnSegment(
+                    startPose,
+                    -turnSegment.getTotalRotation(),
+                    mirrorHeadingProfile(turnSegment.getMotionProfile(), startPose.getHeading()),
+                    segment.getMarkers()
+            );
+        }
+
+        return new WaitSegment(axis.mirror(segment.getStartPose()), segment.getDuration(), segment.getMarkers());
+    }
+
+    /**
+     * Negates the heading profile of a turn around its start, which is moved to the mirrored
+     * start heading so the profile stays continuous.
+     */
+    private static MotionProfile mirrorHeadingProfile(MotionProfile profile, double startHeading) {
+        double originalStart = profile.start().getX();
+        List<MotionSegment> segments = new ArrayList<>();
+
+        for (MotionSegment segment : profile.getSegments()) {
+            MotionState start = segment.getStart();
+
+            segments.add(new MotionSegment(
+                    new MotionState(
+                            startHeading - (start.getX() - originalStart),
+                            -start.getV(), -start.getA(), -start.getJ()
+                    ),
+                    segment.getDt()
+            ));
+        }
+
+        return new MotionProfile(segments);
+    }
+
+    private static TrajectoryLookupTable mirror(TrajectoryLookupTable lookupTable, MirrorAxis axis) {
+        return new TrajectoryLookupTable(
+                lookupTable.getDt(),
+                lookupTable.duration(),
+                mirrorSamples(lookupTable.getPoseSamples(), axis, true),
+                mirrorSamples(lookupTable.getVelocitySamples(), axis, false),
+                mirrorSamples(lookupTable.getAccelerationSamples(), axis, false)
+        );
+    }
+
+    private static double[] mirrorSamples(double[] samples, MirrorAxis axis, boolean poses) {
+        for (int i = 0; i < samples.length; i += 3) {
+            Pose2d sample = new Pose2d(samples[i], samples[i + 1], samples[i + 2]);
+            Pose2d mirrored = poses ? axis.mirror(sample) : axis.mirrorDeriv(sample);
+
+            samples[i] = mirrored.getX();
+            samples[i + 1] = mirrored.getY();
+            samples[i + 2] = mirrored.getHeading();
+        }
+
+        return samples;
+    }
+
+    static Path mirror(Path path, MirrorAxis axis) {
+        List<PathSegment> segments = new ArrayList<>();
+
+        for (PathSegment segment : path.getSegments()) {
+            segments.add(new PathSegment(mirror(segment.getCurve(), axis), mirrorInterpolator(segment, axis)));
+        }
+
+        return new Path(segments);
+    }
+
+    private static ParametricCurve mirror(ParametricCurve curve, MirrorAxis axis) {
+        if (curve instanceof LineSegment) {
+            return new LineSegment(axis.mirror(curve.start()), axis.mirror(curve.end()));
+        } else if (curve instanceof QuinticSpline) {
+            QuinticSpline spline = (QuinticSpline) curve;
+
+            return new QuinticSpline(
+                    mirrorKnot(spline, 0.0, axis), mirrorKnot(spline, 1.0, axis),
+                    SPLINE_MAX_DELTA_K, SPLINE_MAX_SEGMENT_LENGTH, SPLINE_MAX_DEPTH
+            );
+        }
+
+        throw new UnsupportedOperationException("Cannot mirror " + curve.getClass().getSimpleName());
+    }
+
+    private static QuinticSpline.Knot mirrorKnot(QuinticSpline spline, double t, MirrorAxis axis) {
+        QuinticPolynomial x = spline.getX();
+        QuinticPolynomial y = spline.getY();
+
+        Vector2d position = axis.mirror(new Vector2d(x.get(t), y.get(t)));
+        Vector2d deriv = axis.mirror(new Vector2d(x.deriv(t), y.deriv(t)));
+        Vector2d secondDeriv = axis.mirror(new Vector2d(x.secondDeriv(t), y.secondDeriv(t)));
+
+        return new QuinticSpline.Knot(
+                position.getX(), position.getY(),
+                deriv.getX(), deriv.getY(),
+                secondDeriv.getX(), secondDeriv.getY()
+        );
+    }
+
+    /**
+     * Rebuilds the heading interpolator of a segment from the headings it produces, so no
+     * interpolator internals are needed.
+     */
+    private static HeadingInterpolator mirrorInterpolator(PathSegment segment, MirrorAxis axis) {
+        HeadingInterpolator interpolator = segment.getInterpolator();
+
+        double length = segment.length();
+        Pose2d start = segment.get(0.0);
+        Pose2d end = segment.get(length);
+
+        if (interpolator instanceof TangentInterpolator) {
+            // the tangent is mirrored with the curve, so only the offset from it flips
+            Pose2d deriv = segment.deriv(0.0);
+            double offset = Angle.normDelta(start.getHeading() - Math.atan2(deriv.getY(), deriv.getX()));
+
+            return new TangentInterpolator(-offset);
+        } else if (interpolator instanceof ConstantInterpolator) {
+            return new ConstantInterpolator(axis.mirrorHeading(start.getHeading()));
+        } else if (interpolator instanceof LinearInterpolator) {
+            return new LinearInterpolator(
+                    axis.mirrorHeading(start.getHeading()),
+                    -Angle.normDelta(end.getHeading() - start.getHeading())
+            );
+        } else if (interpolator instanceof SplineInterpolator) {
+            return new SplineInterpolator(
+                    axis.mirrorHeading(start.getHeading()),
+                    axis.mirrorHeading(end.getHeading()),
+                    -segment.deriv(0.0).getHeading(),
+                    -segment.secondDeriv(0.0).getHeading(),
+                    -segment.deriv(length).getHeading(),
+                    -segment.secondDeriv(length).getHeading()
+            );
+        }
+
+        throw new UnsupportedOperationException("Cannot mirror " + interpolator.getClass().getSimpleName());
+    }
+}
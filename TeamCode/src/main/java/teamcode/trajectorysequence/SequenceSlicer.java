@@ -0,0 +1,290 @@
+package teamcode.trajectorysequence;
+
+import androidx.annotation.Nullable;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.geometry.Vector2d;
+import com.acmerobotics.roadrunner.path.ConstantInterpolator;
+import com.acmerobotics.roadrunner.path.HeadingInterpolator;
+import com.acmerobotics.roadrunner.path.LineSegment;
+import com.acmerobotics.roadrunner.path.LinearInterpolator;
+import com.acmerobotics.roadrunner.path.ParametricCurve;
+import com.acmerobotics.roadrunner.path.Path;
+import com.acmerobotics.roadrunner.path.PathSegment;
+import com.acmerobotics.roadrunner.path.QuinticPolynomial;
+import com.acmerobotics.roadrunner.path.QuinticSpline;
+import com.acmerobotics.roadrunner.path.SplineInterpolator;
+import com.acmerobotics.roadrunner.path.TangentInterpolator;
+import com.acmerobotics.roadrunner.profile.MotionProfile;
+import com.acmerobotics.roadrunner.profile.MotionProfileGenerator;
+import com.acmerobotics.roadrunner.profile.MotionSegment;
+import com.acmerobotics.roadrunner.profile.MotionState;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+import com.acmerobotics.roadrunner.trajectory.TrajectoryMarker;
+import com.acmerobotics.roadrunner.util.Angle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cuts generated segments at a point in time, for seeking into a sequence and resuming it.
+ * <p>
+ * A trajectory is cut at the displacement its profile has reached, into a path that starts there.
+ * Restricting a quintic to part of its domain gives another quintic, so spline pieces are rebuilt
+ * exactly from their knots; lines and heading interpolators are rebuilt from the poses they
+ * produce, as in {@link SequenceMirror}.
+ */
+final class SequenceSlicer {
+    // Road Runner's defaults for the arc length parametrization of splines and for profiles
+    private static final double SPLINE_MAX_DELTA_K = 0.01;
+    private static final double SPLINE_MAX_SEGMENT_LENGTH = 0.25;
+    private static final int SPLINE_MAX_DEPTH = 30;
+    private static final double PROFILE_RESOLUTION = 0.25;
+
+    // path pieces shorter than this (in) are dropped instead of cut
+    private static final double EPSILON = 1e-6;
+    // bisection steps to find the time at which the profile reaches a displacement
+    private static final int TIME_SEARCH_STEPS = 50;
+
+    private SequenceSlicer() {
+    }
+
+    /**
+     * Returns the part of {@code trajectory} from {@code time} on, timed exactly like the original,
+     * or null if no path is left.
+     */
+    static @Nullable Trajectory slice(Trajectory trajectory, double time) {
+        MotionProfile profile = trajectory.getProfile();
+        double displacement = profile.get(time).getX();
+
+        Path path = subPath(trajectory.getPath(), displacement, null);
+        if (path == null) return null;
+
+        return new Trajectory(
+                path,
+                sliceProfile(profile, time, displacement),
+                shiftMarkers(trajectory.getMarkers(), time)
+        );
+    }
+
+    /**
+     * Returns the part of {@code trajectory} from {@code time} on, moved to start at
+     * {@code startPose} and re-profiled from rest, or null if no path is left. The new profile
+     * never goes faster than the original did at the same point of the path, nor accelerates
+     * harder than it ever did, so it stays within the constraints it was built with.
+     */
+    static @Nullable Trajectory resume(Trajectory trajectory, double time, Pose2d startPose) {
+        MotionProfile profile = trajectory.getProfile();
+        double displacement = profile.get(time).getX();
+
+        Path path = subPath(trajectory.getPath(), displacement, startPose);
+        if (path == null) return null;
+
+        // the moved path can be a little longer or shorter than what was left of the original
+        double remaining = trajectory.getPath().length() - displacement;
+        double scale = remaining / path.length();
+        double maxAccel = maxAcceleration(profile);
+
+        MotionProfile resumed = MotionProfileGenerator.generateMotionProfile(
+                new MotionState(0, 0, 0),
+                new MotionState(path.length(), 0, 0),
+                s -> velocityAt(profile, displacement + s * scale),
+                s -> maxAccel,
+                PROFILE_RESOLUTION
+        );
+
+        return new Trajectory(path, resumed, shiftMarkers(trajectory.getMarkers(), time));
+    }
+
+    /**
+     * Returns a heading profile from {@code startHeading} to {@code endHeading}, from rest, with the
+     * largest angular velocity and acceleration of the original {@code profile}.
+     */
+    static MotionProfile resumeTurn(MotionProfile profile, double startHeading, double endHeading) {
+        double maxVel = 0.0;
+        for (MotionSegment segment : profile.getSegments()) {
+            maxVel = Math.max(maxVel, Math.max(Math.abs(segment.getStart().getV()), Math.abs(segment.end().getV())));
+        }
+
+        return MotionProfileGenerator.generateSimpleMotionProfile(
+                new MotionState(startHeading, 0, 0, 0),
+                new MotionState(endHeading, 0, 0, 0),
+                maxVel,
+                maxAcceleration(profile)
+        );
+    }
+
+    /**
+     * Returns the profile from {@code time} on, shifted by {@code displacement} so it starts at
+     * zero.
+     */
+    static MotionProfile sliceProfile(MotionProfile profile, double time, double displacement) {
+        List<MotionSegment> segments = new ArrayList<>();
+        double segmentStart = 0.0;
+
+        for (MotionSegment segment : profile.getSegments()) {
+            double segmentEnd = segmentStart + segment.getDt();
+
+            if (segmentEnd > time) {
+                double offset = Math.max(0.0, time - segmentStart);
+                MotionState start = segment.get(offset);
+
+                segments.add(new MotionSegment(
+                        new MotionState(start.getX() - displacement, start.getV(), start.getA(), start.getJ()),
+                        segment.getDt() - offset
+                ));
+            }
+
+            segmentStart = segmentEnd;
+        }
+
+        if (segments.isEmpty()) {
+            MotionState end = profile.end();
+            segments.add(new MotionSegment(new MotionState(end.getX() - displacement, 0, 0, 0), 0.0));
+        }
+
+        return new MotionProfile(segments);
+    }
+
+    static List<TrajectoryMarker> shiftMarkers(List<TrajectoryMarker> markers, double time) {
+        List<TrajectoryMarker> shifted = new ArrayList<>();
+
+        for (TrajectoryMarker marker : markers) {
+            if (marker.getTime() >= time) {
+                shifted.add(new TrajectoryMarker(marker.getTime() - time, marker.getCallback()));
+            }
+        }
+
+        return shifted;
+    }
+
+    /**
+     * Returns the part of {@code path} from {@code displacement} on, or null if none is left. With
+     * a {@code startPose}, its first piece starts there instead of on the original path.
+     */
+    private static @Nullable Path subPath(Path path, double displacement, @Nullable Pose2d startPose) {
+        List<PathSegment> segments = new ArrayList<>();
+        double segmentStart = 0.0;
+
+        for (PathSegment segment : path.getSegments()) {
+            double length = segment.length();
+            double segmentEnd = segmentStart + length;
+
+            if (segments.isEmpty()) {
+                // cut inside this piece, or skip it if the cut is past it
+                if (segmentEnd - displacement > EPSILON) {
+                    segments.add(cut(segment, Math.max(0.0, displacement - segmentStart), startPose));
+                }
+            } else {
+                segments.add(segment);
+            }
+
+            segmentStart = segmentEnd;
+        }
+
+        return segments.isEmpty() ? null : new Path(segments);
+    }
+
+    private static PathSegment cut(PathSegment segment, double s, @Nullable Pose2d startPose) {
+        Pose2d start = startPose != null ? startPose : segment.get(s);
+
+        return new PathSegment(cut(segment, s, start.getX(), start.getY()), cutInterpolator(segment, s, start.getHeading()));
+    }
+
+    private static ParametricCurve cut(PathSegment segment, double s, double x, double y) {
+        ParametricCurve curve = segment.getCurve();
+
+        if (curve instanceof LineSegment) {
+            return new LineSegment(new Vector2d(x, y), curve.end());
+        } else if (curve instanceof QuinticSpline) {
+            QuinticSpline spline = (QuinticSpline) curve;
+            double t = segment.reparam(s);
+
+            // the piece over [t, 1] is reparametrized onto [0, 1], which scales the derivatives
+            return new QuinticSpline(
+                    knot(spline, t, 1.0 - t, x, y),
+                    knot(spline, 1.0, 1.0 - t, spline.getX().get(1.0), spline.getY().get(1.0)),
+                    SPLINE_MAX_DELTA_K, SPLINE_MAX_SEGMENT_LENGTH, SPLINE_MAX_DEPTH
+            );
+        }
+
+        throw new UnsupportedOperationException("Cannot cut " + curve.getClass().getSimpleName());
+    }
+
+    private static QuinticSpline.Knot knot(QuinticSpline spline, double t, double scale, double positionX, double positionY) {
+        QuinticPolynomial x = spline.getX();
+        QuinticPolynomial y = spline.getY();
+
+        return new QuinticSpline.Knot(
+                positionX, positionY,
+                x.deriv(t) * scale, y.deriv(t) * scale,
+                x.secondDeriv(t) * scale * scale, y.secondDeriv(t) * scale * scale
+        );
+    }
+
+    /**
+     * Rebuilds the heading interpolator of a segment for its part from {@code s} on, starting at
+     * {@code startHeading}. Tangent and constant headings are defined by the path, so they keep
+     * their own start heading.
+     */
+    private static HeadingInterpolator cutInterpolator(PathSegment segment, double s, double startHeading) {
+        HeadingInterpolator interpolator = segment.getInterpolator();
+
+        double length = segment.length();
+        Pose2d start = segment.get(s);
+        Pose2d end = segment.get(length);
+
+        if (interpolator instanceof TangentInterpolator) {
+            Pose2d deriv = segment.deriv(s);
+            double offset = Angle.normDelta(start.getHeading() - Math.atan2(deriv.getY(), deriv.getX()));
+
+            return new TangentInterpolator(offset);
+        } else if (interpolator instanceof ConstantInterpolator) {
+            return new ConstantInterpolator(start.getHeading());
+        } else if (interpolator instanceof LinearInterpolator) {
+            return new LinearInterpolator(startHeading, Angle.normDelta(end.getHeading() - startHeading));
+        } else if (interpolator instanceof SplineInterpolator) {
+            return new SplineInterpolator(
+                    startHeading,
+                    end.getHeading(),
+                    segment.deriv(s).getHeading(),
+                    segment.secondDeriv(s).getHeading(),
+                    segment.deriv(length).getHeading(),
+                    segment.secondDeriv(length).getHeading()
+            );
+        }
+
+        throw new UnsupportedOperationException("Cannot cut " + interpolator.getClass().getSimpleName());
+    }
+
+    /**
+     * Velocity of {@code profile} where it reaches {@code displacement}, found by bisection since
+     * the displacement only grows with time.
+     */
+    private static double velocityAt(MotionProfile profile, double displacement) {
+        double lo = 0.0;
+        double hi = profile.duration();
+
+        for (int i = 0; i < TIME_SEARCH_STEPS; i++) {
+            double mid = 0.5 * (lo + hi);
+
+            if (profile.get(mid).getX() < displacement) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+
+        return Math.abs(profile.get(0.5 * (lo + hi)).getV());
+    }
+
+    private static double maxAcceleration(MotionProfile profile) {
+        double maxAccel = 0.0;
+
+        for (MotionSegment segment : profile.getSegments()) {
+            maxAccel = Math.max(maxAccel, Math.abs(segment.getStart().getA()));
+        }
+
+        return maxAccel;
+    }
+}
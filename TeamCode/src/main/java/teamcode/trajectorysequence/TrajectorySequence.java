@@ -1,19 +1,47 @@
 package teamcode.trajectorysequence;
 
+import androidx.annotation.Nullable;
+
 import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.profile.MotionProfile;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+import com.acmerobotics.roadrunner.trajectory.TrajectoryMarker;
+import com.acmerobotics.roadrunner.util.Angle;
 
 import teamcode.trajectorysequence.sequencesegment.SequenceSegment;
+import teamcode.trajectorysequence.sequencesegment.TrajectorySegment;
+import teamcode.trajectorysequence.sequencesegment.TurnSegment;
+import teamcode.trajectorysequence.sequencesegment.WaitSegment;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 public class TrajectorySequence {
     private final List<SequenceSegment> sequenceList;
 
+    // prefix sums: entry i is where segment i starts, the last entry is the sequence total
+    private final double[] segmentStartTimes;
+    private final double[] segmentStartDisplacements;
+
     public TrajectorySequence(List<SequenceSegment> sequenceList) {
         if (sequenceList.size() == 0) throw new EmptySequenceException();
 
         this.sequenceList = Collections.unmodifiableList(sequenceList);
+
+        segmentStartTimes = new double[sequenceList.size() + 1];
+        segmentStartDisplacements = new double[sequenceList.size() + 1];
+
+        for (int i = 0; i < sequenceList.size(); i++) {
+            SequenceSegment segment = sequenceList.get(i);
+
+            double length = segment instanceof TrajectorySegment
+                    ? ((TrajectorySegment) segment).getTrajectory().getPath().length()
+                    : 0.0;
+
+            segmentStartTimes[i + 1] = segmentStartTimes[i] + segment.getDuration();
+            segmentStartDisplacements[i + 1] = segmentStartDisplacements[i] + length;
+        }
     }
 
     public Pose2d start() {
@@ -25,13 +53,177 @@ public class TrajectorySequence {
     }
 
     public double duration() {
-        double total = 0.0;
+        return segmentStartTimes[sequenceList.size()];
+    }
+
+    /**
+     * Total path length of the trajectory segments in this sequence.
+     */
+    public double displacement() {
+        return segmentStartDisplacements[sequenceList.size()];
+    }
+
+    public double getSegmentStartTime(int i) {
+        return segmentStartTimes[i];
+    }
+
+    public double getSegmentStartDisplacement(int i) {
+        return segmentStartDisplacements[i];
+    }
+
+    /**
+     * Index of the segment that is active at the given time since the start of the sequence.
+     * Times outside the sequence are clamped to the first or last segment.
+     */
+    public int segmentAt(double time) {
+        int lo = 0;
+        int hi = sequenceList.size() - 1;
+
+        // find the last segment whose start time is at or before the given time
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+
+            if (segmentStartTimes[mid] <= time) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+
+        return lo;
+    }
+
+    /**
+     * Target pose at the given time since the start of the sequence.
+     */
+    public Pose2d poseAt(double time) {
+        int i = segmentAt(time);
+        SequenceSegment segment = sequenceList.get(i);
+        double segmentTime = Math.max(0.0, Math.min(time - segmentStartTimes[i], segment.getDuration()));
+
+        if (segment instanceof TrajectorySegment) {
+            TrajectorySegment trajectorySegment = (TrajectorySegment) segment;
+
+            return trajectorySegment.isBaked()
+                    ? trajectorySegment.getLookupTable().get(segmentTime)
+                    : trajectorySegment.getTrajectory().get(segmentTime);
+        } else if (segment instanceof TurnSegment) {
+            Pose2d startPose = segment.getStartPose();
+            double heading = ((TurnSegment) segment).getMotionProfile().get(segmentTime).getX();
+
+            return startPose.copy(startPose.getX(), startPose.getY(), heading);
+        }
+
+        return segment.getStartPose();
+    }
+
+    /**
+     * Returns the remainder of this sequence from the given time on, reusing the already generated
+     * paths and motion profiles. The current trajectory is cut at the displacement reached by then
+     * and keeps its timing, so following the result picks up mid-profile. Markers before that time
+     * are dropped and the later ones are shifted so they still fire at the same point of the route.
+     */
+    public TrajectorySequence seek(double time) {
+        return remainder(time, null);
+    }
+
+    /**
+     * Same as {@link #seek}, but the current segment is rebuilt to start from rest at
+     * {@code currentPose}, e.g. after the robot was stopped part way. Its remaining path is kept and
+     * re-profiled from zero velocity; a turn continues from the current heading. The markers of
+     * that segment keep their shifted times.
+     */
+    public TrajectorySequence resume(double time, Pose2d currentPose) {
+        return remainder(time, currentPose);
+    }
+
+    private TrajectorySequence remainder(double time, @Nullable Pose2d currentPose) {
+        time = Math.max(0.0, Math.min(time, duration()));
+
+        if (time == 0.0 && currentPose == null) return this;
+
+        int index = segmentAt(time);
+        SequenceSegment segment = sequenceList.get(index);
+        double segmentTime = time - segmentStartTimes[index];
+
+        List<SequenceSegment> remaining = new ArrayList<>();
+
+        if (segment instanceof TrajectorySegment) {
+            TrajectorySegment trajectorySegment = (TrajectorySegment) segment;
+            Trajectory trajectory = trajectorySegment.getTrajectory();
+
+            Trajectory sliced = currentPose == null
+                    ? SequenceSlicer.slice(trajectory, segmentTime)
+                    : SequenceSlicer.resume(trajectory, segmentTime, currentPose);
+
+            if (sliced != null) {
+                TrajectorySegment slicedSegment = new TrajectorySegment(sliced);
+
+                remaining.add(trajectorySegment.isBaked()
+                        ? slicedSegment.baked(trajectorySegment.getLookupTable().getDt())
+                        : slicedSegment);
+            } else {
+                // the path is done, but its last markers may not have fired yet
+                remaining.add(new WaitSegment(
+                        segment.getEndPose(), 0.0,
+                        SequenceSlicer.shiftMarkers(trajectory.getMarkers(), segmentTime)
+                ));
+            }
+        } else if (segment instanceof TurnSegment) {
+            TurnSegment turnSegment = (TurnSegment) segment;
+            MotionProfile profile = turnSegment.getMotionProfile();
+            List<TrajectoryMarker> markers = SequenceSlicer.shiftMarkers(segment.getMarkers(), segmentTime);
+
+            if (currentPose == null) {
+                Pose2d startPose = poseAt(time);
+                double turned = startPose.getHeading() - profile.start().getX();
+
+                remaining.add(new TurnSegment(
+                        startPose,
+                        turnSegment.getTotalRotation() - turned,
+                        SequenceSlicer.sliceProfile(profile, segmentTime, 0.0),
+                        markers
+                ));
+            } else {
+                // what is left of the turn, plus whatever the robot is off from where it should be
+                double targetHeading = profile.get(segmentTime).getX();
+                double rotation = profile.end().getX() - targetHeading
+                        + Angle.normDelta(targetHeading - currentPose.getHeading());
+
+                remaining.add(Math.abs(rotation) > 1e-6
+                        ? new TurnSegment(
+                                currentPose, rotation,
+                                SequenceSlicer.resumeTurn(profile, currentPose.getHeading(), currentPose.getHeading() + rotation),
+                                markers)
+                        : new WaitSegment(currentPose, 0.0, markers));
+            }
+        } else {
+            remaining.add(new WaitSegment(
+                    currentPose != null ? currentPose : segment.getStartPose(),
+                    segment.getDuration() - segmentTime,
+                    SequenceSlicer.shiftMarkers(segment.getMarkers(), segmentTime)
+            ));
+        }
+
+        remaining.addAll(sequenceList.subList(index + 1, sequenceList.size()));
+
+        return new TrajectorySequence(remaining);
+    }
+
+    /**
+     * Returns this sequence reflected across the given field axis, e.g. to run a route built for
+     * one alliance on the other. Path geometry, headings, turn directions and strafes are
+     * mirrored; the motion profiles, durations and markers are reused without regenerating
+     * anything.
+     */
+    public TrajectorySequence mirrored(MirrorAxis axis) {
+        List<SequenceSegment> mirrored = new ArrayList<>(sequenceList.size());
 
         for (SequenceSegment segment : sequenceList) {
-            total += segment.getDuration();
+            mirrored.add(SequenceMirror.mirror(segment, axis));
         }
 
-        return total;
+        return new TrajectorySequence(mirrored);
     }
 
     public SequenceSegment get(int i) {
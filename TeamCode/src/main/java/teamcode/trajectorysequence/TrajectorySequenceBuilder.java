@@ -2,10 +2,15 @@ package teamcode.trajectorysequence;
 
 import com.acmerobotics.roadrunner.geometry.Pose2d;
 import com.acmerobotics.roadrunner.geometry.Vector2d;
+import com.acmerobotics.roadrunner.path.ConstantInterpolator;
+import com.acmerobotics.roadrunner.path.LineSegment;
+import com.acmerobotics.roadrunner.path.Path;
+import com.acmerobotics.roadrunner.path.PathBuilder;
 import com.acmerobotics.roadrunner.path.PathContinuityViolationException;
+import com.acmerobotics.roadrunner.path.PathSegment;
+import com.acmerobotics.roadrunner.path.TangentInterpolator;
 import com.acmerobotics.roadrunner.profile.MotionProfile;
-import com.acmerobotics.roadrunner.profile.MotionProfileGenerator;
-import com.acmerobotics.roadrunner.profile.MotionState;
+import com.acmerobotics.roadrunner.profile.MotionSegment;
 import com.acmerobotics.roadrunner.trajectory.DisplacementMarker;
 import com.acmerobotics.roadrunner.trajectory.DisplacementProducer;
 import com.acmerobotics.roadrunner.trajectory.MarkerCallback;
@@ -19,6 +24,7 @@ import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryAcceleration
 import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryVelocityConstraint;
 import com.acmerobotics.roadrunner.util.Angle;
 
+import teamcode.trajectorysequence.sequencesegment.PathProjectionIndex;
 import teamcode.trajectorysequence.sequencesegment.SequenceSegment;
 import teamcode.trajectorysequence.sequencesegment.TrajectorySegment;
 import teamcode.trajectorysequence.sequencesegment.TurnSegment;
@@ -28,8 +34,18 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class TrajectorySequenceBuilder {
+    private static final double CURVATURE_SAMPLE_SPACING = 1.0;
+
     private final double resolution = 0.25;
 
     private final TrajectoryVelocityConstraint baseVelConstraint;
@@ -44,9 +60,12 @@ public class TrajectorySequenceBuilder {
     private double currentTurnConstraintMaxAngVel;
     private double currentTurnConstraintMaxAngAccel;
 
+    // trajectory segments are left null here until their pending path is generated
     private final List<SequenceSegment> sequenceSegments;
+    private final List<PendingPath> pendingPaths;
 
     private final List<TemporalMarker> temporalMarkers;
+    private final List<AnchoredMarker> anchoredMarkers;
     private final List<DisplacementMarker> displacementMarkers;
     private final List<SpatialMarker> spatialMarkers;
 
@@ -57,14 +76,21 @@ public class TrajectorySequenceBuilder {
     private boolean setAbsoluteTangent;
     private double absoluteTangent;
 
-    private TrajectoryBuilder currentTrajectoryBuilder;
+    private PathBuilder currentPathBuilder;
+    private PendingPath currentPath;
 
-    private double currentDuration;
     private double currentDisplacement;
 
-    private double lastDurationTraj;
     private double lastDisplacementTraj;
 
+    private double bakeDt;
+
+    private double maxResolution;
+    private double maxDeviation;
+    private double maxHeadingStep;
+
+    private boolean blendTurns;
+
     public TrajectorySequenceBuilder(
             Pose2d startPose,
             Double startTangent,
@@ -86,8 +112,10 @@ public class TrajectorySequenceBuilder {
         this.currentTurnConstraintMaxAngAccel = baseTurnConstraintMaxAngAccel;
 
         sequenceSegments = new ArrayList<>();
+        pendingPaths = new ArrayList<>();
 
         temporalMarkers = new ArrayList<>();
+        anchoredMarkers = new ArrayList<>();
         displacementMarkers = new ArrayList<>();
         spatialMarkers = new ArrayList<>();
 
@@ -98,13 +126,16 @@ public class TrajectorySequenceBuilder {
         setAbsoluteTangent = (startTangent != null);
         absoluteTangent = startTangent != null ? startTangent : 0.0;
 
-        currentTrajectoryBuilder = null;
+        currentPathBuilder = null;
+        currentPath = null;
 
-        currentDuration = 0.0;
         currentDisplacement = 0.0;
 
-        lastDurationTraj = 0.0;
         lastDisplacementTraj = 0.0;
+
+        bakeDt = 0.0;
+
+        maxResolution = 0.0;
     }
 
     public TrajectorySequenceBuilder(
@@ -122,7 +153,7 @@ public class TrajectorySequenceBuilder {
     }
 
     public TrajectorySequenceBuilder lineTo(Vector2d endPosition) {
-        return addPath(() -> currentTrajectoryBuilder.lineTo(endPosition, currentVelConstraint, currentAccelConstraint));
+        return lineTo(endPosition, currentVelConstraint, currentAccelConstraint);
     }
 
     public TrajectorySequenceBuilder lineTo(
@@ -130,11 +161,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.lineTo(endPosition, velConstraint, accelConstraint));
+        return addPath(path -> path.lineTo(endPosition), trajectory -> trajectory.lineTo(endPosition, velConstraint, accelConstraint));
     }
 
     public TrajectorySequenceBuilder lineToConstantHeading(Vector2d endPosition) {
-        return addPath(() -> currentTrajectoryBuilder.lineToConstantHeading(endPosition, currentVelConstraint, currentAccelConstraint));
+        return lineToConstantHeading(endPosition, currentVelConstraint, currentAccelConstraint);
     }
 
     public TrajectorySequenceBuilder lineToConstantHeading(
@@ -142,11 +173,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.lineToConstantHeading(endPosition, velConstraint, accelConstraint));
+        return addPath(path -> path.lineToConstantHeading(endPosition), trajectory -> trajectory.lineToConstantHeading(endPosition, velConstraint, accelConstraint));
     }
 
     public TrajectorySequenceBuilder lineToLinearHeading(Pose2d endPose) {
-        return addPath(() -> currentTrajectoryBuilder.lineToLinearHeading(endPose, currentVelConstraint, currentAccelConstraint));
+        return lineToLinearHeading(endPose, currentVelConstraint, currentAccelConstraint);
     }
 
     public TrajectorySequenceBuilder lineToLinearHeading(
@@ -154,11 +185,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.lineToLinearHeading(endPose, velConstraint, accelConstraint));
+        return addPath(path -> path.lineToLinearHeading(endPose), trajectory -> trajectory.lineToLinearHeading(endPose, velConstraint, accelConstraint));
     }
 
     public TrajectorySequenceBuilder lineToSplineHeading(Pose2d endPose) {
-        return addPath(() -> currentTrajectoryBuilder.lineToSplineHeading(endPose, currentVelConstraint, currentAccelConstraint));
+        return lineToSplineHeading(endPose, currentVelConstraint, currentAccelConstraint);
     }
 
     public TrajectorySequenceBuilder lineToSplineHeading(
@@ -166,11 +197,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.lineToSplineHeading(endPose, velConstraint, accelConstraint));
+        return addPath(path -> path.lineToSplineHeading(endPose), trajectory -> trajectory.lineToSplineHeading(endPose, velConstraint, accelConstraint));
     }
 
     public TrajectorySequenceBuilder strafeTo(Vector2d endPosition) {
-        return addPath(() -> currentTrajectoryBuilder.strafeTo(endPosition, currentVelConstraint, currentAccelConstraint));
+        return strafeTo(endPosition, currentVelConstraint, currentAccelConstraint);
     }
 
     public TrajectorySequenceBuilder strafeTo(
@@ -178,11 +209,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.strafeTo(endPosition, velConstraint, accelConstraint));
+        return addPath(path -> path.strafeTo(endPosition), trajectory -> trajectory.strafeTo(endPosition, velConstraint, accelConstraint));
     }
 
     public TrajectorySequenceBuilder forward(double distance) {
-        return addPath(() -> currentTrajectoryBuilder.forward(distance, currentVelConstraint, currentAccelConstraint));
+        return forward(distance, currentVelConstraint, currentAccelConstraint);
     }
 
     public TrajectorySequenceBuilder forward(
@@ -190,11 +221,15 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.forward(distance, velConstraint, accelConstraint));
+        return addPrimitive(
+                straight(MotionPrimitiveCache.Type.FORWARD, distance, velConstraint, accelConstraint),
+                path -> path.forward(distance),
+                trajectory -> trajectory.forward(distance, velConstraint, accelConstraint)
+        );
     }
 
     public TrajectorySequenceBuilder back(double distance) {
-        return addPath(() -> currentTrajectoryBuilder.back(distance, currentVelConstraint, currentAccelConstraint));
+        return back(distance, currentVelConstraint, currentAccelConstraint);
     }
 
     public TrajectorySequenceBuilder back(
@@ -202,11 +237,15 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.back(distance, velConstraint, accelConstraint));
+        return addPrimitive(
+                straight(MotionPrimitiveCache.Type.BACK, distance, velConstraint, accelConstraint),
+                path -> path.back(distance),
+                trajectory -> trajectory.back(distance, velConstraint, accelConstraint)
+        );
     }
 
     public TrajectorySequenceBuilder strafeLeft(double distance) {
-        return addPath(() -> currentTrajectoryBuilder.strafeLeft(distance, currentVelConstraint, currentAccelConstraint));
+        return strafeLeft(distance, currentVelConstraint, currentAccelConstraint);
     }
 
     public TrajectorySequenceBuilder strafeLeft(
@@ -214,11 +253,15 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.strafeLeft(distance, velConstraint, accelConstraint));
+        return addPrimitive(
+                straight(MotionPrimitiveCache.Type.STRAFE_LEFT, distance, velConstraint, accelConstraint),
+                path -> path.strafeLeft(distance),
+                trajectory -> trajectory.strafeLeft(distance, velConstraint, accelConstraint)
+        );
     }
 
     public TrajectorySequenceBuilder strafeRight(double distance) {
-        return addPath(() -> currentTrajectoryBuilder.strafeRight(distance, currentVelConstraint, currentAccelConstraint));
+        return strafeRight(distance, currentVelConstraint, currentAccelConstraint);
     }
 
     public TrajectorySequenceBuilder strafeRight(
@@ -226,11 +269,15 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.strafeRight(distance, velConstraint, accelConstraint));
+        return addPrimitive(
+                straight(MotionPrimitiveCache.Type.STRAFE_RIGHT, distance, velConstraint, accelConstraint),
+                path -> path.strafeRight(distance),
+                trajectory -> trajectory.strafeRight(distance, velConstraint, accelConstraint)
+        );
     }
 
     public TrajectorySequenceBuilder splineTo(Vector2d endPosition, double endHeading) {
-        return addPath(() -> currentTrajectoryBuilder.splineTo(endPosition, endHeading, currentVelConstraint, currentAccelConstraint));
+        return splineTo(endPosition, endHeading, currentVelConstraint, currentAccelConstraint);
     }
 
     public TrajectorySequenceBuilder splineTo(
@@ -239,11 +286,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.splineTo(endPosition, endHeading, velConstraint, accelConstraint));
+        return addPath(path -> path.splineTo(endPosition, endHeading), trajectory -> trajectory.splineTo(endPosition, endHeading, velConstraint, accelConstraint));
     }
 
     public TrajectorySequenceBuilder splineToConstantHeading(Vector2d endPosition, double endHeading) {
-        return addPath(() -> currentTrajectoryBuilder.splineToConstantHeading(endPosition, endHeading, currentVelConstraint, currentAccelConstraint));
+        return splineToConstantHeading(endPosition, endHeading, currentVelConstraint, currentAccelConstraint);
     }
 
     public TrajectorySequenceBuilder splineToConstantHeading(
@@ -252,11 +299,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.splineToConstantHeading(endPosition, endHeading, velConstraint, accelConstraint));
+        return addPath(path -> path.splineToConstantHeading(endPosition, endHeading), trajectory -> trajectory.splineToConstantHeading(endPosition, endHeading, velConstraint, accelConstraint));
     }
 
     public TrajectorySequenceBuilder splineToLinearHeading(Pose2d endPose, double endHeading) {
-        return addPath(() -> currentTrajectoryBuilder.splineToLinearHeading(endPose, endHeading, currentVelConstraint, currentAccelConstraint));
+        return splineToLinearHeading(endPose, endHeading, currentVelConstraint, currentAccelConstraint);
     }
 
     public TrajectorySequenceBuilder splineToLinearHeading(
@@ -265,11 +312,11 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.splineToLinearHeading(endPose, endHeading, velConstraint, accelConstraint));
+        return addPath(path -> path.splineToLinearHeading(endPose, endHeading), trajectory -> trajectory.splineToLinearHeading(endPose, endHeading, velConstraint, accelConstraint));
     }
 
     public TrajectorySequenceBuilder splineToSplineHeading(Pose2d endPose, double endHeading) {
-        return addPath(() -> currentTrajectoryBuilder.splineToSplineHeading(endPose, endHeading, currentVelConstraint, currentAccelConstraint));
+        return splineToSplineHeading(endPose, endHeading, currentVelConstraint, currentAccelConstraint);
     }
 
     public TrajectorySequenceBuilder splineToSplineHeading(
@@ -278,30 +325,65 @@ public class TrajectorySequenceBuilder {
             TrajectoryVelocityConstraint velConstraint,
             TrajectoryAccelerationConstraint accelConstraint
     ) {
-        return addPath(() -> currentTrajectoryBuilder.splineToSplineHeading(endPose, endHeading, velConstraint, accelConstraint));
+        return addPath(path -> path.splineToSplineHeading(endPose, endHeading), trajectory -> trajectory.splineToSplineHeading(endPose, endHeading, velConstraint, accelConstraint));
     }
 
-    private TrajectorySequenceBuilder addPath(AddPathCallback callback) {
-        if (currentTrajectoryBuilder == null) newPath();
+    /**
+     * Extends the current path's geometry right away and records the matching trajectory step, so
+     * the expensive motion profile is only generated once per path when the sequence is built.
+     */
+    private TrajectorySequenceBuilder addPath(AddPathCallback pathCallback, AddTrajectoryCallback trajectoryCallback) {
+        // a blended path is not extended so its saved time can be measured against the original
+        if (currentPathBuilder == null || currentPath.blend != null) newPath();
 
         try {
-            callback.run();
+            pathCallback.run(currentPathBuilder);
         } catch (PathContinuityViolationException e) {
             newPath();
-            callback.run();
+            pathCallback.run(currentPathBuilder);
         }
 
-        Trajectory builtTraj = currentTrajectoryBuilder.build();
+        currentPath.steps.add(trajectoryCallback);
+        currentPath.primitive = null;
+
+        Path path = currentPathBuilder.build();
 
-        double durationDifference = builtTraj.duration() - lastDurationTraj;
-        double displacementDifference = builtTraj.getPath().length() - lastDisplacementTraj;
+        double displacementDifference = path.length() - lastDisplacementTraj;
 
-        lastPose = builtTraj.end();
-        currentDuration += durationDifference;
+        lastPose = path.end();
         currentDisplacement += displacementDifference;
 
-        lastDurationTraj = builtTraj.duration();
-        lastDisplacementTraj = builtTraj.getPath().length();
+        lastDisplacementTraj = path.length();
+
+        return this;
+    }
+
+    /**
+     * Describes a straight primitive. Only the drive's own constraints, which this builder was
+     * created with, live as long as the app; constraints passed for a single move are new objects
+     * every build, so their profiles are not kept in {@link MotionPrimitiveCache}.
+     */
+    private MotionPrimitiveCache.Straight straight(
+            MotionPrimitiveCache.Type type, double distance,
+            TrajectoryVelocityConstraint velConstraint, TrajectoryAccelerationConstraint accelConstraint
+    ) {
+        boolean shared = velConstraint == baseVelConstraint && accelConstraint == baseAccelConstraint;
+
+        return new MotionPrimitiveCache.Straight(type, distance, velConstraint, accelConstraint, shared);
+    }
+
+    /**
+     * Adds a straight primitive. If it ends up as the only step of its path, the profile comes
+     * from {@link MotionPrimitiveCache} instead of being generated again.
+     */
+    private TrajectorySequenceBuilder addPrimitive(
+            MotionPrimitiveCache.Straight primitive,
+            AddPathCallback pathCallback,
+            AddTrajectoryCallback trajectoryCallback
+    ) {
+        addPath(pathCallback, trajectoryCallback);
+
+        if (currentPath.steps.size() == 1) currentPath.primitive = primitive;
 
         return this;
     }
@@ -383,12 +465,78 @@ public class TrajectorySequenceBuilder {
         return this;
     }
 
+    /**
+     * Pre-samples every trajectory segment at a fixed timestep when the sequence is built, so
+     * that following it only needs table lookups. A timestep of zero disables baking.
+     */
+    public TrajectorySequenceBuilder bake(double dt) {
+        this.bakeDt = dt;
+
+        return this;
+    }
+
+    /**
+     * Picks each path's profile resolution from its geometry instead of always using 0.25 in.
+     * Straight constant-heading paths get {@code maxResolution}; curved paths are sampled finely
+     * enough that a chord strays at most {@code maxDeviation} inches from the curve and the heading
+     * changes at most {@code maxHeadingStep} radians per sample. A max resolution at or below the
+     * default turns this off.
+     */
+    public TrajectorySequenceBuilder adaptiveResolution(double maxResolution, double maxDeviation, double maxHeadingStep) {
+        this.maxResolution = maxResolution;
+        this.maxDeviation = maxDeviation;
+        this.maxHeadingStep = maxHeadingStep;
+
+        return this;
+    }
+
+    /**
+     * Folds each turn into the straight move (forward, back or strafe) right before it, so the
+     * mecanum drive rotates while it translates instead of stopping to turn in place. The move
+     * and the turn become one line with a linear heading, profiled as a single segment.
+     * <p>
+     * A turn is left in place if the move before it has temporal markers, if the total rotation
+     * reaches 180 degrees, or if the rotation per inch would ask for more angular acceleration
+     * than the turn allows. The path velocity constraint must limit angular velocity, as the
+     * stock drive constraints do. See {@link #getBlendTimeSaved()} for what this gained.
+     */
+    public TrajectorySequenceBuilder blendTurns(boolean blendTurns) {
+        this.blendTurns = blendTurns;
+
+        return this;
+    }
+
+    /**
+     * Seconds that {@link #blendTurns(boolean)} saved in the built sequence compared to stopping
+     * for every turn. Paths of a lazily built sequence count once they are generated. Negative if
+     * the blended moves ended up slower, e.g. because of the angular velocity constraint.
+     */
+    public double getBlendTimeSaved() {
+        double saved = 0.0;
+
+        for (PendingPath path : pendingPaths) {
+            if (path.blend != null && path.trajectory != null) {
+                saved += path.unblendedDuration() - path.trajectory.duration();
+            }
+        }
+
+        return saved;
+    }
+
     public TrajectorySequenceBuilder addTemporalMarker(MarkerCallback callback) {
-        return this.addTemporalMarker(currentDuration, callback);
+        return this.UNSTABLE_addTemporalMarkerOffset(0.0, callback);
     }
 
     public TrajectorySequenceBuilder UNSTABLE_addTemporalMarkerOffset(double offset, MarkerCallback callback) {
-        return this.addTemporalMarker(currentDuration + offset, callback);
+        if (currentPath == null) {
+            anchoredMarkers.add(new AnchoredMarker(null, sequenceSegments.size(), offset, callback));
+        } else {
+            // the time into the current path is only known once its steps so far are generated
+            currentPath.markerSteps.add(currentPath.steps.size());
+            anchoredMarkers.add(new AnchoredMarker(currentPath, currentPath.steps.size(), offset, callback));
+        }
+
+        return this;
     }
 
     public TrajectorySequenceBuilder addTemporalMarker(double time, MarkerCallback callback) {
@@ -396,6 +544,12 @@ public class TrajectorySequenceBuilder {
     }
 
     public TrajectorySequenceBuilder addTemporalMarker(double scale, double offset, MarkerCallback callback) {
+        if (scale == 0.0) {
+            // an absolute time, which unlike a producer does not wait on the total duration
+            anchoredMarkers.add(new AnchoredMarker(null, 0, offset, callback));
+            return this;
+        }
+
         return this.addTemporalMarker(time -> scale * time + offset, callback);
     }
 
@@ -436,14 +590,11 @@ public class TrajectorySequenceBuilder {
     }
 
     public TrajectorySequenceBuilder turn(double angle, double maxAngVel, double maxAngAccel) {
-        pushPath();
+        MotionProfile turnProfile = MotionPrimitiveCache.turn(lastPose.getHeading(), angle, maxAngVel, maxAngAccel);
 
-        MotionProfile turnProfile = MotionProfileGenerator.generateSimpleMotionProfile(
-                new MotionState(lastPose.getHeading(), 0.0, 0.0, 0.0),
-                new MotionState(lastPose.getHeading() + angle, 0.0, 0.0, 0.0),
-                maxAngVel,
-                maxAngAccel
-        );
+        if (blendTurns && blendTurn(angle, turnProfile.duration(), maxAngAccel)) return this;
+
+        pushPath();
 
         sequenceSegments.add(new TurnSegment(lastPose, angle, turnProfile, Collections.emptyList()));
 
@@ -452,16 +603,62 @@ public class TrajectorySequenceBuilder {
                 Angle.norm(lastPose.getHeading() + angle)
         );
 
-        currentDuration += turnProfile.duration();
-
         return this;
     }
 
+    /**
+     * Replaces the current path, if it is a single straight move, with a line to the same point
+     * that also turns by {@code angle}. Returns false if the turn has to stay in place.
+     */
+    private boolean blendTurn(double angle, double turnDuration, double maxAngAccel) {
+        if (currentPath == null || currentPath.steps.size() != 1 || !currentPath.markerSteps.isEmpty()) return false;
+
+        Blend blend = currentPath.blend;
+        MotionPrimitiveCache.Straight primitive = blend != null ? blend.primitive : currentPath.primitive;
+
+        if (primitive == null) return false;
+
+        double rotation = (blend != null ? blend.rotation : 0.0) + angle;
+
+        // a linear heading interpolation always takes the short way around
+        if (Math.abs(rotation) >= Math.PI) return false;
+
+        Pose2d startPose = currentPath.startPose;
+        Vector2d line = lastPose.vec().minus(startPose.vec());
+        double length = line.norm();
+
+        if (length == 0.0) return false;
+
+        // heading changes in proportion to displacement, so angular acceleration scales with the
+        // translational acceleration
+        double accel = primitive.getAccelConstraint().get(
+                0.0, startPose, new Pose2d(line.div(length), rotation / length), new Pose2d());
+        if (Math.abs(rotation) / length * accel > maxAngAccel) return false;
+
+        if (blend == null) {
+            blend = new Blend(primitive, currentPath.steps.get(0));
+            currentPath.blend = blend;
+            currentPath.primitive = null;
+        }
+
+        blend.rotation = rotation;
+        blend.turnDuration += turnDuration;
+
+        Pose2d endPose = new Pose2d(lastPose.vec(), Angle.norm(startPose.getHeading() + rotation));
+        TrajectoryVelocityConstraint velConstraint = primitive.getVelConstraint();
+        TrajectoryAccelerationConstraint accelConstraint = primitive.getAccelConstraint();
+
+        currentPathBuilder = new PathBuilder(startPose, currentPath.startTangent).lineToLinearHeading(endPose);
+        currentPath.steps.set(0, trajectory -> trajectory.lineToLinearHeading(endPose, velConstraint, accelConstraint));
+
+        lastPose = endPose;
+
+        return true;
+    }
+
     public TrajectorySequenceBuilder waitSeconds(double seconds) {
         pushPath();
         sequenceSegments.add(new WaitSegment(lastPose, seconds, Collections.emptyList()));
-
-        currentDuration += seconds;
         return this;
     }
 
@@ -472,240 +669,772 @@ public class TrajectorySequenceBuilder {
         return this;
     }
 
+    /**
+     * Appends a ready-made trajectory segment, such as a compiled trajectory asset. A baked
+     * segment keeps its own lookup table.
+     */
+    public TrajectorySequenceBuilder addTrajectory(TrajectorySegment segment) {
+        pushPath();
+
+        sequenceSegments.add(segment);
+        lastPose = segment.getEndPose();
+        return this;
+    }
+
     private void pushPath() {
-        if (currentTrajectoryBuilder != null) {
-            Trajectory builtTraj = currentTrajectoryBuilder.build();
-            sequenceSegments.add(new TrajectorySegment(builtTraj));
+        if (currentPath != null) {
+            currentPath.path = currentPathBuilder.build();
+            currentPath.segmentIndex = sequenceSegments.size();
+            sequenceSegments.add(null);
+            pendingPaths.add(currentPath);
         }
 
-        currentTrajectoryBuilder = null;
+        currentPathBuilder = null;
+        currentPath = null;
     }
 
     private void newPath() {
-        if (currentTrajectoryBuilder != null)
+        if (currentPathBuilder != null)
             pushPath();
 
-        lastDurationTraj = 0.0;
         lastDisplacementTraj = 0.0;
 
         double tangent = setAbsoluteTangent ? absoluteTangent : Angle.norm(lastPose.getHeading() + tangentOffset);
 
-        currentTrajectoryBuilder = new TrajectoryBuilder(lastPose, tangent, currentVelConstraint, currentAccelConstraint, resolution);
+        currentPathBuilder = new PathBuilder(lastPose, tangent);
+        currentPath = new PendingPath(lastPose, tangent, currentVelConstraint, currentAccelConstraint, resolution);
     }
 
     public TrajectorySequence build() {
+        finishPaths();
+
+        for (PendingPath path : pendingPaths) {
+            path.generate();
+        }
+
+        return assemble();
+    }
+
+    private void finishPaths() {
         pushPath();
 
-        List<TrajectoryMarker> globalMarkers = convertMarkersToGlobal(
-                sequenceSegments,
-                temporalMarkers, displacementMarkers, spatialMarkers
-        );
+        if (maxResolution > resolution) {
+            for (PendingPath path : pendingPaths) {
+                path.resolution = adaptiveResolution(path.path);
+            }
+        }
+    }
+
+    private double adaptiveResolution(Path path) {
+        double maxCurvature = 0.0;
+        double maxHeadingRate = 0.0;
+
+        for (PathSegment segment : path.getSegments()) {
+            boolean straight = segment.getCurve() instanceof LineSegment
+                    && (segment.getInterpolator() instanceof ConstantInterpolator
+                    || segment.getInterpolator() instanceof TangentInterpolator);
+
+            if (straight) continue;
+
+            double length = segment.length();
+            int samples = Math.max(1, (int) Math.ceil(length / CURVATURE_SAMPLE_SPACING));
+
+            for (int i = 0; i <= samples; i++) {
+                double s = length * i / samples;
+
+                // arc length parametrized, so the tangent has unit length
+                Pose2d deriv = segment.deriv(s);
+                Pose2d secondDeriv = segment.secondDeriv(s);
+
+                double curvature = Math.abs(deriv.getX() * secondDeriv.getY() - deriv.getY() * secondDeriv.getX());
+
+                maxCurvature = Math.max(maxCurvature, curvature);
+                maxHeadingRate = Math.max(maxHeadingRate, Math.abs(deriv.getHeading()));
+            }
+        }
 
-        return new TrajectorySequence(projectGlobalMarkersToLocalSegments(globalMarkers, sequenceSegments));
+        double adaptive = maxResolution;
+
+        // a chord of length ds deviates from an arc of curvature k by about k * ds^2 / 8
+        if (maxCurvature > 0) adaptive = Math.min(adaptive, Math.sqrt(8 * maxDeviation / maxCurvature));
+        if (maxHeadingRate > 0) adaptive = Math.min(adaptive, maxHeadingStep / maxHeadingRate);
+
+        return Math.max(resolution, adaptive);
     }
 
-    private List<TrajectoryMarker> convertMarkersToGlobal(
-            List<SequenceSegment> sequenceSegments,
-            List<TemporalMarker> temporalMarkers,
-            List<DisplacementMarker> displacementMarkers,
-            List<SpatialMarker> spatialMarkers
-    ) {
-        ArrayList<TrajectoryMarker> trajectoryMarkers = new ArrayList<>();
+    /**
+     * Same as {@link #build()}, but generates the motion profiles of the sequence's paths
+     * concurrently on the given executor. Path geometry is already laid out serially while the
+     * sequence is described, so only the profile generation is fanned out.
+     */
+    public TrajectorySequence buildParallel(ExecutorService executor) {
+        finishPaths();
+
+        List<Future<?>> futures = new ArrayList<>();
+
+        // profiles are sampled every resolution along the path, so the most samples go first and do
+        // not end up trailing on a single thread
+        List<PendingPath> paths = new ArrayList<>(pendingPaths);
+        paths.sort(Comparator.comparingDouble((PendingPath path) -> path.path.length() / path.resolution).reversed());
+
+        for (PendingPath path : paths) {
+            futures.add(executor.submit(path::generateFull));
+
+            for (int steps : path.markerSteps) {
+                if (steps < path.steps.size()) {
+                    futures.add(executor.submit(() -> path.generatePrefix(steps)));
+                }
+            }
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            for (Future<?> future : futures) future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while building trajectory sequence", e);
+        } catch (ExecutionException e) {
+            for (Future<?> future : futures) future.cancel(true);
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new RuntimeException("Failed to build trajectory sequence", e.getCause());
+        }
+
+        return assemble();
+    }
+
+    /**
+     * Generates only the first segment before returning and the rest in order on a background
+     * thread, so following can start right away. Temporal markers given as a {@link TimeProducer}
+     * depend on the total duration and are not supported here.
+     * <p>
+     * A marker that resolves to a time inside a segment that was already handed out (e.g. a
+     * negative offset) is attached to the start of the next segment instead.
+     */
+    public LazyTrajectorySequence buildLazy() {
+        finishPaths();
+
+        if (sequenceSegments.isEmpty()) throw new EmptySequenceException();
+
+        if (!temporalMarkers.isEmpty()) {
+            throw new IllegalStateException("Temporal markers relative to the total duration need build()");
+        }
+
+        LazyGenerator generator = new LazyGenerator();
+
+        generator.publish(0);
+
+        if (generator.target.size() > 1) {
+            Thread thread = new Thread(generator, "LazyTrajectorySequence");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            generator.target.finish();
+        }
+
+        return generator.target;
+    }
+
+    private TrajectorySequence assemble() {
+        for (PendingPath path : pendingPaths) {
+            sequenceSegments.set(path.segmentIndex, new TrajectorySegment(path.trajectory));
+        }
+
+        List<SequenceSegment> segments = projectMarkersToLocalSegments(sequenceSegments);
+
+        if (bakeDt > 0) {
+            for (int i = 0; i < segments.size(); i++) {
+                SequenceSegment segment = segments.get(i);
+
+                if (segment instanceof TrajectorySegment && !((TrajectorySegment) segment).isBaked()) {
+                    segments.set(i, ((TrajectorySegment) segment).baked(bakeDt));
+                }
+            }
+        }
+
+        return new TrajectorySequence(segments);
+    }
+
+    /**
+     * Resolves every temporal, displacement and spatial marker to a time within its segment and
+     * rebuilds each segment that received markers exactly once. Segment start times and
+     * displacements are indexed up front and the markers are resolved in sorted sweeps, so the
+     * cost stays close to linear in the number of segments plus markers.
+     */
+    private List<SequenceSegment> projectMarkersToLocalSegments(List<SequenceSegment> sequenceSegments) {
+        if (sequenceSegments.isEmpty()) return Collections.emptyList();
+
+        int segmentCount = sequenceSegments.size();
+
+        // prefix sums: entry i is where segment i starts, the last entry is the sequence total
+        double[] startTimes = new double[segmentCount + 1];
+        double[] startDisplacements = new double[segmentCount + 1];
+
+        for (int i = 0; i < segmentCount; i++) {
+            SequenceSegment segment = sequenceSegments.get(i);
+
+            double length = segment instanceof TrajectorySegment
+                    ? ((TrajectorySegment) segment).getTrajectory().getPath().length()
+                    : 0.0;
+
+            startTimes[i + 1] = startTimes[i] + segment.getDuration();
+            startDisplacements[i + 1] = startDisplacements[i] + length;
+        }
+
+        List<TrajectoryMarker> globalMarkers = new ArrayList<>(
+                temporalMarkers.size() + displacementMarkers.size() + spatialMarkers.size()
+        );
 
         // Convert temporal markers
         for (TemporalMarker marker : temporalMarkers) {
-            trajectoryMarkers.add(
-                    new TrajectoryMarker(marker.getProducer().produce(currentDuration), marker.getCallback())
+            globalMarkers.add(
+                    new TrajectoryMarker(marker.getProducer().produce(startTimes[segmentCount]), marker.getCallback())
             );
         }
 
-        // Convert displacement markers
-        for (DisplacementMarker marker : displacementMarkers) {
-            double time = displacementToTime(
-                    sequenceSegments,
-                    marker.getProducer().produce(currentDisplacement)
-            );
+        for (AnchoredMarker marker : anchoredMarkers) {
+            globalMarkers.add(new TrajectoryMarker(marker.time(startTimes), marker.callback));
+        }
 
-            trajectoryMarkers.add(
-                    new TrajectoryMarker(
-                            time,
-                            marker.getCallback()
-                    )
-            );
+        // Displacement and spatial markers are both resolved through a global displacement
+        List<ResolvedDisplacement> markersByDisplacement = new ArrayList<>(
+                displacementMarkers.size() + spatialMarkers.size()
+        );
+
+        for (DisplacementMarker marker : displacementMarkers) {
+            markersByDisplacement.add(new ResolvedDisplacement(
+                    marker.getProducer().produce(currentDisplacement),
+                    marker.getCallback()
+            ));
         }
 
-        // Convert spatial markers
+        PathProjectionIndex[] indices = spatialMarkers.isEmpty() ? null : indicesOf(pathsOf(sequenceSegments));
+
         for (SpatialMarker marker : spatialMarkers) {
-            trajectoryMarkers.add(
-                    new TrajectoryMarker(
-                            pointToTime(sequenceSegments, marker.getPoint()),
-                            marker.getCallback()
-                    )
-            );
+            markersByDisplacement.add(new ResolvedDisplacement(
+                    pointToDisplacement(indices, startDisplacements, marker.getPoint()),
+                    marker.getCallback()
+            ));
+        }
+
+        globalMarkers.addAll(displacementsToTimes(sequenceSegments, startTimes, startDisplacements, markersByDisplacement));
+
+        return distributeMarkers(sequenceSegments, startTimes, globalMarkers);
+    }
+
+    private List<TrajectoryMarker> displacementsToTimes(
+            List<SequenceSegment> sequenceSegments,
+            double[] startTimes,
+            double[] startDisplacements,
+            List<ResolvedDisplacement> markers
+    ) {
+        List<TrajectoryMarker> trajectoryMarkers = new ArrayList<>(markers.size());
+
+        if (markers.isEmpty()) return trajectoryMarkers;
+
+        int segmentCount = sequenceSegments.size();
+        double totalDisplacement = startDisplacements[segmentCount];
+
+        markers.sort(Comparator.comparingDouble(marker -> marker.displacement));
+
+        int segmentIndex = firstTrajectorySegment(sequenceSegments, 0);
+        ProfileCursor cursor = segmentIndex < segmentCount
+                ? new ProfileCursor(((TrajectorySegment) sequenceSegments.get(segmentIndex)).getTrajectory().getProfile())
+                : null;
+
+        for (ResolvedDisplacement marker : markers) {
+            double s = marker.displacement;
+
+            // past the end of the last path, matches Road Runner's behaviour of falling back to zero
+            if (cursor == null || s >= totalDisplacement) {
+                trajectoryMarkers.add(new TrajectoryMarker(0.0, marker.callback));
+                continue;
+            }
+
+            // advance to the path that contains this displacement
+            while (startDisplacements[segmentIndex + 1] <= s) {
+                segmentIndex = firstTrajectorySegment(sequenceSegments, segmentIndex + 1);
+                cursor = new ProfileCursor(((TrajectorySegment) sequenceSegments.get(segmentIndex)).getTrajectory().getProfile());
+            }
+
+            double time = startTimes[segmentIndex] + cursor.displacementToTime(s - startDisplacements[segmentIndex]);
+            trajectoryMarkers.add(new TrajectoryMarker(time, marker.callback));
         }
 
         return trajectoryMarkers;
     }
 
-    private List<SequenceSegment> projectGlobalMarkersToLocalSegments(List<TrajectoryMarker> markers, List<SequenceSegment> sequenceSegments) {
-        if (sequenceSegments.isEmpty()) return Collections.emptyList();
+    private static int firstTrajectorySegment(List<SequenceSegment> sequenceSegments, int from) {
+        int i = from;
+        while (i < sequenceSegments.size() && !(sequenceSegments.get(i) instanceof TrajectorySegment)) {
+            i++;
+        }
+        return i;
+    }
 
-        markers.sort(Comparator.comparingDouble(TrajectoryMarker::getTime));
+    private static Path[] pathsOf(List<SequenceSegment> sequenceSegments) {
+        Path[] paths = new Path[sequenceSegments.size()];
 
-        int segmentIndex = 0;
-        double currentTime = 0;
+        for (int i = 0; i < paths.length; i++) {
+            SequenceSegment segment = sequenceSegments.get(i);
 
-        for (TrajectoryMarker marker : markers) {
-            SequenceSegment segment = null;
+            if (segment instanceof TrajectorySegment) {
+                paths[i] = ((TrajectorySegment) segment).getTrajectory().getPath();
+            }
+        }
 
-            double markerTime = marker.getTime();
-            double segmentOffsetTime = 0;
+        return paths;
+    }
 
-            while (segmentIndex < sequenceSegments.size()) {
-                SequenceSegment seg = sequenceSegments.get(segmentIndex);
+    private static PathProjectionIndex[] indicesOf(Path[] paths) {
+        PathProjectionIndex[] indices = new PathProjectionIndex[paths.length];
 
-                if (currentTime + seg.getDuration() >= markerTime) {
-                    segment = seg;
-                    segmentOffsetTime = markerTime - currentTime;
-                    break;
-                } else {
-                    currentTime += seg.getDuration();
-                    segmentIndex++;
+        for (int i = 0; i < paths.length; i++) {
+            if (paths[i] != null) indices[i] = new PathProjectionIndex(paths[i]);
+        }
+
+        return indices;
+    }
+
+    private double pointToDisplacement(PathProjectionIndex[] indices, double[] startDisplacements, Vector2d point) {
+        double closestDistance = Double.POSITIVE_INFINITY;
+        double closestDisplacement = 0.0;
+
+        for (int i = 0; i < indices.length; i++) {
+            PathProjectionIndex index = indices[i];
+
+            if (index != null) {
+                double displacement = index.project(point);
+                double distanceToPoint = point.minus(index.getPath().get(displacement).vec()).norm();
+
+                if (distanceToPoint < closestDistance) {
+                    closestDistance = distanceToPoint;
+                    closestDisplacement = startDisplacements[i] + displacement;
                 }
             }
-            if (segmentIndex >= sequenceSegments.size()) {
-                segment = sequenceSegments.get(sequenceSegments.size()-1);
-                segmentOffsetTime = segment.getDuration();
-            }
+        }
+
+        return closestDisplacement;
+    }
+
+    private List<SequenceSegment> distributeMarkers(
+            List<SequenceSegment> sequenceSegments,
+            double[] startTimes,
+            List<TrajectoryMarker> markers
+    ) {
+        if (markers.isEmpty()) return sequenceSegments;
 
-            SequenceSegment newSegment = null;
+        markers.sort(Comparator.comparingDouble(TrajectoryMarker::getTime));
 
-            if (segment instanceof WaitSegment) {
-                WaitSegment thisSegment = (WaitSegment) segment;
-                
-                List<TrajectoryMarker> newMarkers = new ArrayList<>(thisSegment.getMarkers());
-                newMarkers.add(new TrajectoryMarker(segmentOffsetTime, marker.getCallback()));
+        int segmentCount = sequenceSegments.size();
+        int segmentIndex = 0;
+        int markerIndex = 0;
 
-                newSegment = new WaitSegment(thisSegment.getStartPose(), thisSegment.getDuration(), newMarkers);
-            } else if (segment instanceof TurnSegment) {
-                TurnSegment thisSegment = (TurnSegment) segment;
-                
-                List<TrajectoryMarker> newMarkers = new ArrayList<>(thisSegment.getMarkers());
-                newMarkers.add(new TrajectoryMarker(segmentOffsetTime, marker.getCallback()));
+        while (markerIndex < markers.size()) {
+            double markerTime = markers.get(markerIndex).getTime();
 
-                newSegment = new TurnSegment(thisSegment.getStartPose(), thisSegment.getTotalRotation(), thisSegment.getMotionProfile(), newMarkers);
-            } else if (segment instanceof TrajectorySegment) {
-                TrajectorySegment thisSegment = (TrajectorySegment) segment;
+            // a marker on a boundary belongs to the segment that ends there
+            while (segmentIndex < segmentCount - 1 && startTimes[segmentIndex + 1] < markerTime) {
+                segmentIndex++;
+            }
 
-                List<TrajectoryMarker> newMarkers = new ArrayList<>(thisSegment.getTrajectory().getMarkers());
-                newMarkers.add(new TrajectoryMarker(segmentOffsetTime, marker.getCallback()));
+            boolean lastSegment = segmentIndex == segmentCount - 1;
+            int first = markerIndex;
 
-                newSegment = new TrajectorySegment(new Trajectory(thisSegment.getTrajectory().getPath(), thisSegment.getTrajectory().getProfile(), newMarkers));
+            while (markerIndex < markers.size()
+                    && (lastSegment || markers.get(markerIndex).getTime() <= startTimes[segmentIndex + 1])) {
+                markerIndex++;
             }
 
-            sequenceSegments.set(segmentIndex, newSegment);
+            sequenceSegments.set(segmentIndex, attachMarkers(
+                    sequenceSegments.get(segmentIndex), startTimes[segmentIndex], markers.subList(first, markerIndex)
+            ));
         }
 
         return sequenceSegments;
     }
 
-    // Taken from Road Runner's TrajectoryGenerator.displacementToTime() since it's private
-    // note: this assumes that the profile position is monotonic increasing
-    private Double motionProfileDisplacementToTime(MotionProfile profile, double s) {
-        double tLo = 0.0;
-        double tHi = profile.duration();
-        while (!(Math.abs(tLo - tHi) < 1e-6)) {
-            double tMid = 0.5 * (tLo + tHi);
-            if (profile.get(tMid).getX() > s) {
-                tHi = tMid;
-            } else {
-                tLo = tMid;
+    /**
+     * Adds markers given in sequence time to a segment starting at {@code startTime}.
+     */
+    private static SequenceSegment attachMarkers(SequenceSegment segment, double startTime, List<TrajectoryMarker> markers) {
+        List<TrajectoryMarker> newMarkers = new ArrayList<>(segment instanceof TrajectorySegment
+                ? ((TrajectorySegment) segment).getTrajectory().getMarkers()
+                : segment.getMarkers());
+
+        for (TrajectoryMarker marker : markers) {
+            double offset = Math.min(marker.getTime() - startTime, segment.getDuration());
+            newMarkers.add(new TrajectoryMarker(offset, marker.getCallback()));
+        }
+
+        return withMarkers(segment, newMarkers);
+    }
+
+    /**
+     * Copy of {@code segment} with its markers replaced by {@code markers}, given in segment time.
+     */
+    static SequenceSegment withMarkers(SequenceSegment segment, List<TrajectoryMarker> markers) {
+        if (segment instanceof TurnSegment) {
+            TurnSegment thisSegment = (TurnSegment) segment;
+
+            return new TurnSegment(thisSegment.getStartPose(), thisSegment.getTotalRotation(), thisSegment.getMotionProfile(), markers);
+        } else if (segment instanceof TrajectorySegment) {
+            return ((TrajectorySegment) segment).withMarkers(markers);
+        }
+
+        return new WaitSegment(segment.getStartPose(), segment.getDuration(), markers);
+    }
+
+    private static class ResolvedDisplacement {
+        private final double displacement;
+        private final MarkerCallback callback;
+
+        ResolvedDisplacement(double displacement, MarkerCallback callback) {
+            this.displacement = displacement;
+            this.callback = callback;
+        }
+
+        ResolvedDisplacement shift(double offset) {
+            return new ResolvedDisplacement(displacement + offset, callback);
+        }
+    }
+
+    /**
+     * Walks a motion profile's segments forward for increasing displacements, bisecting only
+     * inside the single segment that contains each target.
+     * note: this assumes that the profile position is monotonic increasing
+     */
+    private static class ProfileCursor {
+        private final List<MotionSegment> segments;
+
+        private int index;
+        private double segmentStartTime;
+
+        ProfileCursor(MotionProfile profile) {
+            segments = profile.getSegments();
+        }
+
+        double displacementToTime(double s) {
+            while (index < segments.size() - 1 && segments.get(index).end().getX() <= s) {
+                segmentStartTime += segments.get(index).getDt();
+                index++;
+            }
+
+            MotionSegment segment = segments.get(index);
+
+            double tLo = 0.0;
+            double tHi = segment.getDt();
+            while (!(Math.abs(tLo - tHi) < 1e-6)) {
+                double tMid = 0.5 * (tLo + tHi);
+                if (segment.get(tMid).getX() > s) {
+                    tHi = tMid;
+                } else {
+                    tLo = tMid;
+                }
             }
+            return segmentStartTime + 0.5 * (tLo + tHi);
         }
-        return 0.5 * (tLo + tHi);
     }
 
-    private Double displacementToTime(List<SequenceSegment> sequenceSegments, double s) {
-        double currentTime = 0.0;
-        double currentDisplacement = 0.0;
+    /**
+     * Generates the segments one at a time in order, resolving each marker as soon as the segments
+     * it depends on exist and handing every segment out together with its markers.
+     */
+    private class LazyGenerator implements Runnable {
+        private final LazyTrajectorySequence target;
 
-        for (SequenceSegment segment : sequenceSegments) {
-            if (segment instanceof TrajectorySegment) {
-                TrajectorySegment thisSegment = (TrajectorySegment) segment;
+        private final int segmentCount = sequenceSegments.size();
+        private final PendingPath[] pending = new PendingPath[segmentCount];
+        private final double[] startTimes = new double[segmentCount + 1];
+
+        // markers by the segment whose generation resolves their time
+        private final List<List<AnchoredMarker>> anchoredBySegment = new ArrayList<>();
+        private final List<List<ResolvedDisplacement>> displacementsBySegment = new ArrayList<>();
+
+        private final PriorityQueue<TrajectoryMarker> resolved =
+                new PriorityQueue<>(Comparator.comparingDouble(TrajectoryMarker::getTime));
+
+        LazyGenerator() {
+            Path[] paths = pathsOf(sequenceSegments);
+            for (PendingPath path : pendingPaths) {
+                pending[path.segmentIndex] = path;
+                paths[path.segmentIndex] = path.path;
+            }
+
+            double[] startDisplacements = new double[segmentCount + 1];
+            for (int i = 0; i < segmentCount; i++) {
+                startDisplacements[i + 1] = startDisplacements[i] + (paths[i] == null ? 0.0 : paths[i].length());
 
-                double segmentLength = thisSegment.getTrajectory().getPath().length();
+                anchoredBySegment.add(new ArrayList<>());
+                displacementsBySegment.add(new ArrayList<>());
+            }
+
+            for (AnchoredMarker marker : anchoredMarkers) {
+                anchoredBySegment.get(Math.min(marker.resolvedAfter(), segmentCount - 1)).add(marker);
+            }
 
-                if (currentDisplacement + segmentLength > s) {
-                    double target = s - currentDisplacement;
-                    double timeInSegment = motionProfileDisplacementToTime(
-                            thisSegment.getTrajectory().getProfile(),
-                            target
-                    );
+            List<ResolvedDisplacement> markersByDisplacement = new ArrayList<>();
+            for (DisplacementMarker marker : displacementMarkers) {
+                markersByDisplacement.add(new ResolvedDisplacement(
+                        marker.getProducer().produce(currentDisplacement),
+                        marker.getCallback()
+                ));
+            }
+            PathProjectionIndex[] indices = spatialMarkers.isEmpty() ? null : indicesOf(paths);
+            for (SpatialMarker marker : spatialMarkers) {
+                markersByDisplacement.add(new ResolvedDisplacement(
+                        pointToDisplacement(indices, startDisplacements, marker.getPoint()),
+                        marker.getCallback()
+                ));
+            }
 
-                    return currentTime + timeInSegment;
+            for (ResolvedDisplacement marker : markersByDisplacement) {
+                int index = displacementSegment(paths, startDisplacements, marker.displacement);
+
+                if (index < 0) {
+                    // past the end of the last path, same fallback to zero as build()
+                    anchoredBySegment.get(0).add(new AnchoredMarker(null, 0, 0.0, marker.callback));
                 } else {
-                    currentDisplacement += segmentLength;
-                    currentTime += thisSegment.getTrajectory().duration();
+                    displacementsBySegment.get(index).add(marker.shift(-startDisplacements[index]));
                 }
-            } else {
-                currentTime += segment.getDuration();
             }
+
+            for (List<ResolvedDisplacement> markers : displacementsBySegment) {
+                markers.sort(Comparator.comparingDouble(marker -> marker.displacement));
+            }
+
+            target = new LazyTrajectorySequence(segmentCount, paths);
         }
 
-        return 0.0;
-    }
+        @Override
+        public void run() {
+            try {
+                for (int i = 1; i < segmentCount; i++) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new RuntimeException("Interrupted while building trajectory sequence");
+                    }
 
-    private Double pointToTime(List<SequenceSegment> sequenceSegments, Vector2d point) {
-        class ComparingPoints {
-            private final double distanceToPoint;
-            private final double totalDisplacement;
-            private final double thisPathDisplacement;
+                    publish(i);
+                }
 
-            public ComparingPoints(double distanceToPoint, double totalDisplacement, double thisPathDisplacement) {
-                this.distanceToPoint = distanceToPoint;
-                this.totalDisplacement = totalDisplacement;
-                this.thisPathDisplacement = thisPathDisplacement;
+                target.finish();
+            } catch (RuntimeException e) {
+                target.fail(e);
             }
         }
 
-        List<ComparingPoints> projectedPoints = new ArrayList<>();
+        void publish(int i) {
+            SequenceSegment segment = sequenceSegments.get(i);
 
-        for (SequenceSegment segment : sequenceSegments) {
-            if (segment instanceof TrajectorySegment) {
-                TrajectorySegment thisSegment = (TrajectorySegment) segment;
+            if (segment == null) {
+                pending[i].generate();
+                segment = new TrajectorySegment(pending[i].trajectory);
+            }
 
-                double displacement = thisSegment.getTrajectory().getPath().project(point, 0.25);
-                Vector2d projectedPoint = thisSegment.getTrajectory().getPath().get(displacement).vec();
-                double distanceToPoint = point.minus(projectedPoint).norm();
+            startTimes[i + 1] = startTimes[i] + segment.getDuration();
 
-                double totalDisplacement = 0.0;
+            for (AnchoredMarker marker : anchoredBySegment.get(i)) {
+                resolved.add(new TrajectoryMarker(marker.time(startTimes), marker.callback));
+            }
+
+            List<ResolvedDisplacement> displacements = displacementsBySegment.get(i);
+            if (!displacements.isEmpty()) {
+                ProfileCursor cursor = new ProfileCursor(((TrajectorySegment) segment).getTrajectory().getProfile());
 
-                for (ComparingPoints comparingPoint : projectedPoints) {
-                    totalDisplacement += comparingPoint.totalDisplacement;
+                for (ResolvedDisplacement marker : displacements) {
+                    resolved.add(new TrajectoryMarker(startTimes[i] + cursor.displacementToTime(marker.displacement), marker.callback));
                 }
+            }
+
+            boolean lastSegment = i == segmentCount - 1;
+            List<TrajectoryMarker> markers = new ArrayList<>();
 
-                totalDisplacement += displacement;
+            while (!resolved.isEmpty() && (lastSegment || resolved.peek().getTime() <= startTimes[i + 1])) {
+                markers.add(resolved.poll());
+            }
+
+            if (!markers.isEmpty()) {
+                segment = attachMarkers(segment, startTimes[i], markers);
+            }
 
-                projectedPoints.add(new ComparingPoints(distanceToPoint, displacement, totalDisplacement));
+            if (bakeDt > 0 && segment instanceof TrajectorySegment && !((TrajectorySegment) segment).isBaked()) {
+                segment = ((TrajectorySegment) segment).baked(bakeDt);
             }
+
+            target.publish(i, segment);
         }
+    }
 
-        ComparingPoints closestPoint = null;
+    /**
+     * Index of the path segment containing the given displacement along the sequence, or -1 if it
+     * is past the end of the last path. Displacements before the start belong to the first path.
+     */
+    private static int displacementSegment(Path[] paths, double[] startDisplacements, double s) {
+        int lo = 0;
+        int hi = paths.length;
 
-        for (ComparingPoints comparingPoint : projectedPoints) {
-            if (closestPoint == null) {
-                closestPoint = comparingPoint;
-                continue;
+        // first segment ending after s, which always has a non-zero length
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+
+            if (startDisplacements[mid + 1] > s) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+
+        if (lo == paths.length) return -1;
+
+        while (paths[lo] == null) lo++;
+
+        return lo;
+    }
+
+    /**
+     * A path whose geometry is laid out but whose motion profile has not been generated yet.
+     */
+    private static class PendingPath {
+        private final Pose2d startPose;
+        private final double startTangent;
+        private final TrajectoryVelocityConstraint velConstraint;
+        private final TrajectoryAccelerationConstraint accelConstraint;
+        private double resolution;
+
+        private final List<AddTrajectoryCallback> steps = new ArrayList<>();
+
+        // step counts at which temporal markers were added
+        private final Set<Integer> markerSteps = new TreeSet<>();
+        private final Map<Integer, Double> prefixDurations = new ConcurrentHashMap<>();
+
+        private int segmentIndex;
+        private Path path;
+        private MotionPrimitiveCache.Straight primitive;
+        private Blend blend;
+        private volatile Trajectory trajectory;
+
+        PendingPath(
+                Pose2d startPose,
+                double startTangent,
+                TrajectoryVelocityConstraint velConstraint,
+                TrajectoryAccelerationConstraint accelConstraint,
+                double resolution
+        ) {
+            this.startPose = startPose;
+            this.startTangent = startTangent;
+            this.velConstraint = velConstraint;
+            this.accelConstraint = accelConstraint;
+            this.resolution = resolution;
+        }
+
+        void generate() {
+            generateFull();
+
+            for (int steps : markerSteps) {
+                if (steps < this.steps.size()) generatePrefix(steps);
+            }
+        }
+
+        void generateFull() {
+            if (primitive != null) {
+                MotionProfile profile = MotionPrimitiveCache.straight(primitive, resolution, () -> generate(1).getProfile());
+                trajectory = new Trajectory(path, profile, Collections.emptyList());
+            } else {
+                trajectory = generate(steps.size());
+            }
+        }
+
+        void generatePrefix(int steps) {
+            prefixDurations.put(steps, steps == 0 ? 0.0 : generate(steps).duration());
+        }
+
+        /**
+         * Time into this path at which its first {@code steps} steps are complete, as if the path
+         * ended there. This matches when a marker added at that point was meant to fire.
+         */
+        double durationAfter(int steps) {
+            return steps == this.steps.size() ? trajectory.duration() : prefixDurations.get(steps);
+        }
+
+        /**
+         * Duration of the straight move this path was blended from plus the turns folded into it.
+         */
+        double unblendedDuration() {
+            MotionProfile profile = MotionPrimitiveCache.straight(blend.primitive, resolution, () -> {
+                TrajectoryBuilder builder = new TrajectoryBuilder(startPose, startTangent, velConstraint, accelConstraint, resolution);
+                blend.step.run(builder);
+
+                return builder.build().getProfile();
+            });
+
+            return profile.duration() + blend.turnDuration;
+        }
+
+        private Trajectory generate(int steps) {
+            TrajectoryBuilder builder = new TrajectoryBuilder(startPose, startTangent, velConstraint, accelConstraint, resolution);
+
+            for (int i = 0; i < steps; i++) {
+                this.steps.get(i).run(builder);
             }
 
-            if (comparingPoint.distanceToPoint < closestPoint.distanceToPoint)
-                closestPoint = comparingPoint;
+            return builder.build();
+        }
+    }
+
+    /**
+     * The straight move a path was made from before {@link #blendTurns(boolean)} folded turns
+     * into it.
+     */
+    private static class Blend {
+        private final MotionPrimitiveCache.Straight primitive;
+        private final AddTrajectoryCallback step;
+
+        private double rotation;
+        private double turnDuration;
+
+        Blend(MotionPrimitiveCache.Straight primitive, AddTrajectoryCallback step) {
+            this.primitive = primitive;
+            this.step = step;
+        }
+    }
+
+    private static class AnchoredMarker {
+        private final PendingPath path;
+        private final int segmentIndex;
+        private final int steps;
+        private final double offset;
+        private final MarkerCallback callback;
+
+        AnchoredMarker(PendingPath path, int position, double offset, MarkerCallback callback) {
+            this.path = path;
+            this.segmentIndex = path == null ? position : -1;
+            this.steps = path == null ? 0 : position;
+            this.offset = offset;
+            this.callback = callback;
         }
 
-        return displacementToTime(sequenceSegments, closestPoint.thisPathDisplacement);
+        double time(double[] startTimes) {
+            double anchor = path == null
+                    ? startTimes[segmentIndex]
+                    : startTimes[path.segmentIndex] + path.durationAfter(steps);
+
+            return anchor + offset;
+        }
+
+        /**
+         * Index of the segment after whose generation this marker's time is known.
+         */
+        int resolvedAfter() {
+            return path == null ? Math.max(segmentIndex - 1, 0) : path.segmentIndex;
+        }
     }
 
     private interface AddPathCallback {
-        void run();
+        void run(PathBuilder builder);
+    }
+
+    private interface AddTrajectoryCallback {
+        void run(TrajectoryBuilder builder);
     }
 }
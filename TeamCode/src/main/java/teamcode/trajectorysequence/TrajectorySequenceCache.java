@@ -0,0 +1,182 @@
+package teamcode.trajectorysequence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * Builds every branch of an autonomous route ahead of time so that nothing has to be generated
+ * on the match clock. Routes are registered during init, keyed by detection result and route step,
+ * and built on a background thread; once the detection is known the opmode simply picks the
+ * prebuilt sequence.
+ */
+public class TrajectorySequenceCache<K> {
+    private final Map<Key<K>, Entry> entries = new HashMap<>();
+    private final List<Entry> buildOrder = new ArrayList<>();
+
+    private Thread builderThread;
+
+    /**
+     * Registers the builder for one step of one detection branch. Must be called before
+     * {@link #buildAsync()}.
+     */
+    public TrajectorySequenceCache<K> put(K detection, int step, Supplier<TrajectorySequence> builder) {
+        if (builderThread != null) {
+            throw new IllegalStateException("Cannot register routes after the build has started");
+        }
+
+        Key<K> key = new Key<>(detection, step);
+        Entry entry = new Entry(key, builder);
+
+        if (entries.put(key, entry) != null) {
+            throw new IllegalArgumentException("Route already registered for " + key);
+        }
+        buildOrder.add(entry);
+
+        return this;
+    }
+
+    /**
+     * Starts building every registered route on a background thread, in registration order.
+     */
+    public void buildAsync() {
+        if (builderThread != null) return;
+
+        builderThread = new Thread(() -> {
+            for (Entry entry : buildOrder) {
+                if (Thread.currentThread().isInterrupted()) break;
+
+                entry.task.run();
+            }
+        }, "TrajectorySequenceCache");
+        builderThread.setDaemon(true);
+        builderThread.start();
+    }
+
+    /**
+     * Returns the prebuilt sequence, waiting for it only if the background build has not reached
+     * it yet. If the build was never started, the route is built on the calling thread.
+     */
+    public TrajectorySequence get(K detection, int step) {
+        Entry entry = entries.get(new Key<>(detection, step));
+
+        if (entry == null) {
+            throw new IllegalArgumentException("No route registered for " + new Key<>(detection, step));
+        }
+
+        if (builderThread == null || !builderThread.isAlive()) {
+            entry.task.run();
+        }
+
+        try {
+            return entry.task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for " + entry.key, e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to build " + entry.key, e.getCause());
+        }
+    }
+
+    public boolean isDone() {
+        for (Entry entry : buildOrder) {
+            if (!entry.task.isDone()) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Wall-clock build time of a single branch in milliseconds, or NaN if it has not been built yet.
+     */
+    public double getBuildTimeMs(K detection, int step) {
+        Entry entry = entries.get(new Key<>(detection, step));
+
+        return entry == null ? Double.NaN : entry.buildTimeMs;
+    }
+
+    public double getTotalBuildTimeMs() {
+        double total = 0.0;
+
+        for (Entry entry : buildOrder) {
+            if (!Double.isNaN(entry.buildTimeMs)) total += entry.buildTimeMs;
+        }
+
+        return total;
+    }
+
+    /**
+     * One line per registered branch with its build time, suitable for init telemetry.
+     */
+    public List<String> getBuildReport() {
+        List<String> lines = new ArrayList<>();
+
+        for (Entry entry : buildOrder) {
+            lines.add(entry.task.isDone()
+                    ? String.format(Locale.US, "%s: %.1f ms", entry.key, entry.buildTimeMs)
+                    : entry.key + ": pending");
+        }
+
+        lines.add(String.format(Locale.US, "primitive profiles: %d reused, %d generated",
+                MotionPrimitiveCache.getHitCount(), MotionPrimitiveCache.getMissCount()));
+
+        return lines;
+    }
+
+    public void cancel() {
+        if (builderThread != null) builderThread.interrupt();
+    }
+
+    private static final class Key<K> {
+        private final K detection;
+        private final int step;
+
+        private Key(K detection, int step) {
+            this.detection = detection;
+            this.step = step;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key<?> other = (Key<?>) o;
+            return step == other.step && Objects.equals(detection, other.detection);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(detection, step);
+        }
+
+        @Override
+        public String toString() {
+            return detection + "/" + step;
+        }
+    }
+
+    private static final class Entry {
+        private final Key<?> key;
+        private final FutureTask<TrajectorySequence> task;
+
+        private volatile double buildTimeMs = Double.NaN;
+
+        private Entry(Key<?> key, Supplier<TrajectorySequence> builder) {
+            this.key = key;
+            this.task = new FutureTask<>(() -> {
+                long start = System.nanoTime();
+                TrajectorySequence sequence = builder.get();
+                buildTimeMs = (System.nanoTime() - start) / 1e6;
+
+                return sequence;
+            });
+        }
+    }
+}
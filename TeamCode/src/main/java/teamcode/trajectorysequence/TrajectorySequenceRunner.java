@@ -7,28 +7,37 @@ import com.acmerobotics.dashboard.canvas.Canvas;
 import com.acmerobotics.dashboard.config.Config;
 import com.acmerobotics.dashboard.telemetry.TelemetryPacket;
 import com.acmerobotics.roadrunner.control.PIDCoefficients;
-import com.acmerobotics.roadrunner.control.PIDFController;
 import com.acmerobotics.roadrunner.drive.DriveSignal;
 import com.acmerobotics.roadrunner.followers.TrajectoryFollower;
 import com.acmerobotics.roadrunner.geometry.Pose2d;
-import com.acmerobotics.roadrunner.profile.MotionState;
+import com.acmerobotics.roadrunner.path.Path;
 import com.acmerobotics.roadrunner.trajectory.Trajectory;
 import com.acmerobotics.roadrunner.trajectory.TrajectoryMarker;
+import com.acmerobotics.roadrunner.util.Angle;
 import com.acmerobotics.roadrunner.util.NanoClock;
 import com.qualcomm.robotcore.hardware.VoltageSensor;
 
 import teamcode.drive.DriveConstants;
+import teamcode.trajectorysequence.sequencesegment.PathProjectionIndex;
 import teamcode.trajectorysequence.sequencesegment.SequenceSegment;
 import teamcode.trajectorysequence.sequencesegment.TrajectorySegment;
 import teamcode.trajectorysequence.sequencesegment.TurnSegment;
 import teamcode.trajectorysequence.sequencesegment.WaitSegment;
 import teamcode.util.DashboardUtil;
 import teamcode.util.LogFiles;
+import teamcode.util.MutableDriveSignal;
+import teamcode.util.MutablePose2d;
+import teamcode.util.PoseHistory;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 @Config
 public class TrajectorySequenceRunner {
@@ -42,35 +51,111 @@ public class TrajectorySequenceRunner {
 
     public static int POSE_HISTORY_LIMIT = 100;
 
+    // rate at which telemetry and the field overlay are sent to the dashboard; 0 sends every update
+    public static double DASHBOARD_UPDATE_HZ = 10;
+
+    // re-plan from the pose estimate when the robot is this far off the path, this far behind its
+    // target along the path (e.g. blocked), or its heading is this far off; 0 disables a limit
+    public static double REPLAN_TRANSLATIONAL_ERROR = 0; // in
+    public static double REPLAN_ALONG_TRACK_ERROR = 0; // in
+    public static double REPLAN_HEADING_ERROR_DEG = 0;
+    // how long the error has to stay above a limit before re-planning, so noise does not trigger it
+    public static double REPLAN_DETECTION_TIME = 0.1;
+    // a correction is built from the pose at detection and starts from rest; it is only swapped in
+    // if the robot is still this close to its start and this slow, otherwise it is built again
+    public static double REPLAN_SWAP_TOLERANCE = 1.0; // in
+    public static double REPLAN_SWAP_HEADING_TOLERANCE_DEG = 5;
+    public static double REPLAN_SWAP_MAX_SPEED = 5.0; // in/s
+
+    // below this distance a correction only turns to the target heading
+    private static final double REPLAN_MIN_DISTANCE = 0.5;
+
+    // shared by all runners so an opmode does not leave a thread behind
+    private static final ExecutorService REPLAN_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TrajectoryReplanner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final TrajectoryFollower follower;
+    // the same follower when it can update without allocating
+    private final @Nullable BakedHolonomicPIDVAFollower bakedFollower;
 
-    private final PIDFController turnController;
+    private final PIDController turnController;
 
     private final NanoClock clock;
 
     private TrajectorySequence currentTrajectorySequence;
+    // set instead while later segments of the sequence are still being generated
+    private LazyTrajectorySequence currentLazySequence;
     private double currentSegmentStartTime;
+    // time into the current segment at the last update
+    private double lastSegmentTime;
     private int currentSegmentIndex;
     private int lastSegmentIndex;
 
-    private Pose2d lastPoseError = new Pose2d();
+    // updated in place every loop; see getLastPoseError()
+    private final MutablePose2d lastPoseError = new MutablePose2d();
+    private final MutablePose2d targetPose = new MutablePose2d();
+    // for update(Pose2d, Pose2d), which hands out an immutable copy
+    private final MutableDriveSignal driveSignal = new MutableDriveSignal();
+    // signed distance from the path of the current trajectory segment, positive to its left
+    private double lastCrossTrackError;
+    // how far the robot is behind its target along that path, negative when ahead
+    private double lastAlongTrackError;
 
-    List<TrajectoryMarker> remainingMarkers = new ArrayList<>();
+    // markers of the current segment (already sorted by time) and the next one to fire
+    private List<TrajectoryMarker> currentMarkers = Collections.emptyList();
+    private int nextMarkerIndex;
 
     private final FtcDashboard dashboard;
-    private final LinkedList<Pose2d> poseHistory = new LinkedList<>();
+    private final PoseHistory poseHistory = new PoseHistory(POSE_HISTORY_LIMIT);
+
+    // sampled once per sequence; entries are null for segments that are not trajectories
+    private double[][] pathXPoints = new double[0][];
+    private double[][] pathYPoints = new double[0][];
+
+    private double lastDashboardUpdateTime = Double.NEGATIVE_INFINITY;
+
+    // where following stopped when interrupt() was called, so it can be resumed later
+    private TrajectorySequence interruptedSequence;
+    private LazyTrajectorySequence interruptedLazySequence;
+    private double interruptedTime;
+
+    // how often, and for how long in total, following had to wait for a lazy segment
+    private int stallCount;
+    private double stallTime;
+
+    // creates builders for corrective sequences; re-planning is off while this is null
+    private Function<Pose2d, TrajectorySequenceBuilder> replanBuilder;
+
+    // correction being generated for the given sequence and segment
+    private CompletableFuture<TrajectorySequence> pendingReplan;
+    private TrajectorySequence replanSource;
+    private int replanSegmentIndex;
+    private double replanStartTime;
+
+    private double errorExceededTime = Double.NaN;
+
+    private int replanCount;
+    private int replanFailureCount;
+    private int replanDiscardCount;
+    private double lastReplanDetectionLatency = Double.NaN;
+    private double lastReplanLatency = Double.NaN;
+    private double maxReplanLatency = Double.NaN;
 
     private VoltageSensor voltageSensor;
 
-    private List<Integer> lastDriveEncPositions, lastDriveEncVels, lastTrackingEncPositions, lastTrackingEncVels;
+    private int[] lastDriveEncPositions, lastDriveEncVels, lastTrackingEncPositions, lastTrackingEncVels;
 
     public TrajectorySequenceRunner(
             TrajectoryFollower follower, PIDCoefficients headingPIDCoefficients, VoltageSensor voltageSensor,
-            List<Integer> lastDriveEncPositions, List<Integer> lastDriveEncVels, List<Integer> lastTrackingEncPositions, List<Integer> lastTrackingEncVels
+            int[] lastDriveEncPositions, int[] lastDriveEncVels, int[] lastTrackingEncPositions, int[] lastTrackingEncVels
     ) {
         this.follower = follower;
+        bakedFollower = follower instanceof BakedHolonomicPIDVAFollower ? (BakedHolonomicPIDVAFollower) follower : null;
 
-        turnController = new PIDFController(headingPIDCoefficients);
+        turnController = new PIDController(headingPIDCoefficients);
         turnController.setInputBounds(0, 2 * Math.PI);
 
         this.voltageSensor = voltageSensor;
@@ -82,159 +167,598 @@ public class TrajectorySequenceRunner {
 
         clock = NanoClock.system();
 
+        // null when the dashboard is not running, e.g. in host tests
         dashboard = FtcDashboard.getInstance();
-        dashboard.setTelemetryTransmissionInterval(25);
+        if (dashboard != null) dashboard.setTelemetryTransmissionInterval(25);
     }
 
     public void followTrajectorySequenceAsync(TrajectorySequence trajectorySequence) {
+        cancelReplan();
+
         currentTrajectorySequence = trajectorySequence;
+        currentLazySequence = null;
+        currentSegmentStartTime = clock.seconds();
+        currentSegmentIndex = 0;
+        lastSegmentIndex = -1;
+
+        cachePaths(trajectorySequence);
+        buildProjectionIndices(trajectorySequence);
+    }
+
+    /**
+     * Starts following a sequence that may still be generating. Following only waits if it reaches
+     * a segment that is not ready yet; see {@link #getStallCount()}.
+     */
+    public void followTrajectorySequenceAsync(LazyTrajectorySequence lazySequence) {
+        if (lazySequence.isDone()) {
+            followTrajectorySequenceAsync(lazySequence.getSequence());
+            return;
+        }
+
+        cancelReplan();
+
+        currentTrajectorySequence = null;
+        currentLazySequence = lazySequence;
         currentSegmentStartTime = clock.seconds();
         currentSegmentIndex = 0;
         lastSegmentIndex = -1;
+
+        cachePaths(lazySequence);
+    }
+
+    /**
+     * Starts following the given sequence as if the given amount of time had already elapsed.
+     */
+    public void followTrajectorySequenceAsync(TrajectorySequence trajectorySequence, double startTime) {
+        followTrajectorySequenceAsync(trajectorySequence.seek(startTime));
+    }
+
+    /**
+     * Time elapsed along the current sequence, or NaN if nothing is being followed.
+     */
+    public double getSequenceTime() {
+        if (!isBusy()) return Double.NaN;
+
+        int index = Math.min(currentSegmentIndex, segmentCount());
+        double segmentStartTime = currentLazySequence != null
+                ? currentLazySequence.getSegmentStartTime(index)
+                : currentTrajectorySequence.getSegmentStartTime(index);
+
+        if (index != lastSegmentIndex) {
+            // the next segment has not been started yet
+            return segmentStartTime;
+        }
+
+        return segmentStartTime + clock.seconds() - currentSegmentStartTime;
+    }
+
+    /**
+     * Stops following the current sequence (e.g. on an e-stop or a collision) and remembers where
+     * it stopped so that {@link #resume(Pose2d)} can continue from the same point.
+     * Markers that have not been reached yet do not fire.
+     */
+    public void interrupt() {
+        if (!isBusy()) return;
+
+        interruptedSequence = currentTrajectorySequence;
+        interruptedLazySequence = currentLazySequence;
+        interruptedTime = getSequenceTime();
+
+        cancelReplan();
+
+        currentTrajectorySequence = null;
+        currentLazySequence = null;
+        currentMarkers = Collections.emptyList();
+        nextMarkerIndex = 0;
+    }
+
+    /**
+     * Continues the sequence stopped by {@link #interrupt()} from {@code poseEstimate}, starting
+     * the interrupted segment again from rest (see {@link TrajectorySequence#resume}). Returns
+     * false if there is nothing to resume. A lazy sequence is waited on until it is completely
+     * generated.
+     */
+    public boolean resume(Pose2d poseEstimate) {
+        TrajectorySequence sequence = interruptedLazySequence != null
+                ? interruptedLazySequence.getSequence()
+                : interruptedSequence;
+
+        if (sequence == null) return false;
+
+        followTrajectorySequenceAsync(sequence.resume(interruptedTime, poseEstimate));
+        interruptedSequence = null;
+        interruptedLazySequence = null;
+
+        return true;
+    }
+
+    public int getStallCount() {
+        return stallCount;
+    }
+
+    /**
+     * Total seconds spent waiting for lazy segments to be generated.
+     */
+    public double getStallTime() {
+        return stallTime;
+    }
+
+    /**
+     * Enables re-planning: when the following error of a trajectory stays above
+     * REPLAN_TRANSLATIONAL_ERROR, REPLAN_ALONG_TRACK_ERROR or REPLAN_HEADING_ERROR_DEG for
+     * REPLAN_DETECTION_TIME, a corrective sequence from the pose estimate to the end of the current
+     * segment, followed by the rest of the sequence, is built with {@code builder} on a background
+     * thread and swapped in at the start of a later update. Lazy sequences are not re-planned until
+     * they are complete.
+     */
+    public void setReplanBuilder(@Nullable Function<Pose2d, TrajectorySequenceBuilder> builder) {
+        replanBuilder = builder;
+        cancelReplan();
+    }
+
+    public int getReplanCount() {
+        return replanCount;
+    }
+
+    /**
+     * Number of corrections that could not be built, e.g. because the target was out of reach.
+     */
+    public int getReplanFailureCount() {
+        return replanFailureCount;
+    }
+
+    /**
+     * Number of corrections dropped because the robot had moved away from their start, or was
+     * still moving too fast, by the time they were built.
+     */
+    public int getReplanDiscardCount() {
+        return replanDiscardCount;
+    }
+
+    /**
+     * Seconds from the error first exceeding a limit to the last re-plan being started.
+     */
+    public double getLastReplanDetectionLatency() {
+        return lastReplanDetectionLatency;
+    }
+
+    /**
+     * Seconds from the last re-plan being started to the correction being followed.
+     */
+    public double getLastReplanLatency() {
+        return lastReplanLatency;
+    }
+
+    public double getMaxReplanLatency() {
+        return maxReplanLatency;
+    }
+
+    public boolean isReplanning() {
+        return pendingReplan != null;
+    }
+
+    private void cancelReplan() {
+        // a correction that is still being built is simply never swapped in
+        pendingReplan = null;
+        replanSource = null;
+        errorExceededTime = Double.NaN;
+    }
+
+    private void checkFollowingError(Pose2d poseEstimate, double now) {
+        if (replanBuilder == null || pendingReplan != null || currentTrajectorySequence == null) return;
+
+        boolean exceeded = REPLAN_TRANSLATIONAL_ERROR > 0 && Math.abs(lastCrossTrackError) > REPLAN_TRANSLATIONAL_ERROR
+                || REPLAN_ALONG_TRACK_ERROR > 0 && lastAlongTrackError > REPLAN_ALONG_TRACK_ERROR
+                || REPLAN_HEADING_ERROR_DEG > 0 && Math.abs(lastPoseError.getHeading()) > Math.toRadians(REPLAN_HEADING_ERROR_DEG);
+
+        if (!exceeded) {
+            errorExceededTime = Double.NaN;
+            return;
+        }
+
+        if (Double.isNaN(errorExceededTime)) errorExceededTime = now;
+
+        if (now - errorExceededTime < REPLAN_DETECTION_TIME) return;
+
+        lastReplanDetectionLatency = now - errorExceededTime;
+        errorExceededTime = Double.NaN;
+
+        Function<Pose2d, TrajectorySequenceBuilder> builder = replanBuilder;
+        TrajectorySequence source = currentTrajectorySequence;
+        int index = currentSegmentIndex;
+
+        replanSource = source;
+        replanSegmentIndex = index;
+        replanStartTime = now;
+        pendingReplan = CompletableFuture.supplyAsync(
+                () -> replan(builder, poseEstimate, source, index), REPLAN_EXECUTOR);
+    }
+
+    private static @Nullable TrajectorySequence replan(
+            Function<Pose2d, TrajectorySequenceBuilder> builderFactory, Pose2d startPose,
+            TrajectorySequence source, int index
+    ) {
+        Pose2d target = source.get(index).getEndPose();
+        TrajectorySequenceBuilder builder = builderFactory.apply(startPose);
+
+        double turn = Angle.normDelta(target.getHeading() - startPose.getHeading());
+
+        if (target.vec().minus(startPose.vec()).norm() > REPLAN_MIN_DISTANCE) {
+            builder.lineToLinearHeading(target);
+        } else if (Math.abs(turn) > Math.toRadians(1)) {
+            builder.turn(turn);
+        } else {
+            // already there, the current segment will finish on its own
+            return null;
+        }
+
+        TrajectorySequence correction = builder.build();
+        buildProjectionIndices(correction);
+
+        List<SequenceSegment> segments = new ArrayList<>();
+        for (int i = 0; i < correction.size(); i++) {
+            segments.add(correction.get(i));
+        }
+        for (int i = index + 1; i < source.size(); i++) {
+            segments.add(source.get(i));
+        }
+
+        return new TrajectorySequence(segments);
+    }
+
+    private void swapInReplan(Pose2d poseEstimate, @Nullable Pose2d poseVelocity) {
+        CompletableFuture<TrajectorySequence> replan = pendingReplan;
+        TrajectorySequence source = replanSource;
+        cancelReplan();
+
+        // the sequence was replaced or has moved on while the correction was built
+        if (currentTrajectorySequence != source || currentSegmentIndex != replanSegmentIndex) return;
+
+        TrajectorySequence corrected;
+        try {
+            corrected = replan.join();
+        } catch (CompletionException e) {
+            replanFailureCount++;
+            return;
+        }
+
+        if (corrected == null) return;
+
+        double now = clock.seconds();
+
+        // the robot kept moving while the correction was built, which starts from rest at the pose
+        // of the detection; rather than jump, build it again from here if the error persists
+        Pose2d start = corrected.start();
+        boolean stale = start.vec().minus(poseEstimate.vec()).norm() > REPLAN_SWAP_TOLERANCE
+                || Math.abs(Angle.normDelta(start.getHeading() - poseEstimate.getHeading()))
+                > Math.toRadians(REPLAN_SWAP_HEADING_TOLERANCE_DEG)
+                || poseVelocity != null && poseVelocity.vec().norm() > REPLAN_SWAP_MAX_SPEED;
+
+        if (stale) {
+            replanDiscardCount++;
+            errorExceededTime = now - REPLAN_DETECTION_TIME;
+            return;
+        }
+
+        replanCount++;
+        lastReplanLatency = now - replanStartTime;
+        maxReplanLatency = Double.isNaN(maxReplanLatency) ? lastReplanLatency : Math.max(maxReplanLatency, lastReplanLatency);
+
+        // markers of the current segment that have not fired by now move to the start of the
+        // correction, keeping how far ahead they were; they must not fire on the transition
+        List<TrajectoryMarker> carried = remainingMarkers(now - currentSegmentStartTime);
+        currentMarkers = Collections.emptyList();
+        nextMarkerIndex = 0;
+
+        if (!carried.isEmpty()) {
+            List<SequenceSegment> segments = new ArrayList<>();
+            for (int i = 0; i < corrected.size(); i++) {
+                segments.add(corrected.get(i));
+            }
+
+            SequenceSegment first = segments.get(0);
+            carried.addAll(first instanceof TrajectorySegment
+                    ? ((TrajectorySegment) first).getTrajectory().getMarkers()
+                    : first.getMarkers());
+            carried.sort(Comparator.comparingDouble(TrajectoryMarker::getTime));
+            segments.set(0, TrajectorySequenceBuilder.withMarkers(first, carried));
+
+            corrected = new TrajectorySequence(segments);
+        }
+
+        currentTrajectorySequence = corrected;
+        currentSegmentIndex = 0;
+        lastSegmentIndex = -1;
+
+        cachePaths(corrected);
+    }
+
+    private int segmentCount() {
+        return currentLazySequence != null ? currentLazySequence.size() : currentTrajectorySequence.size();
+    }
+
+    private SequenceSegment segment(int i) {
+        if (currentLazySequence == null) return currentTrajectorySequence.get(i);
+
+        if (!currentLazySequence.isReady(i)) {
+            double start = clock.seconds();
+            SequenceSegment segment = currentLazySequence.get(i);
+
+            stallCount++;
+            stallTime += clock.seconds() - start;
+
+            return segment;
+        }
+
+        return currentLazySequence.get(i);
+    }
+
+    /**
+     * Builds the projection index of every trajectory segment up front, so update() never does.
+     */
+    private static void buildProjectionIndices(TrajectorySequence sequence) {
+        for (int i = 0; i < sequence.size(); i++) {
+            SequenceSegment segment = sequence.get(i);
+
+            if (segment instanceof TrajectorySegment) {
+                ((TrajectorySegment) segment).getProjectionIndex();
+            }
+        }
     }
 
+    private void cachePaths(TrajectorySequence sequence) {
+        pathXPoints = new double[sequence.size()][];
+        pathYPoints = new double[sequence.size()][];
+
+        for (int i = 0; i < sequence.size(); i++) {
+            SequenceSegment segment = sequence.get(i);
+
+            if (segment instanceof TrajectorySegment) {
+                cachePath(i, ((TrajectorySegment) segment).getTrajectory().getPath());
+            }
+        }
+    }
+
+    private void cachePaths(LazyTrajectorySequence sequence) {
+        pathXPoints = new double[sequence.size()][];
+        pathYPoints = new double[sequence.size()][];
+
+        for (int i = 0; i < sequence.size(); i++) {
+            Path path = sequence.getPath(i);
+
+            if (path != null) {
+                cachePath(i, path);
+            }
+        }
+    }
+
+    private void cachePath(int i, Path path) {
+        double[][] points = DashboardUtil.samplePath(path);
+        pathXPoints[i] = points[0];
+        pathYPoints[i] = points[1];
+    }
+
+    /**
+     * Same as {@link #update(Pose2d, Pose2d, MutableDriveSignal)}, but returns an immutable copy of
+     * the signal, or null when idle. Allocates every loop.
+     */
     public @Nullable
     DriveSignal update(Pose2d poseEstimate, Pose2d poseVelocity) {
-        Pose2d targetPose = null;
-        DriveSignal driveSignal = null;
+        return update(poseEstimate, poseVelocity, driveSignal) ? driveSignal.toDriveSignal() : null;
+    }
 
-        TelemetryPacket packet = new TelemetryPacket();
-        Canvas fieldOverlay = packet.fieldOverlay();
+    /**
+     * Advances the current sequence and writes the drive command into {@code driveSignal}.
+     * Returns false, leaving the signal untouched, when there is nothing to follow.
+     * <p>
+     * In steady state this does not allocate while following baked trajectories, turns and
+     * waits. Segment transitions, marker callbacks and the dashboard update at
+     * DASHBOARD_UPDATE_HZ still do.
+     */
+    public boolean update(Pose2d poseEstimate, Pose2d poseVelocity, MutableDriveSignal driveSignal) {
+        boolean hasTargetPose = false;
+        boolean hasDriveSignal = false;
 
         SequenceSegment currentSegment = null;
 
-        if (currentTrajectorySequence != null) {
-            if (currentSegmentIndex >= currentTrajectorySequence.size()) {
-                for (TrajectoryMarker marker : remainingMarkers) {
-                    marker.getCallback().onMarkerReached();
-                }
+        if (pendingReplan != null && pendingReplan.isDone()) {
+            swapInReplan(poseEstimate, poseVelocity);
+        }
+
+        if (currentLazySequence != null && currentLazySequence.isDone()) {
+            // every segment has been generated, carry on with the complete sequence
+            currentTrajectorySequence = currentLazySequence.getSequence();
+            currentLazySequence = null;
+        }
 
-                remainingMarkers.clear();
+        if (isBusy()) {
+            if (currentSegmentIndex >= segmentCount()) {
+                fireRemainingMarkers();
 
                 currentTrajectorySequence = null;
+                currentLazySequence = null;
+            }
+
+            if (!isBusy()) {
+                driveSignal.setZero();
+                return true;
             }
 
-            if (currentTrajectorySequence == null)
-                return new DriveSignal();
+            // may wait for a lazy segment, so the clock is read afterwards
+            currentSegment = segment(currentSegmentIndex);
 
             double now = clock.seconds();
             boolean isNewTransition = currentSegmentIndex != lastSegmentIndex;
 
-            currentSegment = currentTrajectorySequence.get(currentSegmentIndex);
-
             if (isNewTransition) {
                 currentSegmentStartTime = now;
                 lastSegmentIndex = currentSegmentIndex;
 
-                for (TrajectoryMarker marker : remainingMarkers) {
-                    marker.getCallback().onMarkerReached();
-                }
-
-                remainingMarkers.clear();
+                fireRemainingMarkers();
 
-                remainingMarkers.addAll(currentSegment.getMarkers());
-                Collections.sort(remainingMarkers, (t1, t2) -> Double.compare(t1.getTime(), t2.getTime()));
+                currentMarkers = currentSegment.getMarkers();
+                nextMarkerIndex = 0;
             }
 
             double deltaTime = now - currentSegmentStartTime;
+            lastSegmentTime = deltaTime;
 
             if (currentSegment instanceof TrajectorySegment) {
-                Trajectory currentTrajectory = ((TrajectorySegment) currentSegment).getTrajectory();
+                TrajectorySegment trajectorySegment = (TrajectorySegment) currentSegment;
+                Trajectory currentTrajectory = trajectorySegment.getTrajectory();
+
+                if (isNewTransition) {
+                    if (bakedFollower != null) {
+                        bakedFollower.followTrajectory(currentTrajectory, trajectorySegment.getLookupTable());
+                    } else {
+                        follower.followTrajectory(currentTrajectory);
+                    }
+                }
 
-                if (isNewTransition)
-                    follower.followTrajectory(currentTrajectory);
+                boolean following;
+                if (bakedFollower != null) {
+                    following = bakedFollower.update(poseEstimate, poseVelocity, driveSignal);
 
-                if (!follower.isFollowing()) {
-                    currentSegmentIndex++;
+                    MutablePose2d error = bakedFollower.getMutableLastError();
+                    lastPoseError.set(error.getX(), error.getY(), error.getHeading());
+                } else {
+                    following = follower.isFollowing();
+
+                    if (following) {
+                        driveSignal.set(follower.update(poseEstimate, poseVelocity));
+                        lastPoseError.set(follower.getLastError());
+                    }
+                }
 
-                    driveSignal = new DriveSignal();
+                if (trajectorySegment.isBaked()) {
+                    trajectorySegment.getLookupTable().get(deltaTime, targetPose);
                 } else {
-                    driveSignal = follower.update(poseEstimate, poseVelocity);
-                    lastPoseError = follower.getLastError();
+                    targetPose.set(currentTrajectory.get(deltaTime));
                 }
+                hasTargetPose = true;
+
+                if (!following) {
+                    currentSegmentIndex++;
+
+                    driveSignal.setZero();
+                } else {
+                    PathProjectionIndex index = trajectorySegment.getProjectionIndex();
+
+                    lastCrossTrackError = index.crossTrackError(poseEstimate.getX(), poseEstimate.getY());
+                    lastAlongTrackError = index.polylineProject(targetPose.getX(), targetPose.getY())
+                            - index.polylineProject(poseEstimate.getX(), poseEstimate.getY());
 
-                targetPose = currentTrajectory.get(deltaTime);
+                    checkFollowingError(poseEstimate, now);
+                }
+                hasDriveSignal = true;
             } else if (currentSegment instanceof TurnSegment) {
-                MotionState targetState = ((TurnSegment) currentSegment).getMotionProfile().get(deltaTime);
+                TurnSegment turnSegment = (TurnSegment) currentSegment;
+                double targetHeading = turnSegment.getHeading(deltaTime);
 
-                turnController.setTargetPosition(targetState.getX());
+                turnController.setTargetPosition(targetHeading);
 
                 double correction = turnController.update(poseEstimate.getHeading());
 
-                double targetOmega = targetState.getV();
-                double targetAlpha = targetState.getA();
+                double targetOmega = turnSegment.getHeadingVelocity(deltaTime);
+                double targetAlpha = turnSegment.getHeadingAcceleration(deltaTime);
 
-                lastPoseError = new Pose2d(0, 0, turnController.getLastError());
+                lastPoseError.set(0, 0, turnController.getLastError());
+                lastCrossTrackError = 0.0;
+                lastAlongTrackError = 0.0;
 
                 Pose2d startPose = currentSegment.getStartPose();
-                targetPose = startPose.copy(startPose.getX(), startPose.getY(), targetState.getX());
+                targetPose.set(startPose.getX(), startPose.getY(), targetHeading);
+                hasTargetPose = true;
 
-                driveSignal = new DriveSignal(
-                        new Pose2d(0, 0, targetOmega + correction),
-                        new Pose2d(0, 0, targetAlpha)
-                );
+                driveSignal.set(0, 0, targetOmega + correction, 0, 0, targetAlpha);
+                hasDriveSignal = true;
 
                 if (deltaTime >= currentSegment.getDuration()) {
                     currentSegmentIndex++;
-                    driveSignal = new DriveSignal();
+                    driveSignal.setZero();
                 }
             } else if (currentSegment instanceof WaitSegment) {
-                lastPoseError = new Pose2d();
+                lastPoseError.set(0, 0, 0);
+                lastCrossTrackError = 0.0;
+                lastAlongTrackError = 0.0;
 
-                targetPose = currentSegment.getStartPose();
-                driveSignal = new DriveSignal();
+                targetPose.set(currentSegment.getStartPose());
+                hasTargetPose = true;
+
+                driveSignal.setZero();
+                hasDriveSignal = true;
 
                 if (deltaTime >= currentSegment.getDuration()) {
                     currentSegmentIndex++;
                 }
             }
 
-            while (remainingMarkers.size() > 0 && deltaTime > remainingMarkers.get(0).getTime()) {
-                remainingMarkers.get(0).getCallback().onMarkerReached();
-                remainingMarkers.remove(0);
+            while (nextMarkerIndex < currentMarkers.size() && deltaTime > currentMarkers.get(nextMarkerIndex).getTime()) {
+                currentMarkers.get(nextMarkerIndex).getCallback().onMarkerReached();
+                nextMarkerIndex++;
             }
         }
 
+        poseHistory.setLimit(POSE_HISTORY_LIMIT);
         poseHistory.add(poseEstimate);
 
-        if (POSE_HISTORY_LIMIT > -1 && poseHistory.size() > POSE_HISTORY_LIMIT) {
-            poseHistory.removeFirst();
-        }
-
         final double NOMINAL_VOLTAGE = 12.0;
         double voltage = voltageSensor.getVoltage();
-        if (driveSignal != null && !DriveConstants.RUN_USING_ENCODER) {
-            driveSignal = new DriveSignal(
-                    driveSignal.getVel().times(NOMINAL_VOLTAGE / voltage),
-                    driveSignal.getAccel().times(NOMINAL_VOLTAGE / voltage)
-            );
+        if (hasDriveSignal && !DriveConstants.RUN_USING_ENCODER) {
+            driveSignal.scale(NOMINAL_VOLTAGE / voltage);
         }
 
-        if (targetPose != null) {
+        if (hasTargetPose) {
             LogFiles.record(
                     targetPose, poseEstimate, voltage,
                     lastDriveEncPositions, lastDriveEncVels, lastTrackingEncPositions, lastTrackingEncVels
             );
         }
 
-        packet.put("x", poseEstimate.getX());
-        packet.put("y", poseEstimate.getY());
-        packet.put("heading (deg)", Math.toDegrees(poseEstimate.getHeading()));
+        double now = clock.seconds();
+        if (dashboard != null
+                && (DASHBOARD_UPDATE_HZ <= 0 || now - lastDashboardUpdateTime >= 1.0 / DASHBOARD_UPDATE_HZ)) {
+            lastDashboardUpdateTime = now;
+
+            // handed off to the dashboard's sender thread, so it cannot be reused
+            TelemetryPacket packet = new TelemetryPacket();
 
-        packet.put("xError", getLastPoseError().getX());
-        packet.put("yError", getLastPoseError().getY());
-        packet.put("headingError (deg)", Math.toDegrees(getLastPoseError().getHeading()));
+            packet.put("x", poseEstimate.getX());
+            packet.put("y", poseEstimate.getY());
+            packet.put("heading (deg)", Math.toDegrees(poseEstimate.getHeading()));
 
-        draw(fieldOverlay, currentTrajectorySequence, currentSegment, targetPose, poseEstimate);
+            packet.put("xError", lastPoseError.getX());
+            packet.put("yError", lastPoseError.getY());
+            packet.put("headingError (deg)", Math.toDegrees(lastPoseError.getHeading()));
+            packet.put("crossTrackError", lastCrossTrackError);
+            packet.put("alongTrackError", lastAlongTrackError);
 
-        dashboard.sendTelemetryPacket(packet);
+            if (stallCount > 0) {
+                packet.put("lazy segment stalls", stallCount);
+                packet.put("lazy segment stall time (ms)", stallTime * 1000);
+            }
+
+            if (replanCount > 0 || replanFailureCount > 0 || replanDiscardCount > 0) {
+                packet.put("replans", replanCount);
+                packet.put("replan failures", replanFailureCount);
+                packet.put("replans discarded", replanDiscardCount);
+                packet.put("replan detection (ms)", lastReplanDetectionLatency * 1000);
+                packet.put("replan latency (ms)", lastReplanLatency * 1000);
+                packet.put("replan latency max (ms)", maxReplanLatency * 1000);
+            }
 
-        return driveSignal;
+            draw(packet.fieldOverlay(), currentTrajectorySequence, currentSegment, lastSegmentIndex,
+                    hasTargetPose ? targetPose.toPose2d() : null, poseEstimate);
+
+            dashboard.sendTelemetryPacket(packet);
+        }
+
+        return hasDriveSignal;
     }
 
     private void draw(
             Canvas fieldOverlay,
-            TrajectorySequence sequence, SequenceSegment currentSegment,
+            TrajectorySequence sequence, SequenceSegment currentSegment, int currentSegmentIndex,
             Pose2d targetPose, Pose2d poseEstimate
     ) {
         if (sequence != null) {
@@ -245,7 +769,7 @@ public class TrajectorySequenceRunner {
                     fieldOverlay.setStrokeWidth(1);
                     fieldOverlay.setStroke(COLOR_INACTIVE_TRAJECTORY);
 
-                    DashboardUtil.drawSampledPath(fieldOverlay, ((TrajectorySegment) segment).getTrajectory().getPath());
+                    fieldOverlay.strokePolyline(pathXPoints[i], pathYPoints[i]);
                 } else if (segment instanceof TurnSegment) {
                     Pose2d pose = segment.getStartPose();
 
@@ -259,16 +783,24 @@ public class TrajectorySequenceRunner {
                     fieldOverlay.strokeCircle(pose.getX(), pose.getY(), 3);
                 }
             }
+        } else if (currentLazySequence != null) {
+            // only the path geometry is known for segments that are not generated yet
+            fieldOverlay.setStrokeWidth(1);
+            fieldOverlay.setStroke(COLOR_INACTIVE_TRAJECTORY);
+
+            for (int i = 0; i < pathXPoints.length; i++) {
+                if (pathXPoints[i] != null) {
+                    fieldOverlay.strokePolyline(pathXPoints[i], pathYPoints[i]);
+                }
+            }
         }
 
         if (currentSegment != null) {
             if (currentSegment instanceof TrajectorySegment) {
-                Trajectory currentTrajectory = ((TrajectorySegment) currentSegment).getTrajectory();
-
                 fieldOverlay.setStrokeWidth(1);
                 fieldOverlay.setStroke(COLOR_ACTIVE_TRAJECTORY);
 
-                DashboardUtil.drawSampledPath(fieldOverlay, currentTrajectory.getPath());
+                fieldOverlay.strokePolyline(pathXPoints[currentSegmentIndex], pathYPoints[currentSegmentIndex]);
             } else if (currentSegment instanceof TurnSegment) {
                 Pose2d pose = currentSegment.getStartPose();
 
@@ -296,11 +828,68 @@ public class TrajectorySequenceRunner {
         DashboardUtil.drawRobot(fieldOverlay, poseEstimate);
     }
 
+    /**
+     * Markers of the current segment that have not fired yet, re-timed from {@code segmentTime}.
+     */
+    private List<TrajectoryMarker> remainingMarkers(double segmentTime) {
+        List<TrajectoryMarker> remaining = new ArrayList<>();
+
+        for (int i = nextMarkerIndex; i < currentMarkers.size(); i++) {
+            remaining.add(retime(currentMarkers.get(i), segmentTime));
+        }
+
+        // the markers of a trajectory are fired by the follower
+        SequenceSegment segment = currentSegmentIndex == lastSegmentIndex ? segment(currentSegmentIndex) : null;
+        if (segment instanceof TrajectorySegment) {
+            if (bakedFollower != null) {
+                for (TrajectoryMarker marker : bakedFollower.getRemainingMarkers()) {
+                    remaining.add(retime(marker, segmentTime));
+                }
+            } else {
+                // other followers fire a marker once their own clock, which started a little after
+                // the segment, has passed it; so none after the last update's time has fired
+                for (TrajectoryMarker marker : ((TrajectorySegment) segment).getTrajectory().getMarkers()) {
+                    if (marker.getTime() > lastSegmentTime) remaining.add(retime(marker, segmentTime));
+                }
+            }
+        }
+
+        return remaining;
+    }
+
+    private static TrajectoryMarker retime(TrajectoryMarker marker, double segmentTime) {
+        return new TrajectoryMarker(Math.max(0.0, marker.getTime() - segmentTime), marker.getCallback());
+    }
+
+    private void fireRemainingMarkers() {
+        for (int i = nextMarkerIndex; i < currentMarkers.size(); i++) {
+            currentMarkers.get(i).getCallback().onMarkerReached();
+        }
+
+        currentMarkers = Collections.emptyList();
+        nextMarkerIndex = 0;
+    }
+
+    /**
+     * Pose error of the last update in the robot frame. Allocates a copy on every call.
+     */
     public Pose2d getLastPoseError() {
-        return lastPoseError;
+        return lastPoseError.toPose2d();
+    }
+
+    public double getLastCrossTrackError() {
+        return lastCrossTrackError;
+    }
+
+    /**
+     * How far the robot was behind its target along the path at the last update, negative when
+     * ahead of it.
+     */
+    public double getLastAlongTrackError() {
+        return lastAlongTrackError;
     }
 
     public boolean isBusy() {
-        return currentTrajectorySequence != null;
+        return currentTrajectorySequence != null || currentLazySequence != null;
     }
 }
@@ -0,0 +1,291 @@
+package teamcode.trajectorysequence.sequencesegment;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.geometry.Vector2d;
+import com.acmerobotics.roadrunner.path.Path;
+
+/**
+ * Nearest point queries on a path. Points sampled evenly along the arc length are kept in a k-d
+ * tree, so finding the closest sample is O(log n), and a few Newton steps on the squared distance
+ * then move it onto the curve. Unlike {@link Path#project(Vector2d, double)} this needs no initial
+ * guess and cannot settle on a far local minimum when the path curves back on itself.
+ * <p>
+ * {@link #crossTrackError(double, double)} and {@link #polylineProject(double, double)} measure
+ * against the polyline through the samples instead, so the follower can call them every loop
+ * without evaluating the path or allocating. With
+ * the default 1 in spacing the polyline is within {@code 1 / (8 * radius)} of the curve, e.g.
+ * 0.0125 in on a 10 in radius.
+ * <p>
+ * The other queries do not allocate beyond Road Runner's own path evaluation. All of them are
+ * safe from any thread.
+ */
+public final class PathProjectionIndex {
+    public static final double DEFAULT_SAMPLE_SPACING = 1.0;
+
+    private static final int NEWTON_STEPS = 3;
+    private static final double NEWTON_TOLERANCE = 1e-6;
+
+    private final Path path;
+    private final double length;
+
+    // samples in k-d tree order: the middle of every range is the node that splits it, on x at
+    // even depths and on y at odd depths
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] displacements;
+    // index of each tree sample in path order
+    private final int[] sampleIndices;
+
+    // the same samples in path order, for the polyline
+    private final double[] pathXs;
+    private final double[] pathYs;
+
+    public PathProjectionIndex(Path path) {
+        this(path, DEFAULT_SAMPLE_SPACING);
+    }
+
+    public PathProjectionIndex(Path path, double sampleSpacing) {
+        if (sampleSpacing <= 0) throw new IllegalArgumentException("sampleSpacing must be positive");
+
+        this.path = path;
+        this.length = path.length();
+
+        int sampleCount = Math.max(1, (int) Math.ceil(length / sampleSpacing)) + 1;
+
+        xs = new double[sampleCount];
+        ys = new double[sampleCount];
+        displacements = new double[sampleCount];
+        sampleIndices = new int[sampleCount];
+
+        for (int i = 0; i < sampleCount; i++) {
+            double s = length * i / (sampleCount - 1);
+            Pose2d pose = path.get(s);
+
+            xs[i] = pose.getX();
+            ys[i] = pose.getY();
+            displacements[i] = s;
+            sampleIndices[i] = i;
+        }
+
+        pathXs = xs.clone();
+        pathYs = ys.clone();
+
+        build(0, sampleCount, 0);
+    }
+
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo <= 1) return;
+
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, depth % 2 == 0 ? xs : ys);
+
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    /**
+     * Partially sorts samples {@code lo..hi} (inclusive) by {@code keys} so that sample {@code k}
+     * ends up where it would be in sorted order, with no greater key before it and no smaller
+     * key after it.
+     */
+    private void select(int lo, int hi, int k, double[] keys) {
+        while (lo < hi) {
+            double pivot = keys[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+
+                if (i <= j) swap(i++, j--);
+            }
+
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        double x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+
+        double y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+
+        double s = displacements[i];
+        displacements[i] = displacements[j];
+        displacements[j] = s;
+
+        int index = sampleIndices[i];
+        sampleIndices[i] = sampleIndices[j];
+        sampleIndices[j] = index;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Displacement along the path of the point closest to {@code point}.
+     */
+    public double project(Vector2d point) {
+        return project(point.getX(), point.getY());
+    }
+
+    public double project(double x, double y) {
+        int nearest = nearest(x, y, 0, xs.length, 0, 0);
+
+        return refine(x, y, displacements[nearest], distanceSq(nearest, x, y));
+    }
+
+    /**
+     * Distance from the path to the pose's position, positive when the robot is to the left of
+     * the path's direction of travel.
+     */
+    public double crossTrackError(Pose2d pose) {
+        return crossTrackError(pose.getX(), pose.getY());
+    }
+
+    /**
+     * Cross-track error against the sample polyline, without allocating. Past either end of the
+     * path it is the distance from the line through the end sample pair, like the curve's tangent
+     * there.
+     */
+    public double crossTrackError(double x, double y) {
+        if (pathXs.length == 1) return 0.0;
+
+        int chord = nearestChord(x, y);
+
+        double dx = pathXs[chord + 1] - pathXs[chord];
+        double dy = pathYs[chord + 1] - pathYs[chord];
+        double chordLength = Math.hypot(dx, dy);
+
+        if (chordLength == 0.0) return 0.0;
+
+        return (dx * (y - pathYs[chord]) - dy * (x - pathXs[chord])) / chordLength;
+    }
+
+    /**
+     * Displacement along the path of the closest point on the sample polyline, without allocating.
+     * Clamped to the path, and within the polyline's deviation of {@link #project(double, double)}.
+     */
+    public double polylineProject(double x, double y) {
+        int last = pathXs.length - 1;
+        if (last == 0) return 0.0;
+
+        int chord = nearestChord(x, y);
+
+        double dx = pathXs[chord + 1] - pathXs[chord];
+        double dy = pathYs[chord + 1] - pathYs[chord];
+        double lengthSq = dx * dx + dy * dy;
+
+        double t = lengthSq == 0.0 ? 0.0 : ((x - pathXs[chord]) * dx + (y - pathYs[chord]) * dy) / lengthSq;
+        t = Math.max(0.0, Math.min(t, 1.0));
+
+        // the samples are evenly spaced along the arc length
+        return length * (chord + t) / last;
+    }
+
+    /**
+     * The chord of the sample polyline closest to the point; chord i runs from path sample i to
+     * sample i + 1. It is one of the two chords that meet at the nearest sample.
+     */
+    private int nearestChord(double x, double y) {
+        int last = pathXs.length - 1;
+        int nearest = sampleIndices[nearest(x, y, 0, xs.length, 0, 0)];
+
+        if (nearest == 0) return 0;
+        if (nearest == last) return last - 1;
+
+        return chordDistanceSq(nearest, x, y) < chordDistanceSq(nearest - 1, x, y) ? nearest : nearest - 1;
+    }
+
+    /**
+     * Squared distance from the point to the chord from path sample {@code i} to the next one.
+     */
+    private double chordDistanceSq(int i, double x, double y) {
+        double dx = pathXs[i + 1] - pathXs[i];
+        double dy = pathYs[i + 1] - pathYs[i];
+        double lengthSq = dx * dx + dy * dy;
+
+        double t = lengthSq == 0.0 ? 0.0 : ((x - pathXs[i]) * dx + (y - pathYs[i]) * dy) / lengthSq;
+        t = Math.max(0.0, Math.min(t, 1.0));
+
+        double ex = x - (pathXs[i] + t * dx);
+        double ey = y - (pathYs[i] + t * dy);
+
+        return ex * ex + ey * ey;
+    }
+
+    private int nearest(double x, double y, int lo, int hi, int depth, int best) {
+        if (lo >= hi) return best;
+
+        int mid = (lo + hi) >>> 1;
+        if (distanceSq(mid, x, y) < distanceSq(best, x, y)) best = mid;
+
+        double split = depth % 2 == 0 ? x - xs[mid] : y - ys[mid];
+
+        if (split < 0) {
+            best = nearest(x, y, lo, mid, depth + 1, best);
+            if (split * split < distanceSq(best, x, y)) best = nearest(x, y, mid + 1, hi, depth + 1, best);
+        } else {
+            best = nearest(x, y, mid + 1, hi, depth + 1, best);
+            if (split * split < distanceSq(best, x, y)) best = nearest(x, y, lo, mid, depth + 1, best);
+        }
+
+        return best;
+    }
+
+    private double distanceSq(int i, double x, double y) {
+        double dx = x - xs[i];
+        double dy = y - ys[i];
+
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Newton's method on half the squared distance, starting from the nearest sample. The path is
+     * arc length parametrized, so its tangent has unit length and the second derivative of the
+     * distance reduces to {@code 1 - (point - curve) . curvature}.
+     */
+    private double refine(double x, double y, double sampleDisplacement, double sampleDistanceSq) {
+        double s = sampleDisplacement;
+
+        for (int i = 0; i < NEWTON_STEPS; i++) {
+            Pose2d pose = path.get(s);
+            Pose2d deriv = path.deriv(s);
+            Pose2d secondDeriv = path.secondDeriv(s);
+
+            double dx = x - pose.getX();
+            double dy = y - pose.getY();
+
+            double gradient = -(dx * deriv.getX() + dy * deriv.getY());
+            double hessian = 1 - (dx * secondDeriv.getX() + dy * secondDeriv.getY());
+
+            // not near a minimum, e.g. at the center of curvature
+            if (hessian <= 0) break;
+
+            double next = Math.max(0.0, Math.min(s - gradient / hessian, length));
+            boolean converged = Math.abs(next - s) < NEWTON_TOLERANCE;
+
+            s = next;
+
+            if (converged) break;
+        }
+
+        // Newton can step across a corner between path segments; never do worse than the sample
+        Pose2d refined = path.get(s);
+        double dx = x - refined.getX();
+        double dy = y - refined.getY();
+
+        return dx * dx + dy * dy <= sampleDistanceSq ? s : sampleDisplacement;
+    }
+}
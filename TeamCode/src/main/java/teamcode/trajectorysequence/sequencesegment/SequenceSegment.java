@@ -3,6 +3,9 @@ package teamcode.trajectorysequence.sequencesegment;
 import com.acmerobotics.roadrunner.geometry.Pose2d;
 import com.acmerobotics.roadrunner.trajectory.TrajectoryMarker;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 public abstract class SequenceSegment {
@@ -19,7 +22,11 @@ public abstract class SequenceSegment {
         this.duration = duration;
         this.startPose = startPose;
         this.endPose = endPose;
-        this.markers = markers;
+
+        // sorted once here so followers can walk them with a cursor
+        List<TrajectoryMarker> sortedMarkers = new ArrayList<>(markers);
+        Collections.sort(sortedMarkers, Comparator.comparingDouble(TrajectoryMarker::getTime));
+        this.markers = Collections.unmodifiableList(sortedMarkers);
     }
 
     public double getDuration() {
@@ -34,6 +41,9 @@ public abstract class SequenceSegment {
         return endPose;
     }
 
+    /**
+     * Markers of this segment, sorted by time.
+     */
     public List<TrajectoryMarker> getMarkers() {
         return markers;
     }
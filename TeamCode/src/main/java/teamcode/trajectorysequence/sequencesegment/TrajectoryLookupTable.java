@@ -0,0 +1,162 @@
+package teamcode.trajectorysequence.sequencesegment;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+import com.acmerobotics.roadrunner.util.Angle;
+
+import teamcode.util.MutablePose2d;
+
+/**
+ * Fixed-timestep samples of a trajectory's pose, velocity and acceleration. Lookups are O(1) index
+ * math plus linear interpolation between neighbouring samples, instead of a motion profile search
+ * and spline evaluation on every call.
+ */
+public final class TrajectoryLookupTable {
+    private final double dt;
+    private final double duration;
+    private final int sampleCount;
+
+    // x, y, heading triples for each sample
+    private final double[] poses;
+    private final double[] velocities;
+    private final double[] accelerations;
+
+    public TrajectoryLookupTable(Trajectory trajectory, double dt) {
+        if (dt <= 0) throw new IllegalArgumentException("dt must be positive");
+
+        this.dt = dt;
+        this.duration = trajectory.duration();
+        this.sampleCount = (int) Math.ceil(duration / dt) + 1;
+
+        poses = new double[3 * sampleCount];
+        velocities = new double[3 * sampleCount];
+        accelerations = new double[3 * sampleCount];
+
+        for (int i = 0; i < sampleCount; i++) {
+            double t = sampleTime(i);
+
+            store(poses, i, trajectory.get(t));
+            store(velocities, i, trajectory.velocity(t));
+            store(accelerations, i, trajectory.acceleration(t));
+        }
+    }
+
+    /**
+     * Wraps samples that were taken earlier, e.g. loaded from a compiled trajectory asset. Each
+     * array holds x, y, heading triples for {@code sampleCount} samples spaced {@code dt} apart.
+     */
+    public TrajectoryLookupTable(double dt, double duration, double[] poses, double[] velocities, double[] accelerations) {
+        if (dt <= 0) throw new IllegalArgumentException("dt must be positive");
+        if (poses.length % 3 != 0 || poses.length == 0
+                || velocities.length != poses.length || accelerations.length != poses.length) {
+            throw new IllegalArgumentException("Sample arrays must hold the same number of x, y, heading triples");
+        }
+
+        this.dt = dt;
+        this.duration = duration;
+        this.sampleCount = poses.length / 3;
+
+        this.poses = poses;
+        this.velocities = velocities;
+        this.accelerations = accelerations;
+    }
+
+    private static void store(double[] table, int i, Pose2d pose) {
+        table[3 * i] = pose.getX();
+        table[3 * i + 1] = pose.getY();
+        table[3 * i + 2] = pose.getHeading();
+    }
+
+    private double sampleTime(int i) {
+        return Math.min(i * dt, duration);
+    }
+
+    public double getDt() {
+        return dt;
+    }
+
+    public double duration() {
+        return duration;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Copies of the raw samples as x, y, heading triples.
+     */
+    public double[] getPoseSamples() {
+        return poses.clone();
+    }
+
+    public double[] getVelocitySamples() {
+        return velocities.clone();
+    }
+
+    public double[] getAccelerationSamples() {
+        return accelerations.clone();
+    }
+
+    public Pose2d get(double t) {
+        MutablePose2d pose = new MutablePose2d();
+        get(t, pose);
+        return pose.toPose2d();
+    }
+
+    public Pose2d velocity(double t) {
+        MutablePose2d velocity = new MutablePose2d();
+        velocity(t, velocity);
+        return velocity.toPose2d();
+    }
+
+    public Pose2d acceleration(double t) {
+        MutablePose2d acceleration = new MutablePose2d();
+        acceleration(t, acceleration);
+        return acceleration.toPose2d();
+    }
+
+    /**
+     * Same as {@link #get(double)}, written into {@code pose} instead of allocating.
+     */
+    public void get(double t, MutablePose2d pose) {
+        sample(poses, t, true, pose);
+    }
+
+    public void velocity(double t, MutablePose2d velocity) {
+        sample(velocities, t, false, velocity);
+    }
+
+    public void acceleration(double t, MutablePose2d acceleration) {
+        sample(accelerations, t, false, acceleration);
+    }
+
+    private void sample(double[] table, double t, boolean wrapHeading, MutablePose2d out) {
+        if (sampleCount == 1 || t <= 0) {
+            out.set(table[0], table[1], table[2]);
+            return;
+        }
+
+        int i = (int) (t / dt);
+        if (i >= sampleCount - 1) {
+            int last = 3 * (sampleCount - 1);
+            out.set(table[last], table[last + 1], table[last + 2]);
+            return;
+        }
+
+        double t0 = sampleTime(i);
+        double alpha = (t - t0) / (sampleTime(i + 1) - t0);
+
+        int a = 3 * i;
+        int b = a + 3;
+
+        double headingDelta = table[b + 2] - table[a + 2];
+        if (wrapHeading) headingDelta = Angle.normDelta(headingDelta);
+
+        out.set(
+                table[a] + alpha * (table[b] - table[a]),
+                table[a + 1] + alpha * (table[b + 1] - table[a + 1]),
+                table[a + 2] + alpha * headingDelta
+        );
+    }
+}
@@ -1,20 +1,77 @@
 package teamcode.trajectorysequence.sequencesegment;
 
+import androidx.annotation.Nullable;
+
 import com.acmerobotics.roadrunner.trajectory.Trajectory;
+import com.acmerobotics.roadrunner.trajectory.TrajectoryMarker;
 
 import java.util.Collections;
+import java.util.List;
 
 public final class TrajectorySegment extends SequenceSegment {
     private final Trajectory trajectory;
+    private final TrajectoryLookupTable lookupTable;
+
+    // built before following starts (see TrajectorySequenceRunner) and on first use otherwise;
+    // building it twice from two threads is harmless
+    private volatile PathProjectionIndex projectionIndex;
 
     public TrajectorySegment(Trajectory trajectory) {
+        this(trajectory, null);
+    }
+
+    public TrajectorySegment(Trajectory trajectory, @Nullable TrajectoryLookupTable lookupTable) {
         // Note: Markers are already stored in the `Trajectory` itself.
         // This class should not hold any markers
         super(trajectory.duration(), trajectory.start(), trajectory.end(), Collections.emptyList());
         this.trajectory = trajectory;
+        this.lookupTable = lookupTable;
     }
 
     public Trajectory getTrajectory() {
         return this.trajectory;
     }
+
+    /**
+     * Returns a copy of this segment with pose, velocity and acceleration pre-sampled every
+     * {@code dt} seconds.
+     */
+    public TrajectorySegment baked(double dt) {
+        return new TrajectorySegment(trajectory, new TrajectoryLookupTable(trajectory, dt));
+    }
+
+    /**
+     * Returns a copy of this segment with its trajectory's markers replaced, sharing the lookup
+     * table and projection index since the path and profile are the same.
+     */
+    public TrajectorySegment withMarkers(List<TrajectoryMarker> markers) {
+        TrajectorySegment segment = new TrajectorySegment(
+                new Trajectory(trajectory.getPath(), trajectory.getProfile(), markers), lookupTable
+        );
+        segment.projectionIndex = projectionIndex;
+
+        return segment;
+    }
+
+    public boolean isBaked() {
+        return lookupTable != null;
+    }
+
+    public @Nullable TrajectoryLookupTable getLookupTable() {
+        return lookupTable;
+    }
+
+    /**
+     * Nearest point index of this segment's path, shared by everything that projects onto it.
+     */
+    public PathProjectionIndex getProjectionIndex() {
+        PathProjectionIndex index = projectionIndex;
+
+        if (index == null) {
+            index = new PathProjectionIndex(trajectory.getPath());
+            projectionIndex = index;
+        }
+
+        return index;
+    }
 }
@@ -2,6 +2,8 @@ package teamcode.trajectorysequence.sequencesegment;
 
 import com.acmerobotics.roadrunner.geometry.Pose2d;
 import com.acmerobotics.roadrunner.profile.MotionProfile;
+import com.acmerobotics.roadrunner.profile.MotionSegment;
+import com.acmerobotics.roadrunner.profile.MotionState;
 import com.acmerobotics.roadrunner.trajectory.TrajectoryMarker;
 import com.acmerobotics.roadrunner.util.Angle;
 
@@ -11,6 +13,14 @@ public final class TurnSegment extends SequenceSegment {
     private final double totalRotation;
     private final MotionProfile motionProfile;
 
+    // start state and length of each profile segment, so the profile can be sampled every loop
+    // without MotionProfile.get allocating a MotionState
+    private final double[] segmentX;
+    private final double[] segmentV;
+    private final double[] segmentA;
+    private final double[] segmentJ;
+    private final double[] segmentDt;
+
     public TurnSegment(Pose2d startPose, double totalRotation, MotionProfile motionProfile, List<TrajectoryMarker> markers) {
         super(
                 motionProfile.duration(),
@@ -24,6 +34,23 @@ public final class TurnSegment extends SequenceSegment {
 
         this.totalRotation = totalRotation;
         this.motionProfile = motionProfile;
+
+        List<MotionSegment> segments = motionProfile.getSegments();
+        segmentX = new double[segments.size()];
+        segmentV = new double[segments.size()];
+        segmentA = new double[segments.size()];
+        segmentJ = new double[segments.size()];
+        segmentDt = new double[segments.size()];
+
+        for (int i = 0; i < segments.size(); i++) {
+            MotionState start = segments.get(i).getStart();
+
+            segmentX[i] = start.getX();
+            segmentV[i] = start.getV();
+            segmentA[i] = start.getA();
+            segmentJ[i] = start.getJ();
+            segmentDt[i] = segments.get(i).getDt();
+        }
     }
 
     public final double getTotalRotation() {
@@ -33,4 +60,52 @@ public final class TurnSegment extends SequenceSegment {
     public final MotionProfile getMotionProfile() {
         return this.motionProfile;
     }
+
+    /**
+     * Heading of the motion profile at time {@code t}; same as {@code getMotionProfile().get(t).getX()}.
+     */
+    public double getHeading(double t) {
+        return sample(t, 0);
+    }
+
+    public double getHeadingVelocity(double t) {
+        return sample(t, 1);
+    }
+
+    public double getHeadingAcceleration(double t) {
+        return sample(t, 2);
+    }
+
+    /**
+     * Evaluates the profile like MotionProfile.get: stationary at the start before it and at the
+     * end after it.
+     */
+    private double sample(double t, int derivative) {
+        int last = segmentDt.length - 1;
+        if (last < 0) return 0.0;
+
+        if (t < 0.0) return derivative == 0 ? segmentX[0] : 0.0;
+
+        int i = 0;
+        double time = t;
+        while (time > segmentDt[i]) {
+            if (i == last) return derivative == 0 ? sample(last, segmentDt[last], 0) : 0.0;
+
+            time -= segmentDt[i];
+            i++;
+        }
+
+        return sample(i, time, derivative);
+    }
+
+    private double sample(int i, double time, int derivative) {
+        switch (derivative) {
+            case 0:
+                return segmentX[i] + segmentV[i] * time + segmentA[i] / 2 * time * time + segmentJ[i] / 6 * time * time * time;
+            case 1:
+                return segmentV[i] + segmentA[i] * time + segmentJ[i] / 2 * time * time;
+            default:
+                return segmentA[i] + segmentJ[i] * time;
+        }
+    }
 }
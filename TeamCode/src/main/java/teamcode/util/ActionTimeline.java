@@ -0,0 +1,96 @@
+package teamcode.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A macro declared as a timed list of actions, e.g. move the arm, 0.5 s later lift the claw.
+ * A timeline only describes the macro and can be run any number of times. A {@link TimelineRunner}
+ * runs it without blocking by calling each action once its time has come.
+ * <p>
+ * Actions run in the order they were added. Actions added between two waits run in the same
+ * update. A wait at the end keeps the timeline running, e.g. to let a servo settle before
+ * anything else takes over.
+ */
+public final class ActionTimeline {
+    private final double[] times;
+    private final Runnable[] actions;
+    private final double duration;
+    private final Runnable onCancel;
+
+    private ActionTimeline(Builder builder) {
+        int count = builder.actions.size();
+
+        times = new double[count];
+        actions = new Runnable[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = builder.times.get(i);
+            actions[i] = builder.actions.get(i);
+        }
+
+        duration = builder.time;
+        onCancel = builder.onCancel;
+    }
+
+    public int getActionCount() {
+        return actions.length;
+    }
+
+    /**
+     * Seconds after its start at which the action runs.
+     */
+    public double getTime(int action) {
+        return times[action];
+    }
+
+    void runAction(int action) {
+        actions[action].run();
+    }
+
+    /**
+     * Seconds from the start until the timeline is done, including a trailing wait.
+     */
+    public double getDuration() {
+        return duration;
+    }
+
+    void cancelled() {
+        if (onCancel != null) onCancel.run();
+    }
+
+    public static class Builder {
+        private final List<Double> times = new ArrayList<>();
+        private final List<Runnable> actions = new ArrayList<>();
+        private double time;
+        private Runnable onCancel;
+
+        /**
+         * Adds an action that runs after every wait added so far.
+         */
+        public Builder run(Runnable action) {
+            times.add(time);
+            actions.add(action);
+            return this;
+        }
+
+        public Builder waitSeconds(double seconds) {
+            if (seconds < 0) throw new IllegalArgumentException("seconds must not be negative");
+
+            time += seconds;
+            return this;
+        }
+
+        /**
+         * Sets what to run if the timeline is cancelled before it is done, e.g. stop a motor one
+         * of its actions started.
+         */
+        public Builder onCancel(Runnable action) {
+            onCancel = action;
+            return this;
+        }
+
+        public ActionTimeline build() {
+            return new ActionTimeline(this);
+        }
+    }
+}
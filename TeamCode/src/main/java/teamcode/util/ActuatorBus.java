@@ -0,0 +1,322 @@
+package teamcode.util;
+
+import com.qualcomm.robotcore.hardware.CRServo;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.Servo;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Funnels every actuator write of an opmode through one writer thread. Control threads don't
+ * touch the hardware: the outputs handed out by {@link #motor}, {@link #servo} and
+ * {@link #crServo} queue their power or position writes. Every other call goes straight to the
+ * device.
+ * <p>
+ * Once per cycle the writer drains the queue and keeps only the newest value per output. It then
+ * writes the outputs in the order they were registered. Writes from different threads therefore
+ * never interleave on the bus, and each output gets at most one write per cycle. The queue is the
+ * JDK's lock-free {@link ConcurrentLinkedQueue}, so any number of threads can enqueue without
+ * blocking each other or the writer.
+ * <p>
+ * If a write throws, the writer stops and makes a best-effort attempt to stop every output, so
+ * nothing keeps running on its last command. Opmodes should check {@link #getFailure()} every loop.
+ */
+public class ActuatorBus {
+    public static final double DEFAULT_RATE_HZ = 100;
+
+    private interface Writer {
+        void write(double value);
+    }
+
+    private static class Command {
+        final int output;
+        final double value;
+        final long enqueueNanos;
+
+        Command(int output, double value, long enqueueNanos) {
+            this.output = output;
+            this.value = value;
+            this.enqueueNanos = enqueueNanos;
+        }
+    }
+
+    private final long periodNanos;
+
+    private final List<String> names = new ArrayList<>();
+    private final List<Writer> writers = new ArrayList<>();
+    private final List<Runnable> stoppers = new ArrayList<>();
+
+    private final ConcurrentLinkedQueue<Command> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    // newest value per output in the current cycle; only touched by the writer
+    private double[] pendingValues;
+    private long[] pendingEnqueueNanos;
+    private boolean[] pending;
+
+    private volatile Thread thread;
+    private volatile boolean running;
+    private volatile RuntimeException failure;
+
+    private volatile long cycleCount;
+    private volatile long issuedWrites;
+    private volatile long coalescedCommands;
+    private volatile int maxQueueDepth;
+    private volatile long lastCycleWriteNanos;
+    private volatile long maxCycleWriteNanos;
+    private volatile long maxCommandLatencyNanos;
+
+    public ActuatorBus() {
+        this(DEFAULT_RATE_HZ);
+    }
+
+    public ActuatorBus(double rateHz) {
+        if (rateHz <= 0) throw new IllegalArgumentException("rateHz must be positive");
+
+        periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rateHz);
+    }
+
+    /**
+     * Returns a motor whose power writes go through the bus.
+     */
+    public DcMotor motor(String name, DcMotor motor) {
+        return route(DcMotor.class, motor, "setPower", register(name, motor::setPower, () -> motor.setPower(0)));
+    }
+
+    /**
+     * Returns a servo whose position writes go through the bus. Position zero is a place to move
+     * to, so if the writer fails the servo's PWM is disabled instead.
+     */
+    public Servo servo(String name, Servo servo) {
+        return route(Servo.class, servo, "setPosition",
+                register(name, servo::setPosition, () -> servo.getController().pwmDisable()));
+    }
+
+    /**
+     * Returns a continuous rotation servo whose power writes go through the bus.
+     */
+    public CRServo crServo(String name, CRServo servo) {
+        return route(CRServo.class, servo, "setPower", register(name, servo::setPower, () -> servo.setPower(0)));
+    }
+
+    private synchronized int register(String name, Writer writer, Runnable stopper) {
+        if (thread != null) throw new IllegalStateException("outputs must be registered before start()");
+
+        names.add(name);
+        writers.add(writer);
+        stoppers.add(stopper);
+        return writers.size() - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T route(Class<T> type, T device, String writeMethod, int output) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals(writeMethod) && args != null && args.length == 1) {
+                enqueue(output, (Double) args[0]);
+                return null;
+            }
+
+            try {
+                return method.invoke(device, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    private void enqueue(int output, double value) {
+        queue.add(new Command(output, value, System.nanoTime()));
+        queueDepth.incrementAndGet();
+    }
+
+    public synchronized void start() {
+        if (thread != null) return;
+
+        int outputCount = writers.size();
+        pendingValues = new double[outputCount];
+        pendingEnqueueNanos = new long[outputCount];
+        pending = new boolean[outputCount];
+
+        failure = null;
+        running = true;
+
+        thread = new Thread(this::run, "ActuatorBus");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the writer once it has issued everything queued so far.
+     */
+    public synchronized void stop() {
+        Thread thread = this.thread;
+        if (thread == null) return;
+
+        running = false;
+        LockSupport.unpark(thread);
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.thread = null;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * What stopped the writer, if it died instead of being stopped. By the time this is set, every
+     * output has been told to stop.
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    private void run() {
+        long next = System.nanoTime();
+
+        try {
+            while (running) {
+                cycle();
+
+                next += periodNanos;
+
+                long wait;
+                if (next - System.nanoTime() <= 0) {
+                    next = System.nanoTime();
+                } else {
+                    while (running && (wait = next - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+            }
+
+            // whatever was queued before stop() still goes out
+            cycle();
+        } catch (RuntimeException e) {
+            stopOutputs(e);
+            failure = e;
+        } finally {
+            running = false;
+        }
+    }
+
+    /**
+     * Tries to stop every output after the writer failed with {@code cause}. Outputs that fail to
+     * stop too are recorded on it as suppressed exceptions, and the rest are still tried.
+     */
+    private void stopOutputs(RuntimeException cause) {
+        for (Runnable stopper : stoppers) {
+            try {
+                stopper.run();
+            } catch (RuntimeException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    private void cycle() {
+        maxQueueDepth = Math.max(maxQueueDepth, queueDepth.get());
+
+        int commands = 0;
+        int writes = 0;
+
+        Command command;
+        while ((command = queue.poll()) != null) {
+            queueDepth.decrementAndGet();
+            commands++;
+
+            pendingValues[command.output] = command.value;
+            if (!pending[command.output]) {
+                pending[command.output] = true;
+                pendingEnqueueNanos[command.output] = command.enqueueNanos;
+            }
+        }
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < pending.length; i++) {
+            if (!pending[i]) continue;
+
+            pending[i] = false;
+            writers.get(i).write(pendingValues[i]);
+            writes++;
+
+            maxCommandLatencyNanos = Math.max(maxCommandLatencyNanos, System.nanoTime() - pendingEnqueueNanos[i]);
+        }
+
+        long writeNanos = System.nanoTime() - start;
+
+        cycleCount++;
+        issuedWrites += writes;
+        coalescedCommands += commands - writes;
+        lastCycleWriteNanos = writeNanos;
+        maxCycleWriteNanos = Math.max(maxCycleWriteNanos, writeNanos);
+    }
+
+    public int getOutputCount() {
+        return writers.size();
+    }
+
+    public String getOutputName(int output) {
+        return names.get(output);
+    }
+
+    /**
+     * Commands queued but not yet drained by the writer.
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Deepest the queue has been when the writer drained it.
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public long getCycleCount() {
+        return cycleCount;
+    }
+
+    public long getIssuedWrites() {
+        return issuedWrites;
+    }
+
+    /**
+     * Commands that were replaced by a newer one for the same output before being written.
+     */
+    public long getCoalescedCommands() {
+        return coalescedCommands;
+    }
+
+    /**
+     * Time the writer spent issuing the last cycle's writes, in milliseconds.
+     */
+    public double getLastCycleWriteTime() {
+        return lastCycleWriteNanos / 1e6;
+    }
+
+    public double getMaxCycleWriteTime() {
+        return maxCycleWriteNanos / 1e6;
+    }
+
+    /**
+     * Longest time from a command being queued to its output being written, in milliseconds.
+     */
+    public double getMaxCommandLatency() {
+        return maxCommandLatencyNanos / 1e6;
+    }
+}
@@ -1,7 +1,10 @@
 package teamcode.util;
 
+import android.content.res.AssetFileDescriptor;
+
 import androidx.annotation.Nullable;
 
+import com.acmerobotics.roadrunner.trajectory.MarkerCallback;
 import com.acmerobotics.roadrunner.trajectory.Trajectory;
 import com.acmerobotics.roadrunner.trajectory.TrajectoryBuilder;
 import com.acmerobotics.roadrunner.trajectory.config.TrajectoryConfig;
@@ -9,14 +12,27 @@ import com.acmerobotics.roadrunner.trajectory.config.TrajectoryConfigManager;
 import com.acmerobotics.roadrunner.trajectory.config.TrajectoryGroupConfig;
 
 import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import teamcode.trajectorysequence.TrajectorySequence;
+import teamcode.trajectorysequence.sequencesegment.TrajectorySegment;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Set of utilities for loading trajectories from assets (the plugin save location).
  */
 public class AssetsTrajectoryManager {
+    private static final Map<String, TrajectoryAsset> compiledAssets = new HashMap<>();
+    private static final Map<String, TrajectorySequence> compiledSequences = new HashMap<>();
 
     /**
      * Loads the group config.
@@ -67,4 +83,75 @@ public class AssetsTrajectoryManager {
         }
         return builder.build();
     }
+
+    /**
+     * Loads a compiled trajectory (see {@link TrajectoryAsset}) with the given name as a baked
+     * segment, ready for {@link
+     * teamcode.trajectorysequence.TrajectorySequenceBuilder#addTrajectory(TrajectorySegment)}.
+     * Marker names are bound to the given callbacks. The asset is memory-mapped straight out of
+     * the APK, which requires its extension to be stored uncompressed, and is only read once per
+     * app run.
+     */
+    public static @Nullable TrajectorySegment loadCompiled(String name, Map<String, MarkerCallback> callbacks) {
+        TrajectoryAsset asset = loadCompiledAsset(name);
+        if (asset == null) {
+            return null;
+        }
+        return new TrajectorySegment(asset.toTrajectory(callbacks), asset.getLookupTable());
+    }
+
+    public static @Nullable TrajectorySegment loadCompiled(String name) {
+        return loadCompiled(name, Collections.emptyMap());
+    }
+
+    /**
+     * Loads a route compiled at build time (see {@link TrajectorySequenceAsset}), or returns the
+     * sequence from {@code fallback} if the APK was built without it. Like compiled trajectories,
+     * it is memory-mapped and only read once per app run.
+     */
+    public static TrajectorySequence loadCompiledSequence(String name, Supplier<TrajectorySequence> fallback) {
+        TrajectorySequence sequence;
+
+        synchronized (compiledSequences) {
+            sequence = compiledSequences.get(name);
+
+            if (sequence == null) {
+                sequence = map("trajectory/" + name + TrajectorySequenceAsset.EXTENSION, TrajectorySequenceAsset::read);
+
+                if (sequence != null) {
+                    compiledSequences.put(name, sequence);
+                }
+            }
+        }
+
+        return sequence != null ? sequence : fallback.get();
+    }
+
+    private static @Nullable TrajectoryAsset loadCompiledAsset(String name) {
+        synchronized (compiledAssets) {
+            TrajectoryAsset asset = compiledAssets.get(name);
+
+            if (asset == null) {
+                asset = map("trajectory/" + name + TrajectoryAsset.EXTENSION, TrajectoryAsset::read);
+
+                if (asset != null) {
+                    compiledAssets.put(name, asset);
+                }
+            }
+
+            return asset;
+        }
+    }
+
+    private static @Nullable <T> T map(String path, Function<ByteBuffer, T> reader) {
+        try (AssetFileDescriptor fd = AppUtil.getDefContext().getAssets().openFd(path);
+             FileInputStream inputStream = fd.createInputStream();
+             FileChannel channel = inputStream.getChannel()) {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+            return reader.apply(buffer);
+        } catch (IOException e) {
+            return null;
+        }
+    }
 }
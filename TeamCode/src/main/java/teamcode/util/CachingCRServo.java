@@ -0,0 +1,92 @@
+package teamcode.util;
+
+import com.qualcomm.robotcore.hardware.CRServo;
+import com.qualcomm.robotcore.hardware.ServoController;
+
+/**
+ * Continuous rotation servo that only sends power writes that change something, as decided by its
+ * {@link WriteCache}. Everything else goes straight to the wrapped servo.
+ */
+public class CachingCRServo implements CRServo {
+    private final CRServo servo;
+    private final WriteCache powerCache;
+
+    public CachingCRServo(CRServo servo) {
+        this(servo, new WriteCache());
+    }
+
+    public CachingCRServo(CRServo servo, WriteCache powerCache) {
+        this.servo = servo;
+        this.powerCache = powerCache;
+    }
+
+    public CRServo getServo() {
+        return servo;
+    }
+
+    public WriteCache getWriteCache() {
+        return powerCache;
+    }
+
+    @Override
+    public synchronized void setPower(double power) {
+        if (powerCache.shouldWrite(power)) servo.setPower(power);
+    }
+
+    @Override
+    public double getPower() {
+        return servo.getPower();
+    }
+
+    @Override
+    public synchronized void setDirection(Direction direction) {
+        servo.setDirection(direction);
+        powerCache.invalidate();
+    }
+
+    @Override
+    public Direction getDirection() {
+        return servo.getDirection();
+    }
+
+    @Override
+    public ServoController getController() {
+        return servo.getController();
+    }
+
+    @Override
+    public int getPortNumber() {
+        return servo.getPortNumber();
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return servo.getManufacturer();
+    }
+
+    @Override
+    public String getDeviceName() {
+        return servo.getDeviceName();
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return servo.getConnectionInfo();
+    }
+
+    @Override
+    public int getVersion() {
+        return servo.getVersion();
+    }
+
+    @Override
+    public synchronized void resetDeviceConfigurationForOpMode() {
+        servo.resetDeviceConfigurationForOpMode();
+        powerCache.invalidate();
+    }
+
+    @Override
+    public void close() {
+        servo.close();
+    }
+}
@@ -0,0 +1,159 @@
+package teamcode.util;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorController;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+
+/**
+ * Motor that only sends power writes that change something, as decided by its {@link WriteCache}.
+ * Everything else goes straight to the wrapped motor.
+ */
+public class CachingDcMotor implements DcMotor {
+    private final DcMotor motor;
+    private final WriteCache powerCache;
+
+    public CachingDcMotor(DcMotor motor) {
+        this(motor, new WriteCache());
+    }
+
+    public CachingDcMotor(DcMotor motor, WriteCache powerCache) {
+        this.motor = motor;
+        this.powerCache = powerCache;
+    }
+
+    public DcMotor getMotor() {
+        return motor;
+    }
+
+    public WriteCache getWriteCache() {
+        return powerCache;
+    }
+
+    @Override
+    public synchronized void setPower(double power) {
+        if (powerCache.shouldWrite(power)) motor.setPower(power);
+    }
+
+    @Override
+    public double getPower() {
+        return motor.getPower();
+    }
+
+    @Override
+    public synchronized void setDirection(Direction direction) {
+        motor.setDirection(direction);
+        powerCache.invalidate();
+    }
+
+    @Override
+    public Direction getDirection() {
+        return motor.getDirection();
+    }
+
+    @Override
+    public synchronized void setMode(RunMode mode) {
+        // some modes change or reset the power on the hub
+        motor.setMode(mode);
+        powerCache.invalidate();
+    }
+
+    @Override
+    public RunMode getMode() {
+        return motor.getMode();
+    }
+
+    @Override
+    public synchronized void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior) {
+        motor.setZeroPowerBehavior(zeroPowerBehavior);
+        powerCache.invalidate();
+    }
+
+    @Override
+    public ZeroPowerBehavior getZeroPowerBehavior() {
+        return motor.getZeroPowerBehavior();
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public synchronized void setPowerFloat() {
+        motor.setPowerFloat();
+        powerCache.invalidate();
+    }
+
+    @Override
+    public boolean getPowerFloat() {
+        return motor.getPowerFloat();
+    }
+
+    @Override
+    public synchronized void setMotorType(MotorConfigurationType motorType) {
+        motor.setMotorType(motorType);
+        powerCache.invalidate();
+    }
+
+    @Override
+    public MotorConfigurationType getMotorType() {
+        return motor.getMotorType();
+    }
+
+    @Override
+    public void setTargetPosition(int position) {
+        motor.setTargetPosition(position);
+    }
+
+    @Override
+    public int getTargetPosition() {
+        return motor.getTargetPosition();
+    }
+
+    @Override
+    public boolean isBusy() {
+        return motor.isBusy();
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return motor.getCurrentPosition();
+    }
+
+    @Override
+    public DcMotorController getController() {
+        return motor.getController();
+    }
+
+    @Override
+    public int getPortNumber() {
+        return motor.getPortNumber();
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return motor.getManufacturer();
+    }
+
+    @Override
+    public String getDeviceName() {
+        return motor.getDeviceName();
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return motor.getConnectionInfo();
+    }
+
+    @Override
+    public int getVersion() {
+        return motor.getVersion();
+    }
+
+    @Override
+    public synchronized void resetDeviceConfigurationForOpMode() {
+        motor.resetDeviceConfigurationForOpMode();
+        powerCache.invalidate();
+    }
+
+    @Override
+    public void close() {
+        motor.close();
+    }
+}
@@ -0,0 +1,98 @@
+package teamcode.util;
+
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.hardware.ServoController;
+
+/**
+ * Servo that only sends position writes that change something, as decided by its
+ * {@link WriteCache}. Everything else goes straight to the wrapped servo.
+ */
+public class CachingServo implements Servo {
+    private final Servo servo;
+    private final WriteCache positionCache;
+
+    public CachingServo(Servo servo) {
+        this(servo, new WriteCache());
+    }
+
+    public CachingServo(Servo servo, WriteCache positionCache) {
+        this.servo = servo;
+        this.positionCache = positionCache;
+    }
+
+    public Servo getServo() {
+        return servo;
+    }
+
+    public WriteCache getWriteCache() {
+        return positionCache;
+    }
+
+    @Override
+    public synchronized void setPosition(double position) {
+        if (positionCache.shouldWrite(position)) servo.setPosition(position);
+    }
+
+    @Override
+    public double getPosition() {
+        return servo.getPosition();
+    }
+
+    @Override
+    public synchronized void setDirection(Direction direction) {
+        servo.setDirection(direction);
+        positionCache.invalidate();
+    }
+
+    @Override
+    public Direction getDirection() {
+        return servo.getDirection();
+    }
+
+    @Override
+    public synchronized void scaleRange(double min, double max) {
+        servo.scaleRange(min, max);
+        positionCache.invalidate();
+    }
+
+    @Override
+    public ServoController getController() {
+        return servo.getController();
+    }
+
+    @Override
+    public int getPortNumber() {
+        return servo.getPortNumber();
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return servo.getManufacturer();
+    }
+
+    @Override
+    public String getDeviceName() {
+        return servo.getDeviceName();
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return servo.getConnectionInfo();
+    }
+
+    @Override
+    public int getVersion() {
+        return servo.getVersion();
+    }
+
+    @Override
+    public synchronized void resetDeviceConfigurationForOpMode() {
+        servo.resetDeviceConfigurationForOpMode();
+        positionCache.invalidate();
+    }
+
+    @Override
+    public void close() {
+        servo.close();
+    }
+}
@@ -0,0 +1,196 @@
+package teamcode.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs periodic control tasks at fixed rates on a small pool of threads, instead of each loop
+ * spinning as fast as it can. Each task is told how long it has been since its last run. It keeps
+ * statistics on how late its runs start and how often a run takes longer than its period.
+ * <p>
+ * Runs are scheduled at fixed rate: a run that starts late does not shift the ones after it. A task
+ * never runs concurrently with itself, so its state needs no locking. A task that throws is
+ * stopped, and the exception is kept in its {@link TaskStats}.
+ */
+public class ControlScheduler {
+    public static final int DEFAULT_THREAD_COUNT = 2;
+
+    public interface PeriodicTask {
+        /**
+         * @param dt seconds since the previous run started; the period for the first run
+         */
+        void run(double dt);
+    }
+
+    /**
+     * Timing statistics of one scheduled task.
+     */
+    public static class TaskStats {
+        private final String name;
+        private final double rateHz;
+        private final long periodNanos;
+
+        private long firstStartNanos;
+        private long lastStartNanos;
+
+        private volatile long runs;
+        private volatile long overruns;
+        private volatile long totalJitterNanos;
+        private volatile long maxJitterNanos;
+        private volatile long maxRunNanos;
+        private volatile double lastDt;
+        private volatile RuntimeException failure;
+
+        TaskStats(String name, double rateHz) {
+            this.name = name;
+            this.rateHz = rateHz;
+            this.periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rateHz);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getRateHz() {
+            return rateHz;
+        }
+
+        public long getRuns() {
+            return runs;
+        }
+
+        /**
+         * Runs that took longer than the period.
+         */
+        public long getOverruns() {
+            return overruns;
+        }
+
+        /**
+         * Average time a run started after its scheduled time, in milliseconds.
+         */
+        public double getAverageJitter() {
+            long runs = this.runs;
+            return runs == 0 ? 0 : totalJitterNanos / 1e6 / runs;
+        }
+
+        public double getMaxJitter() {
+            return maxJitterNanos / 1e6;
+        }
+
+        /**
+         * Longest single run, in milliseconds.
+         */
+        public double getMaxRunTime() {
+            return maxRunNanos / 1e6;
+        }
+
+        public double getLastDt() {
+            return lastDt;
+        }
+
+        /**
+         * What the task threw when it was stopped, or null while it runs.
+         */
+        public RuntimeException getFailure() {
+            return failure;
+        }
+    }
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final List<TaskStats> taskStats = Collections.synchronizedList(new ArrayList<>());
+
+    public ControlScheduler() {
+        this(DEFAULT_THREAD_COUNT);
+    }
+
+    public ControlScheduler(int threadCount) {
+        executor = new ScheduledThreadPoolExecutor(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "ControlScheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts running {@code task} at {@code rateHz}, first right away.
+     */
+    public TaskStats schedule(String name, double rateHz, PeriodicTask task) {
+        if (rateHz <= 0) throw new IllegalArgumentException("rateHz must be positive");
+
+        TaskStats stats = new TaskStats(name, rateHz);
+        taskStats.add(stats);
+
+        executor.scheduleAtFixedRate(() -> run(stats, task), 0, stats.periodNanos, TimeUnit.NANOSECONDS);
+
+        return stats;
+    }
+
+    private static void run(TaskStats stats, PeriodicTask task) {
+        long start = System.nanoTime();
+
+        double dt;
+        if (stats.runs == 0) {
+            stats.firstStartNanos = start;
+            dt = stats.periodNanos / 1e9;
+        } else {
+            dt = (start - stats.lastStartNanos) / 1e9;
+        }
+        stats.lastStartNanos = start;
+        stats.lastDt = dt;
+
+        long jitter = Math.max(0, start - (stats.firstStartNanos + stats.runs * stats.periodNanos));
+        stats.totalJitterNanos += jitter;
+        stats.maxJitterNanos = Math.max(stats.maxJitterNanos, jitter);
+
+        try {
+            task.run(dt);
+        } catch (RuntimeException e) {
+            stats.failure = e;
+            // throwing out of a fixed-rate task cancels its later runs
+            throw e;
+        } finally {
+            long runNanos = System.nanoTime() - start;
+            if (runNanos > stats.periodNanos) stats.overruns++;
+            stats.maxRunNanos = Math.max(stats.maxRunNanos, runNanos);
+
+            stats.runs++;
+        }
+    }
+
+    public List<TaskStats> getTaskStats() {
+        synchronized (taskStats) {
+            return new ArrayList<>(taskStats);
+        }
+    }
+
+    /**
+     * What the first stopped task threw, or null while every task runs. Cheap enough to check every
+     * loop, so an opmode can end instead of running with a dead task.
+     */
+    public RuntimeException getFailure() {
+        synchronized (taskStats) {
+            for (int i = 0; i < taskStats.size(); i++) {
+                RuntimeException failure = taskStats.get(i).failure;
+                if (failure != null) return failure;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stops every task and waits for runs in progress to finish.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
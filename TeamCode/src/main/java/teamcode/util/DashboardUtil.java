@@ -5,8 +5,6 @@ import com.acmerobotics.roadrunner.geometry.Pose2d;
 import com.acmerobotics.roadrunner.geometry.Vector2d;
 import com.acmerobotics.roadrunner.path.Path;
 
-import java.util.List;
-
 /**
  * Set of helper functions for drawing Road Runner paths and trajectories on dashboard canvases.
  */
@@ -15,18 +13,21 @@ public class DashboardUtil {
     private static final double ROBOT_RADIUS = 9; // in
 
 
-    public static void drawPoseHistory(Canvas canvas, List<Pose2d> poseHistory) {
+    public static void drawPoseHistory(Canvas canvas, PoseHistory poseHistory) {
         double[] xPoints = new double[poseHistory.size()];
         double[] yPoints = new double[poseHistory.size()];
         for (int i = 0; i < poseHistory.size(); i++) {
-            Pose2d pose = poseHistory.get(i);
-            xPoints[i] = pose.getX();
-            yPoints[i] = pose.getY();
+            xPoints[i] = poseHistory.getX(i);
+            yPoints[i] = poseHistory.getY(i);
         }
         canvas.strokePolyline(xPoints, yPoints);
     }
 
-    public static void drawSampledPath(Canvas canvas, Path path, double resolution) {
+    /**
+     * Samples a path into a polyline, returned as {xPoints, yPoints}. The arrays can be cached and
+     * drawn repeatedly with {@link Canvas#strokePolyline(double[], double[])}.
+     */
+    public static double[][] samplePath(Path path, double resolution) {
         int samples = (int) Math.ceil(path.length() / resolution);
         double[] xPoints = new double[samples];
         double[] yPoints = new double[samples];
@@ -37,7 +38,16 @@ public class DashboardUtil {
             xPoints[i] = pose.getX();
             yPoints[i] = pose.getY();
         }
-        canvas.strokePolyline(xPoints, yPoints);
+        return new double[][] {xPoints, yPoints};
+    }
+
+    public static double[][] samplePath(Path path) {
+        return samplePath(path, DEFAULT_RESOLUTION);
+    }
+
+    public static void drawSampledPath(Canvas canvas, Path path, double resolution) {
+        double[][] points = samplePath(path, resolution);
+        canvas.strokePolyline(points[0], points[1]);
     }
 
     public static void drawSampledPath(Canvas canvas, Path path) {
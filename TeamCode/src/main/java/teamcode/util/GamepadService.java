@@ -0,0 +1,105 @@
+package teamcode.util;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Gives every thread of an opmode the same coherent view of the gamepads. The SDK updates the
+ * opmode's gamepads in place from its own thread, so reading their fields one by one can mix two
+ * updates. This copies both gamepads at most once per SDK update into a {@link GamepadSnapshot}
+ * and publishes it through an atomic reference.
+ * <p>
+ * Any thread may call {@link #update()}. The first call after an SDK update takes the snapshot, and
+ * later calls return it. {@link #get()} returns the latest snapshot without checking for a newer
+ * update. {@link #awaitNewer} lets a thread sleep until something changed instead of spinning.
+ */
+public class GamepadService {
+    private final Gamepad gamepad1;
+    private final Gamepad gamepad2;
+
+    private final AtomicReference<GamepadSnapshot> snapshot = new AtomicReference<>();
+
+    private long lastTimestamp1;
+    private long lastTimestamp2;
+
+    public GamepadService(Gamepad gamepad1, Gamepad gamepad2) {
+        this.gamepad1 = gamepad1;
+        this.gamepad2 = gamepad2;
+
+        synchronized (this) {
+            publish(0);
+        }
+    }
+
+    /**
+     * Publishes a new snapshot if either gamepad was updated since the last one and returns the
+     * latest snapshot.
+     */
+    public synchronized GamepadSnapshot update() {
+        GamepadSnapshot current = snapshot.get();
+
+        if (gamepad1.timestamp == lastTimestamp1 && gamepad2.timestamp == lastTimestamp2) return current;
+
+        publish(current.getSequence() + 1);
+        notifyAll();
+
+        return snapshot.get();
+    }
+
+    /**
+     * Latest published snapshot. Never blocks.
+     */
+    public GamepadSnapshot get() {
+        return snapshot.get();
+    }
+
+    /**
+     * Waits until a snapshot newer than {@code previous} is published or the timeout passes, and
+     * returns the latest snapshot either way.
+     */
+    public GamepadSnapshot awaitNewer(GamepadSnapshot previous, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        synchronized (this) {
+            while (!snapshot.get().isNewerThan(previous)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) break;
+
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        }
+
+        return snapshot.get();
+    }
+
+    private void publish(long sequence) {
+        Gamepad copy1 = new Gamepad();
+        Gamepad copy2 = new Gamepad();
+
+        lastTimestamp1 = copyOf(gamepad1, copy1);
+        lastTimestamp2 = copyOf(gamepad2, copy2);
+
+        snapshot.set(new GamepadSnapshot(sequence, System.nanoTime(), copy1, copy2));
+    }
+
+    /**
+     * Copies {@code gamepad} into {@code copy} until two copies in a row are identical, and returns
+     * the timestamp of the update that was copied. The SDK may write the timestamp before or after
+     * the other fields, so an unchanged timestamp alone does not mean the copy is whole.
+     */
+    private static long copyOf(Gamepad gamepad, Gamepad copy) {
+        copy.copy(gamepad);
+        byte[] previous = copy.toByteArray();
+
+        while (true) {
+            copy.copy(gamepad);
+            byte[] current = copy.toByteArray();
+
+            if (Arrays.equals(current, previous)) return copy.timestamp;
+            previous = current;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package teamcode.util;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+/**
+ * Both gamepads as they were at one SDK update, published by {@link GamepadService}. The gamepads
+ * are private copies that are never written after publication. Treat them as read-only.
+ */
+public final class GamepadSnapshot {
+    private final long sequence;
+    private final long publishNanos;
+    private final Gamepad gamepad1;
+    private final Gamepad gamepad2;
+
+    GamepadSnapshot(long sequence, long publishNanos, Gamepad gamepad1, Gamepad gamepad2) {
+        this.sequence = sequence;
+        this.publishNanos = publishNanos;
+        this.gamepad1 = gamepad1;
+        this.gamepad2 = gamepad2;
+    }
+
+    /**
+     * Increases by one with every snapshot published.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * {@link System#nanoTime()} at which this snapshot was taken.
+     */
+    public long getPublishNanos() {
+        return publishNanos;
+    }
+
+    public Gamepad getGamepad1() {
+        return gamepad1;
+    }
+
+    public Gamepad getGamepad2() {
+        return gamepad2;
+    }
+
+    public boolean isNewerThan(GamepadSnapshot other) {
+        return sequence > other.sequence;
+    }
+}
@@ -0,0 +1,87 @@
+package teamcode.util;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import java.util.List;
+
+/**
+ * Puts every hub in manual bulk caching and refreshes their caches once per control cycle, so all
+ * encoder, velocity and digital reads in a cycle come from one bulk transaction per hub no matter
+ * how many subsystems read. With automatic caching, reading the same channel twice in a loop
+ * silently issues another bulk read.
+ * <p>
+ * Call {@link #begin()} before the first read of each cycle; reads until the next call see the
+ * same snapshot. Only one thread may own the cycle: whichever runs the localizer, i.e. the
+ * odometry thread while an {@link teamcode.drive.OdometryService} runs and the opmode thread
+ * otherwise. Other threads read from the owner's snapshot without calling begin(), or they would
+ * refresh it in the middle of the owner's reads.
+ * <p>
+ * In manual mode the hubs only read in bulk when asked to, so as long as nothing else calls
+ * {@code clearBulkCache()} or {@code getBulkData()} on them, {@link #getBulkReadCount()} counts
+ * every bulk transaction. Reads outside the bulk data, like the IMU over I2C, are not counted.
+ */
+public class HardwareCycle {
+    private final LynxModule[] modules;
+
+    private long cycleCount;
+    private long bulkReadCount;
+    private long bulkReadNanos;
+    private long cycleStartNanos;
+
+    public HardwareCycle(HardwareMap hardwareMap) {
+        List<LynxModule> moduleList = hardwareMap.getAll(LynxModule.class);
+        modules = moduleList.toArray(new LynxModule[0]);
+
+        for (LynxModule module : modules) {
+            module.setBulkCachingMode(LynxModule.BulkCachingMode.MANUAL);
+        }
+    }
+
+    /**
+     * Starts a new cycle: reads every hub again, one bulk transaction per hub.
+     */
+    public synchronized void begin() {
+        cycleStartNanos = System.nanoTime();
+
+        for (LynxModule module : modules) {
+            // always issues a transaction and replaces the cache, so reads in this cycle don't
+            module.getBulkData();
+        }
+
+        cycleCount++;
+        bulkReadCount += modules.length;
+        bulkReadNanos += System.nanoTime() - cycleStartNanos;
+    }
+
+    public int getHubCount() {
+        return modules.length;
+    }
+
+    public synchronized long getCycleCount() {
+        return cycleCount;
+    }
+
+    /**
+     * Bulk transactions issued so far. Every cycle costs one per hub, so compare the change in this
+     * count across a control loop with {@link #getHubCount()} to see how many cycles the loop
+     * started.
+     */
+    public synchronized long getBulkReadCount() {
+        return bulkReadCount;
+    }
+
+    /**
+     * Average time spent on the bulk reads of a cycle, in milliseconds.
+     */
+    public synchronized double getAverageCycleReadTime() {
+        return cycleCount == 0 ? 0 : bulkReadNanos / 1e6 / cycleCount;
+    }
+
+    /**
+     * {@link System#nanoTime()} at which the current cycle's snapshot was taken.
+     */
+    public synchronized long getCycleStartNanos() {
+        return cycleStartNanos;
+    }
+}
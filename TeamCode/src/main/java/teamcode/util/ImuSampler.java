@@ -0,0 +1,280 @@
+package teamcode.util;
+
+import com.acmerobotics.roadrunner.util.Angle;
+import com.qualcomm.robotcore.hardware.IMU;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AngularVelocity;
+import org.firstinspires.ftc.robotcore.external.navigation.YawPitchRollAngles;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Polls an IMU on its own thread into a ring buffer of timestamped samples. This takes the
+ * blocking I2C reads out of the control loop. Readers get the latest heading, or the heading at a
+ * given {@link System#nanoTime()}. They can ask for the time the encoders were read, so the two
+ * line up.
+ * <p>
+ * There is a single writer. It fills a slot and then publishes it by advancing the volatile sample
+ * count. Readers copy the slots they need and check afterwards that none of them was overwritten,
+ * retrying if one was. The slots are atomic arrays, doubles stored as their bits, so the slot reads
+ * cannot move past that check. Reading never blocks and never allocates.
+ */
+public class ImuSampler {
+    public static final int DEFAULT_CAPACITY = 32;
+
+    // the heading is only extrapolated this many sample periods past the newest sample
+    private static final double MAX_EXTRAPOLATION_PERIODS = 2;
+
+    private final IMU imu;
+    private final long periodNanos;
+
+    private final int capacity;
+    private final AtomicLongArray times;
+    private final AtomicLongArray headings;
+    private final AtomicLongArray headingVelocities;
+
+    // samples written so far; sample i lives in slot i % capacity, and a read of it is valid
+    // as long as count stayed below i + capacity, because sample i + capacity overwrites it
+    private volatile long count;
+
+    private volatile Thread thread;
+    private volatile boolean running;
+    private volatile RuntimeException failure;
+
+    public ImuSampler(IMU imu, double rateHz) {
+        this(imu, rateHz, DEFAULT_CAPACITY);
+    }
+
+    public ImuSampler(IMU imu, double rateHz, int capacity) {
+        if (rateHz <= 0) throw new IllegalArgumentException("rateHz must be positive");
+        if (capacity < 2) throw new IllegalArgumentException("capacity must be at least 2");
+
+        this.imu = imu;
+        this.periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rateHz);
+
+        this.capacity = capacity;
+        times = new AtomicLongArray(capacity);
+        headings = new AtomicLongArray(capacity);
+        headingVelocities = new AtomicLongArray(capacity);
+    }
+
+    public synchronized void start() {
+        if (thread != null) return;
+
+        failure = null;
+        running = true;
+
+        thread = new Thread(this::run, "ImuSampler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the sampling thread and waits for its last read to finish.
+     */
+    public synchronized void stop() {
+        Thread thread = this.thread;
+        if (thread == null) return;
+
+        running = false;
+        thread.interrupt();
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.thread = null;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * What stopped the sampling thread, if it died instead of being stopped.
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    public long getSampleCount() {
+        return count;
+    }
+
+    public boolean hasSample() {
+        return count > 0;
+    }
+
+    private void run() {
+        long next = System.nanoTime();
+
+        try {
+            while (running) {
+                sample();
+
+                next += periodNanos;
+
+                long wait;
+                if (next - System.nanoTime() <= 0) {
+                    next = System.nanoTime();
+                } else {
+                    while (running && (wait = next - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // reads interrupted by stop() are not failures
+            if (running) failure = e;
+        } finally {
+            running = false;
+        }
+    }
+
+    private void sample() {
+        YawPitchRollAngles angles = imu.getRobotYawPitchRollAngles();
+        AngularVelocity angularVelocity = imu.getRobotAngularVelocity(AngleUnit.RADIANS);
+
+        long n = count;
+        int slot = (int) (n % capacity);
+
+        times.set(slot, angles.getAcquisitionTime());
+        headings.set(slot, Double.doubleToRawLongBits(angles.getYaw(AngleUnit.RADIANS)));
+        headingVelocities.set(slot, Double.doubleToRawLongBits(angularVelocity.zRotationRate));
+
+        count = n + 1;
+    }
+
+    /**
+     * Heading of the newest sample in radians, or NaN before the first sample.
+     */
+    public double getHeading() {
+        while (true) {
+            long n = count;
+            if (n == 0) return Double.NaN;
+
+            double heading = heading((int) ((n - 1) % capacity));
+
+            if (count - (n - 1) < capacity) return heading;
+        }
+    }
+
+    /**
+     * Heading velocity of the newest sample in radians per second, or NaN before the first sample.
+     */
+    public double getHeadingVelocity() {
+        while (true) {
+            long n = count;
+            if (n == 0) return Double.NaN;
+
+            double headingVelocity = headingVelocity((int) ((n - 1) % capacity));
+
+            if (count - (n - 1) < capacity) return headingVelocity;
+        }
+    }
+
+    /**
+     * {@link System#nanoTime()} at which the newest sample was read, or 0 before the first sample.
+     */
+    public long getSampleTime() {
+        while (true) {
+            long n = count;
+            if (n == 0) return 0;
+
+            long time = times.get((int) ((n - 1) % capacity));
+
+            if (count - (n - 1) < capacity) return time;
+        }
+    }
+
+    /**
+     * Heading at {@code nanoTime}, interpolated between the samples around it. Past the newest
+     * sample it is extrapolated with the newest heading velocity for up to two sample periods.
+     * Before the oldest buffered sample, the oldest heading is returned. Returns NaN before the
+     * first sample.
+     */
+    public double getHeading(long nanoTime) {
+        while (true) {
+            long n = count;
+            if (n == 0) return Double.NaN;
+
+            long oldest = Math.max(0, n - capacity + 1);
+            double heading = Double.NaN;
+            long lowest = oldest;
+
+            // walk back from the newest sample to the first one at or before nanoTime
+            for (long i = n - 1; i >= oldest; i--) {
+                int slot = (int) (i % capacity);
+                long time = times.get(slot);
+
+                if (time - nanoTime <= 0 || i == oldest) {
+                    if (i == n - 1 || time - nanoTime > 0) {
+                        // newest sample, or older than everything buffered
+                        long dt = Math.min(nanoTime - time, (long) (MAX_EXTRAPOLATION_PERIODS * periodNanos));
+                        heading = heading(slot) + Math.max(0, dt) * 1e-9 * headingVelocity(slot);
+                    } else {
+                        int nextSlot = (int) ((i + 1) % capacity);
+                        long nextTime = times.get(nextSlot);
+                        double t = nextTime == time ? 0 : (double) (nanoTime - time) / (nextTime - time);
+
+                        heading = heading(slot) + t * Angle.normDelta(heading(nextSlot) - heading(slot));
+                    }
+                    lowest = i;
+                    break;
+                }
+            }
+
+            if (count - lowest < capacity) return Angle.norm(heading);
+        }
+    }
+
+    /**
+     * Heading velocity at {@code nanoTime}, interpolated the same way as {@link #getHeading(long)}
+     * but held constant past either end of the buffer. Returns NaN before the first sample.
+     */
+    public double getHeadingVelocity(long nanoTime) {
+        while (true) {
+            long n = count;
+            if (n == 0) return Double.NaN;
+
+            long oldest = Math.max(0, n - capacity + 1);
+            double headingVelocity = Double.NaN;
+            long lowest = oldest;
+
+            for (long i = n - 1; i >= oldest; i--) {
+                int slot = (int) (i % capacity);
+                long time = times.get(slot);
+
+                if (time - nanoTime <= 0 || i == oldest) {
+                    if (i == n - 1 || time - nanoTime > 0) {
+                        headingVelocity = headingVelocity(slot);
+                    } else {
+                        int nextSlot = (int) ((i + 1) % capacity);
+                        long nextTime = times.get(nextSlot);
+                        double t = nextTime == time ? 0 : (double) (nanoTime - time) / (nextTime - time);
+
+                        headingVelocity = headingVelocity(slot)
+                                + t * (headingVelocity(nextSlot) - headingVelocity(slot));
+                    }
+                    lowest = i;
+                    break;
+                }
+            }
+
+            if (count - lowest < capacity) return headingVelocity;
+        }
+    }
+
+    private double heading(int slot) {
+        return Double.longBitsToDouble(headings.get(slot));
+    }
+
+    private double headingVelocity(int slot) {
+        return Double.longBitsToDouble(headingVelocities.get(slot));
+    }
+}
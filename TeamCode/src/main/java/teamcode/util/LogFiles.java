@@ -4,6 +4,7 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 
 import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.fasterxml.jackson.annotation.JsonValue;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
@@ -38,8 +39,87 @@ public final class LogFiles {
     private static final File ROOT =
             new File(AppUtil.ROOT_FOLDER + "/RoadRunner/logs/");
 
+    // record() stops after this long
+    private static final long MAX_RECORD_NS = 3 * 60 * 1_000_000_000L;
+    // the columns start out sized for that at 100 Hz and double whenever they fill up
+    private static final int INITIAL_CAPACITY = 3 * 60 * 100;
+
     public static LogFile log = new LogFile("uninitialized");
 
+    /**
+     * Columns of primitives, so record() does not box every value. Each one allocates
+     * INITIAL_CAPACITY values on the first add and only reallocates when it is full, so a faster
+     * loop still logs the whole run. Written to JSON as a plain array.
+     */
+    public static final class LongColumn {
+        private long[] values;
+        private int size;
+
+        void add(long value) {
+            if (values == null) {
+                values = new long[INITIAL_CAPACITY];
+            } else if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        @JsonValue
+        public long[] toArray() {
+            return values == null ? new long[0] : Arrays.copyOf(values, size);
+        }
+    }
+
+    public static final class DoubleColumn {
+        private double[] values;
+        private int size;
+
+        void add(double value) {
+            if (values == null) {
+                values = new double[INITIAL_CAPACITY];
+            } else if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        @JsonValue
+        public double[] toArray() {
+            return values == null ? new double[0] : Arrays.copyOf(values, size);
+        }
+    }
+
+    public static final class IntColumn {
+        private int[] values;
+        private int size;
+
+        void add(int value) {
+            if (values == null) {
+                values = new int[INITIAL_CAPACITY];
+            } else if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        @JsonValue
+        public int[] toArray() {
+            return values == null ? new int[0] : Arrays.copyOf(values, size);
+        }
+    }
+
     public static class LogFile {
         public String version = "quickstart1 v2";
 
@@ -93,22 +173,22 @@ public final class LogFiles {
         public RevHubOrientationOnRobot.LogoFacingDirection LOGO_FACING_DIR = DriveConstants.LOGO_FACING_DIR;
         public RevHubOrientationOnRobot.UsbFacingDirection USB_FACING_DIR = DriveConstants.USB_FACING_DIR;
 
-        public List<Long> nsTimes = new ArrayList<>();
+        public LongColumn nsTimes = new LongColumn();
 
-        public List<Double> targetXs = new ArrayList<>();
-        public List<Double> targetYs = new ArrayList<>();
-        public List<Double> targetHeadings = new ArrayList<>();
+        public DoubleColumn targetXs = new DoubleColumn();
+        public DoubleColumn targetYs = new DoubleColumn();
+        public DoubleColumn targetHeadings = new DoubleColumn();
 
-        public List<Double> xs = new ArrayList<>();
-        public List<Double> ys = new ArrayList<>();
-        public List<Double> headings = new ArrayList<>();
+        public DoubleColumn xs = new DoubleColumn();
+        public DoubleColumn ys = new DoubleColumn();
+        public DoubleColumn headings = new DoubleColumn();
 
-        public List<Double> voltages = new ArrayList<>();
+        public DoubleColumn voltages = new DoubleColumn();
 
-        public List<List<Integer>> driveEncPositions = new ArrayList<>();
-        public List<List<Integer>> driveEncVels = new ArrayList<>();
-        public List<List<Integer>> trackingEncPositions = new ArrayList<>();
-        public List<List<Integer>> trackingEncVels = new ArrayList<>();
+        public List<IntColumn> driveEncPositions = new ArrayList<>();
+        public List<IntColumn> driveEncVels = new ArrayList<>();
+        public List<IntColumn> trackingEncPositions = new ArrayList<>();
+        public List<IntColumn> trackingEncVels = new ArrayList<>();
 
         public LogFile(String opModeName) {
             this.opModeName = opModeName;
@@ -116,11 +196,11 @@ public final class LogFiles {
     }
 
     public static void record(
-            Pose2d targetPose, Pose2d pose, double voltage,
-            List<Integer> lastDriveEncPositions, List<Integer> lastDriveEncVels, List<Integer> lastTrackingEncPositions, List<Integer> lastTrackingEncVels
+            MutablePose2d targetPose, Pose2d pose, double voltage,
+            int[] lastDriveEncPositions, int[] lastDriveEncVels, int[] lastTrackingEncPositions, int[] lastTrackingEncVels
     ) {
         long nsTime = System.nanoTime();
-        if (nsTime - log.nsStart > 3 * 60 * 1_000_000_000L) {
+        if (nsTime - log.nsStart > MAX_RECORD_NS) {
             return;
         }
 
@@ -136,30 +216,19 @@ public final class LogFiles {
 
         log.voltages.add(voltage);
 
-        while (log.driveEncPositions.size() < lastDriveEncPositions.size()) {
-            log.driveEncPositions.add(new ArrayList<>());
-        }
-        while (log.driveEncVels.size() < lastDriveEncVels.size()) {
-            log.driveEncVels.add(new ArrayList<>());
-        }
-        while (log.trackingEncPositions.size() < lastTrackingEncPositions.size()) {
-            log.trackingEncPositions.add(new ArrayList<>());
-        }
-        while (log.trackingEncVels.size() < lastTrackingEncVels.size()) {
-            log.trackingEncVels.add(new ArrayList<>());
-        }
+        record(log.driveEncPositions, lastDriveEncPositions);
+        record(log.driveEncVels, lastDriveEncVels);
+        record(log.trackingEncPositions, lastTrackingEncPositions);
+        record(log.trackingEncVels, lastTrackingEncVels);
+    }
 
-        for (int i = 0; i < lastDriveEncPositions.size(); i++) {
-            log.driveEncPositions.get(i).add(lastDriveEncPositions.get(i));
-        }
-        for (int i = 0; i < lastDriveEncVels.size(); i++) {
-            log.driveEncVels.get(i).add(lastDriveEncVels.get(i));
+    private static void record(List<IntColumn> columns, int[] values) {
+        while (columns.size() < values.length) {
+            columns.add(new IntColumn());
         }
-        for (int i = 0; i < lastTrackingEncPositions.size(); i++) {
-            log.trackingEncPositions.get(i).add(lastTrackingEncPositions.get(i));
-        }
-        for (int i = 0; i < lastTrackingEncVels.size(); i++) {
-            log.trackingEncVels.get(i).add(lastTrackingEncVels.get(i));
+
+        for (int i = 0; i < values.length; i++) {
+            columns.get(i).add(values[i]);
         }
     }
 
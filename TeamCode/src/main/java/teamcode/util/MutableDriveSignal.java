@@ -0,0 +1,50 @@
+package teamcode.util;
+
+import com.acmerobotics.roadrunner.drive.DriveSignal;
+
+/**
+ * Robot-relative velocity and acceleration command that is updated in place, so the follower can
+ * hand one to the drive every loop without allocating. Only {@link #toDriveSignal()} creates an
+ * immutable Road Runner signal.
+ */
+public final class MutableDriveSignal {
+    private final MutablePose2d vel = new MutablePose2d();
+    private final MutablePose2d accel = new MutablePose2d();
+
+    public MutablePose2d getVel() {
+        return vel;
+    }
+
+    public MutablePose2d getAccel() {
+        return accel;
+    }
+
+    public void set(double velX, double velY, double velHeading, double accelX, double accelY, double accelHeading) {
+        vel.set(velX, velY, velHeading);
+        accel.set(accelX, accelY, accelHeading);
+    }
+
+    public void set(DriveSignal signal) {
+        vel.set(signal.getVel());
+        accel.set(signal.getAccel());
+    }
+
+    public void setZero() {
+        set(0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Multiplies both the velocity and the acceleration by {@code factor}, e.g. for voltage
+     * compensation.
+     */
+    public void scale(double factor) {
+        set(
+                vel.getX() * factor, vel.getY() * factor, vel.getHeading() * factor,
+                accel.getX() * factor, accel.getY() * factor, accel.getHeading() * factor
+        );
+    }
+
+    public DriveSignal toDriveSignal() {
+        return new DriveSignal(vel.toPose2d(), accel.toPose2d());
+    }
+}
@@ -0,0 +1,74 @@
+package teamcode.util;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.util.Angle;
+
+/**
+ * Pose that is updated in place, for math that runs every loop and should not allocate. Only
+ * {@link #toPose2d()} creates an immutable Road Runner pose.
+ */
+public final class MutablePose2d {
+    // below this heading change the sin(x) / x terms are replaced by their Taylor expansion
+    private static final double EPSILON = 1e-6;
+
+    private double x;
+    private double y;
+    private double heading;
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getHeading() {
+        return heading;
+    }
+
+    public void set(double x, double y, double heading) {
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+    }
+
+    public void set(Pose2d pose) {
+        set(pose.getX(), pose.getY(), pose.getHeading());
+    }
+
+    public void setHeading(double heading) {
+        this.heading = heading;
+    }
+
+    /**
+     * Moves this field pose by a robot-relative displacement, assuming the robot moved along a
+     * constant-curvature arc. Same as Road Runner's {@code Kinematics.relativeOdometryUpdate}.
+     */
+    public void relativeOdometryUpdate(double dx, double dy, double dHeading) {
+        double sineTerm;
+        double cosTerm;
+
+        if (Math.abs(dHeading) < EPSILON) {
+            sineTerm = 1.0 - dHeading * dHeading / 6.0;
+            cosTerm = dHeading / 2.0;
+        } else {
+            sineTerm = Math.sin(dHeading) / dHeading;
+            cosTerm = (1 - Math.cos(dHeading)) / dHeading;
+        }
+
+        double arcX = sineTerm * dx - cosTerm * dy;
+        double arcY = cosTerm * dx + sineTerm * dy;
+
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+
+        x += arcX * cos - arcY * sin;
+        y += arcX * sin + arcY * cos;
+        heading = Angle.norm(heading + dHeading);
+    }
+
+    public Pose2d toPose2d() {
+        return new Pose2d(x, y, heading);
+    }
+}
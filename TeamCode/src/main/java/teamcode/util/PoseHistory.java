@@ -0,0 +1,99 @@
+package teamcode.util;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+
+/**
+ * Fixed-capacity ring buffer of robot positions backed by primitive arrays, so recording a pose
+ * every loop does not allocate. A limit of -1 keeps every pose, growing the buffer as needed.
+ */
+public class PoseHistory {
+    private static final int INITIAL_CAPACITY = 128;
+
+    private double[] xs;
+    private double[] ys;
+
+    private int start;
+    private int size;
+    private int limit;
+
+    public PoseHistory(int limit) {
+        this.limit = limit;
+
+        int capacity = limit > 0 ? limit : INITIAL_CAPACITY;
+        xs = new double[capacity];
+        ys = new double[capacity];
+    }
+
+    public void setLimit(int limit) {
+        if (limit == this.limit) return;
+
+        int capacity = limit > 0 ? limit : Math.max(size, INITIAL_CAPACITY);
+        int keep = limit > -1 ? Math.min(size, limit) : size;
+        resize(capacity, keep);
+
+        this.limit = limit;
+    }
+
+    public void add(Pose2d pose) {
+        add(pose.getX(), pose.getY());
+    }
+
+    public void add(double x, double y) {
+        if (limit == 0) return;
+
+        if (size == xs.length) {
+            if (limit > -1) {
+                // full: overwrite the oldest entry
+                start = (start + 1) % xs.length;
+                size--;
+            } else {
+                resize(2 * xs.length, size);
+            }
+        }
+
+        int i = (start + size) % xs.length;
+        xs[i] = x;
+        ys[i] = y;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * X coordinate of the i-th recorded pose, oldest first.
+     */
+    public double getX(int i) {
+        return xs[(start + i) % xs.length];
+    }
+
+    /**
+     * Y coordinate of the i-th recorded pose, oldest first.
+     */
+    public double getY(int i) {
+        return ys[(start + i) % ys.length];
+    }
+
+    public void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    private void resize(int capacity, int keep) {
+        double[] newXs = new double[capacity];
+        double[] newYs = new double[capacity];
+
+        // keep the newest entries
+        int skip = size - keep;
+        for (int i = 0; i < keep; i++) {
+            newXs[i] = getX(skip + i);
+            newYs[i] = getY(skip + i);
+        }
+
+        xs = newXs;
+        ys = newYs;
+        start = 0;
+        size = keep;
+    }
+}
@@ -0,0 +1,123 @@
+package teamcode.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link ActionTimeline}s without blocking. The control loop calls {@link #update()} once per
+ * cycle, and every running timeline runs the actions whose time has come. The loop therefore keeps
+ * reading input while a macro runs, and reacts to it within one cycle.
+ * <p>
+ * Each timeline runs on a named channel. Timelines on different channels run at the same time,
+ * e.g. a scoring macro and a launcher pulse. Starting a timeline on a busy channel cancels the one
+ * running there, so new input always wins over a macro in progress.
+ * <p>
+ * Not thread-safe: start, cancel and update from the one thread that owns the mechanism. Actions
+ * run on that thread too and may start or cancel timelines themselves.
+ */
+public class TimelineRunner {
+    private static class Run {
+        final String channel;
+        final ActionTimeline timeline;
+        final long startNanos;
+        int nextAction;
+
+        Run(String channel, ActionTimeline timeline, long startNanos) {
+            this.channel = channel;
+            this.timeline = timeline;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private static final Run[] NO_RUNS = new Run[0];
+
+    private final Map<String, Run> runs = new LinkedHashMap<>();
+    // the values of runs, copied only when a run starts or ends so update() does not allocate;
+    // replaced rather than changed, so actions can start and cancel runs while update() walks it
+    private Run[] snapshot = NO_RUNS;
+
+    private long startedCount;
+    private long cancelledCount;
+
+    /**
+     * Starts {@code timeline} on {@code channel}, cancelling whatever runs there. Its first actions
+     * run at the next {@link #update()}.
+     */
+    public void start(String channel, ActionTimeline timeline) {
+        cancel(channel);
+
+        runs.put(channel, new Run(channel, timeline, System.nanoTime()));
+        snapshot = runs.values().toArray(NO_RUNS);
+        startedCount++;
+    }
+
+    /**
+     * Cancels the timeline running on {@code channel}, if any, and returns whether there was one.
+     */
+    public boolean cancel(String channel) {
+        Run run = runs.remove(channel);
+        if (run == null) return false;
+
+        snapshot = runs.values().toArray(NO_RUNS);
+        cancelledCount++;
+        run.timeline.cancelled();
+        return true;
+    }
+
+    public void cancelAll() {
+        for (Run run : snapshot) {
+            cancel(run.channel);
+        }
+    }
+
+    public boolean isRunning(String channel) {
+        return runs.containsKey(channel);
+    }
+
+    public int getRunningCount() {
+        return runs.size();
+    }
+
+    public long getStartedCount() {
+        return startedCount;
+    }
+
+    /**
+     * Timelines stopped before they were done, by a newer one or by {@link #cancel}.
+     */
+    public long getCancelledCount() {
+        return cancelledCount;
+    }
+
+    public void update() {
+        update(System.nanoTime());
+    }
+
+    /**
+     * Runs every action due at {@code nanoTime} and drops the timelines that are done.
+     */
+    public void update(long nanoTime) {
+        // runs started by the actions below wait for the next update
+        for (Run run : snapshot) {
+            String channel = run.channel;
+            ActionTimeline timeline = run.timeline;
+
+            double elapsed = (nanoTime - run.startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+
+            // stop as soon as an action replaces or cancels this run
+            while (runs.get(channel) == run
+                    && run.nextAction < timeline.getActionCount()
+                    && timeline.getTime(run.nextAction) <= elapsed) {
+                timeline.runAction(run.nextAction++);
+            }
+
+            if (runs.get(channel) == run
+                    && run.nextAction == timeline.getActionCount()
+                    && elapsed >= timeline.getDuration()) {
+                runs.remove(channel);
+                snapshot = runs.values().toArray(NO_RUNS);
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package teamcode.util;
+
+import com.acmerobotics.roadrunner.geometry.Vector2d;
+import com.acmerobotics.roadrunner.path.LineSegment;
+import com.acmerobotics.roadrunner.path.LinearInterpolator;
+import com.acmerobotics.roadrunner.path.Path;
+import com.acmerobotics.roadrunner.path.PathSegment;
+import com.acmerobotics.roadrunner.profile.MotionProfile;
+import com.acmerobotics.roadrunner.profile.MotionSegment;
+import com.acmerobotics.roadrunner.profile.MotionState;
+import com.acmerobotics.roadrunner.trajectory.MarkerCallback;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+import com.acmerobotics.roadrunner.trajectory.TrajectoryMarker;
+import com.acmerobotics.roadrunner.util.Angle;
+
+import teamcode.trajectorysequence.sequencesegment.TrajectoryLookupTable;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary form of a trajectory: the fixed-timestep samples of a {@link TrajectoryLookupTable} and
+ * a table of named markers. Assets are compiled ahead of time on a computer and memory-mapped on
+ * the robot (see {@link AssetsTrajectoryManager#loadCompiled(String, Map)}), so loading one does
+ * not generate any splines or motion profiles.
+ * <p>
+ * Layout, big-endian: magic, version, dt, duration, sample count, marker count, then the pose,
+ * velocity and acceleration samples as x, y, heading doubles, then each marker as its time and
+ * its UTF-8 name prefixed with the byte length. The header is 32 bytes so the samples stay
+ * 8-byte aligned.
+ * <p>
+ * This class must not depend on Android so the compiler can run on a plain JVM.
+ */
+public final class TrajectoryAsset {
+    public static final String EXTENSION = ".rrtraj";
+
+    private static final int MAGIC = 0x52525441; // "RRTA"
+    private static final int VERSION = 1;
+
+    private final TrajectoryLookupTable lookupTable;
+    private final List<NamedMarker> markers;
+
+    public TrajectoryAsset(TrajectoryLookupTable lookupTable, List<NamedMarker> markers) {
+        this.lookupTable = lookupTable;
+        this.markers = Collections.unmodifiableList(new ArrayList<>(markers));
+    }
+
+    public TrajectoryLookupTable getLookupTable() {
+        return lookupTable;
+    }
+
+    public List<NamedMarker> getMarkers() {
+        return markers;
+    }
+
+    public double duration() {
+        return lookupTable.duration();
+    }
+
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeDouble(lookupTable.getDt());
+        data.writeDouble(lookupTable.duration());
+        data.writeInt(lookupTable.getSampleCount());
+        data.writeInt(markers.size());
+
+        writeDoubles(data, lookupTable.getPoseSamples());
+        writeDoubles(data, lookupTable.getVelocitySamples());
+        writeDoubles(data, lookupTable.getAccelerationSamples());
+
+        for (NamedMarker marker : markers) {
+            byte[] name = marker.name.getBytes(StandardCharsets.UTF_8);
+
+            data.writeDouble(marker.time);
+            data.writeInt(name.length);
+            data.write(name);
+        }
+
+        data.flush();
+    }
+
+    private static void writeDoubles(DataOutputStream data, double[] values) throws IOException {
+        for (double value : values) {
+            data.writeDouble(value);
+        }
+    }
+
+    /**
+     * Reads an asset starting at the buffer's position. The samples are bulk-copied out of the
+     * buffer, so a mapped buffer can be released once this returns.
+     */
+    public static TrajectoryAsset read(ByteBuffer buffer) {
+        if (buffer.remaining() < 32 || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a compiled trajectory");
+        }
+
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported compiled trajectory version " + version
+                    + ", recompile the trajectory assets");
+        }
+
+        double dt = buffer.getDouble();
+        double duration = buffer.getDouble();
+        int sampleCount = buffer.getInt();
+        int markerCount = buffer.getInt();
+
+        double[] poses = readDoubles(buffer, 3 * sampleCount);
+        double[] velocities = readDoubles(buffer, 3 * sampleCount);
+        double[] accelerations = readDoubles(buffer, 3 * sampleCount);
+
+        List<NamedMarker> markers = new ArrayList<>(markerCount);
+        for (int i = 0; i < markerCount; i++) {
+            double time = buffer.getDouble();
+            byte[] name = new byte[buffer.getInt()];
+            buffer.get(name);
+
+            markers.add(new NamedMarker(time, new String(name, StandardCharsets.UTF_8)));
+        }
+
+        return new TrajectoryAsset(
+                new TrajectoryLookupTable(dt, duration, poses, velocities, accelerations),
+                markers
+        );
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer, int count) {
+        double[] values = new double[count];
+
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + 8 * count);
+
+        return values;
+    }
+
+    /**
+     * Rebuilds a trajectory from the samples for the parts of the follower that need one (drawing,
+     * markers, seeking and the duration). The path is the polyline through the sampled poses and
+     * the profile follows the sampled speed, so it matches the original to within one sample;
+     * following itself uses the lookup table.
+     * <p>
+     * Every marker name must have a callback in {@code callbacks}.
+     */
+    public Trajectory toTrajectory(Map<String, MarkerCallback> callbacks) {
+        double[] poses = lookupTable.getPoseSamples();
+        double[] velocities = lookupTable.getVelocitySamples();
+        double[] accelerations = lookupTable.getAccelerationSamples();
+
+        int sampleCount = lookupTable.getSampleCount();
+        double dt = lookupTable.getDt();
+
+        List<PathSegment> pathSegments = new ArrayList<>();
+        List<MotionSegment> motionSegments = new ArrayList<>();
+
+        double displacement = 0.0;
+        double segmentStart = 0.0;
+
+        for (int i = 0; i < sampleCount - 1; i++) {
+            int a = 3 * i;
+            int b = a + 3;
+
+            Vector2d start = new Vector2d(poses[a], poses[a + 1]);
+            Vector2d end = new Vector2d(poses[b], poses[b + 1]);
+            double length = end.minus(start).norm();
+
+            double segmentEnd = Math.min((i + 1) * dt, duration());
+
+            // samples repeat where the robot is at rest, which a line segment cannot represent
+            if (length < 1e-9) continue;
+
+            pathSegments.add(new PathSegment(
+                    new LineSegment(start, end),
+                    new LinearInterpolator(poses[a + 2], Angle.normDelta(poses[b + 2] - poses[a + 2]))
+            ));
+
+            double speed = Math.hypot(velocities[a], velocities[a + 1]);
+            double accel = speed > 1e-9
+                    ? (velocities[a] * accelerations[a] + velocities[a + 1] * accelerations[a + 1]) / speed
+                    : Math.hypot(accelerations[a], accelerations[a + 1]);
+
+            motionSegments.add(new MotionSegment(
+                    new MotionState(displacement, speed, accel, 0.0),
+                    segmentEnd - segmentStart
+            ));
+
+            displacement += length;
+            segmentStart = segmentEnd;
+        }
+
+        if (pathSegments.isEmpty()) {
+            throw new IllegalStateException("Compiled trajectory does not move");
+        }
+
+        // hold at the end for any trailing samples at rest
+        if (segmentStart < duration()) {
+            motionSegments.add(new MotionSegment(
+                    new MotionState(displacement, 0.0, 0.0, 0.0),
+                    duration() - segmentStart
+            ));
+        }
+
+        List<TrajectoryMarker> trajectoryMarkers = new ArrayList<>(markers.size());
+        for (NamedMarker marker : markers) {
+            MarkerCallback callback = callbacks.get(marker.name);
+
+            if (callback == null) {
+                throw new IllegalArgumentException("No callback for marker \"" + marker.name + "\"");
+            }
+
+            trajectoryMarkers.add(new TrajectoryMarker(marker.time, callback));
+        }
+
+        return new Trajectory(new Path(pathSegments), new MotionProfile(motionSegments), trajectoryMarkers);
+    }
+
+    public static final class NamedMarker {
+        private final double time;
+        private final String name;
+
+        public NamedMarker(double time, String name) {
+            this.time = time;
+            this.name = name;
+        }
+
+        public double getTime() {
+            return time;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
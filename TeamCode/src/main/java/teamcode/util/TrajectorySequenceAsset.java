@@ -0,0 +1,168 @@
+package teamcode.util;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.profile.MotionProfile;
+import com.acmerobotics.roadrunner.profile.MotionSegment;
+import com.acmerobotics.roadrunner.profile.MotionState;
+
+import teamcode.trajectorysequence.TrajectorySequence;
+import teamcode.trajectorysequence.sequencesegment.SequenceSegment;
+import teamcode.trajectorysequence.sequencesegment.TrajectoryLookupTable;
+import teamcode.trajectorysequence.sequencesegment.TrajectorySegment;
+import teamcode.trajectorysequence.sequencesegment.TurnSegment;
+import teamcode.trajectorysequence.sequencesegment.WaitSegment;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary form of a whole trajectory sequence, compiled at build time from the routes in
+ * {@link teamcode.NanoTrojansAuto.AutoRoutes}. Trajectory segments are stored as
+ * {@link TrajectoryAsset}s, turns as their heading profile and waits as their duration, so
+ * loading a sequence generates nothing.
+ * <p>
+ * Layout, big-endian: magic, version, segment count, then per segment its type followed by
+ * <ul>
+ *     <li>wait: start pose, duration</li>
+ *     <li>turn: start pose, total rotation, profile segment count and each profile segment as
+ *     x, v, a, j, dt</li>
+ *     <li>trajectory: a complete {@link TrajectoryAsset}</li>
+ * </ul>
+ * Marker callbacks are code and cannot be compiled, so sequences with markers are rejected.
+ * <p>
+ * Like {@link TrajectoryAsset}, this class must not depend on Android.
+ */
+public final class TrajectorySequenceAsset {
+    public static final String EXTENSION = ".rrseq";
+
+    private static final int MAGIC = 0x52525453; // "RRTS"
+    private static final int VERSION = 1;
+
+    private static final int WAIT = 0;
+    private static final int TURN = 1;
+    private static final int TRAJECTORY = 2;
+
+    private TrajectorySequenceAsset() {
+    }
+
+    /**
+     * Writes the sequence, sampling any trajectory segment that is not baked yet every
+     * {@code dt} seconds.
+     */
+    public static void write(TrajectorySequence sequence, double dt, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(sequence.size());
+
+        for (int i = 0; i < sequence.size(); i++) {
+            SequenceSegment segment = sequence.get(i);
+
+            if (!segment.getMarkers().isEmpty() || segment instanceof TrajectorySegment
+                    && !((TrajectorySegment) segment).getTrajectory().getMarkers().isEmpty()) {
+                throw new IllegalArgumentException("Segment " + i + " has markers, which cannot be compiled");
+            }
+
+            if (segment instanceof TrajectorySegment) {
+                TrajectorySegment trajectorySegment = (TrajectorySegment) segment;
+                TrajectoryLookupTable lookupTable = trajectorySegment.isBaked()
+                        ? trajectorySegment.getLookupTable()
+                        : new TrajectoryLookupTable(trajectorySegment.getTrajectory(), dt);
+
+                data.writeInt(TRAJECTORY);
+                new TrajectoryAsset(lookupTable, Collections.emptyList()).write(data);
+            } else if (segment instanceof TurnSegment) {
+                TurnSegment turnSegment = (TurnSegment) segment;
+                List<MotionSegment> profileSegments = turnSegment.getMotionProfile().getSegments();
+
+                data.writeInt(TURN);
+                writePose(data, segment.getStartPose());
+                data.writeDouble(turnSegment.getTotalRotation());
+                data.writeInt(profileSegments.size());
+
+                for (MotionSegment profileSegment : profileSegments) {
+                    MotionState start = profileSegment.getStart();
+
+                    data.writeDouble(start.getX());
+                    data.writeDouble(start.getV());
+                    data.writeDouble(start.getA());
+                    data.writeDouble(start.getJ());
+                    data.writeDouble(profileSegment.getDt());
+                }
+            } else {
+                data.writeInt(WAIT);
+                writePose(data, segment.getStartPose());
+                data.writeDouble(segment.getDuration());
+            }
+        }
+
+        data.flush();
+    }
+
+    private static void writePose(DataOutputStream data, Pose2d pose) throws IOException {
+        data.writeDouble(pose.getX());
+        data.writeDouble(pose.getY());
+        data.writeDouble(pose.getHeading());
+    }
+
+    public static TrajectorySequence read(ByteBuffer buffer) {
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a compiled trajectory sequence");
+        }
+
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported compiled trajectory sequence version " + version
+                    + ", recompile the routes");
+        }
+
+        int segmentCount = buffer.getInt();
+        List<SequenceSegment> segments = new ArrayList<>(segmentCount);
+
+        for (int i = 0; i < segmentCount; i++) {
+            int type = buffer.getInt();
+
+            switch (type) {
+                case TRAJECTORY: {
+                    TrajectoryAsset asset = TrajectoryAsset.read(buffer);
+                    segments.add(new TrajectorySegment(
+                            asset.toTrajectory(Collections.emptyMap()), asset.getLookupTable()));
+                    break;
+                }
+                case TURN: {
+                    Pose2d startPose = readPose(buffer);
+                    double totalRotation = buffer.getDouble();
+
+                    int profileSegmentCount = buffer.getInt();
+                    List<MotionSegment> profileSegments = new ArrayList<>(profileSegmentCount);
+                    for (int j = 0; j < profileSegmentCount; j++) {
+                        MotionState start = new MotionState(
+                                buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+                        profileSegments.add(new MotionSegment(start, buffer.getDouble()));
+                    }
+
+                    segments.add(new TurnSegment(
+                            startPose, totalRotation, new MotionProfile(profileSegments), Collections.emptyList()));
+                    break;
+                }
+                case WAIT:
+                    segments.add(new WaitSegment(readPose(buffer), buffer.getDouble(), Collections.emptyList()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown segment type " + type);
+            }
+        }
+
+        return new TrajectorySequence(segments);
+    }
+
+    private static Pose2d readPose(ByteBuffer buffer) {
+        return new Pose2d(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+    }
+}
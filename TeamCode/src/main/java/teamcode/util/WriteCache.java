@@ -0,0 +1,84 @@
+package teamcode.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the last value written to a hardware output and decides whether a new write would
+ * change anything. Every power or position write is its own hub transaction, so loops that
+ * rewrite the same value every iteration waste most of the bus.
+ * <p>
+ * A write is dropped when it is within epsilon of the last value actually written. The value is
+ * still rewritten once the refresh period has passed, so a lost command cannot stick. A write of
+ * exactly zero always goes through if the last value was not zero, so a mechanism told to stop
+ * really stops.
+ */
+public class WriteCache {
+    public static final double DEFAULT_EPSILON = 0.001;
+    // seconds
+    public static final double DEFAULT_REFRESH_PERIOD = 0.5;
+
+    private final double epsilon;
+    private final long refreshNanos;
+
+    private boolean hasValue;
+    private double lastValue;
+    private long lastWriteNanos;
+
+    private long issuedWrites;
+    private long suppressedWrites;
+
+    public WriteCache() {
+        this(DEFAULT_EPSILON, DEFAULT_REFRESH_PERIOD);
+    }
+
+    /**
+     * @param refreshPeriod seconds after which a value is written again even if unchanged; 0
+     *                      disables the refresh
+     */
+    public WriteCache(double epsilon, double refreshPeriod) {
+        if (epsilon < 0) throw new IllegalArgumentException("epsilon must not be negative");
+
+        this.epsilon = epsilon;
+        this.refreshNanos = (long) (refreshPeriod * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Returns whether {@code value} needs to be written, counting it as issued if so and as
+     * suppressed otherwise. The caller must write it whenever this returns true.
+     */
+    public synchronized boolean shouldWrite(double value) {
+        long now = System.nanoTime();
+
+        boolean redundant = hasValue
+                && Math.abs(value - lastValue) <= epsilon
+                && !(value == 0 && lastValue != 0)
+                && (refreshNanos <= 0 || now - lastWriteNanos < refreshNanos);
+
+        if (redundant) {
+            suppressedWrites++;
+            return false;
+        }
+
+        hasValue = true;
+        lastValue = value;
+        lastWriteNanos = now;
+        issuedWrites++;
+        return true;
+    }
+
+    /**
+     * Forgets the last value, so the next write goes through. For configuration changes that
+     * alter what the last value means on the hardware.
+     */
+    public synchronized void invalidate() {
+        hasValue = false;
+    }
+
+    public synchronized long getIssuedWrites() {
+        return issuedWrites;
+    }
+
+    public synchronized long getSuppressedWrites() {
+        return suppressedWrites;
+    }
+}
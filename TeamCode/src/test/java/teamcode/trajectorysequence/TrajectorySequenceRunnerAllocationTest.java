@@ -0,0 +1,146 @@
+package teamcode.trajectorysequence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.acmerobotics.roadrunner.control.PIDCoefficients;
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.profile.MotionProfile;
+import com.acmerobotics.roadrunner.profile.MotionProfileGenerator;
+import com.acmerobotics.roadrunner.profile.MotionState;
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+import com.acmerobotics.roadrunner.trajectory.TrajectoryBuilder;
+import com.acmerobotics.roadrunner.trajectory.constraints.ProfileAccelerationConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.TranslationalVelocityConstraint;
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import teamcode.trajectorysequence.sequencesegment.SequenceSegment;
+import teamcode.trajectorysequence.sequencesegment.TrajectorySegment;
+import teamcode.trajectorysequence.sequencesegment.TurnSegment;
+import teamcode.trajectorysequence.sequencesegment.WaitSegment;
+import teamcode.util.MutableDriveSignal;
+
+/**
+ * Checks that following a segment allocates nothing once it is under way, so the control loop
+ * does not feed the garbage collector. Counts the bytes the test thread allocates across many
+ * updates inside one segment with HotSpot's per-thread allocation counter.
+ */
+public class TrajectorySequenceRunnerAllocationTest {
+    private static final int WARMUP_UPDATES = 500;
+    private static final int MEASURED_UPDATES = 5000;
+
+    private static final Pose2d START_POSE = new Pose2d(0, 0, 0);
+
+    // slightly off the path, so every controller does some work
+    private static final Pose2d POSE_ESTIMATE = new Pose2d(1.0, 0.5, Math.toRadians(3));
+    private static final Pose2d POSE_VELOCITY = new Pose2d(10.0, 0.2, 0.05);
+
+    private final MutableDriveSignal signal = new MutableDriveSignal();
+    private TrajectorySequenceRunner runner;
+
+    @Before
+    public void setUp() {
+        BakedHolonomicPIDVAFollower follower = new BakedHolonomicPIDVAFollower(
+                new PIDCoefficients(8, 0.1, 0.5), new PIDCoefficients(8, 0.1, 0.5), new PIDCoefficients(8, 0.1, 0.5),
+                new Pose2d(0.5, 0.5, Math.toRadians(5.0)), 0.5
+        );
+
+        runner = new TrajectorySequenceRunner(
+                follower, new PIDCoefficients(8, 0.1, 0.5), new FixedVoltageSensor(12.5),
+                new int[4], new int[4], new int[0], new int[0]
+        );
+    }
+
+    @Test
+    public void bakedTrajectoryDoesNotAllocate() {
+        Trajectory trajectory = new TrajectoryBuilder(
+                START_POSE, new TranslationalVelocityConstraint(10), new ProfileAccelerationConstraint(10)
+        ).forward(60).build();
+
+        assertNoAllocation(new TrajectorySegment(trajectory).baked(0.01));
+    }
+
+    @Test
+    public void turnDoesNotAllocate() {
+        MotionProfile profile = MotionProfileGenerator.generateSimpleMotionProfile(
+                new MotionState(0, 0, 0, 0), new MotionState(Math.PI, 0, 0, 0), 0.5, 0.5
+        );
+
+        assertNoAllocation(new TurnSegment(START_POSE, Math.PI, profile, Collections.emptyList()));
+    }
+
+    @Test
+    public void waitDoesNotAllocate() {
+        assertNoAllocation(new WaitSegment(START_POSE, 10, Collections.emptyList()));
+    }
+
+    private void assertNoAllocation(SequenceSegment segment) {
+        runner.followTrajectorySequenceAsync(new TrajectorySequence(Collections.singletonList(segment)));
+
+        for (int i = 0; i < WARMUP_UPDATES; i++) {
+            assertTrue(runner.update(POSE_ESTIMATE, POSE_VELOCITY, signal));
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < MEASURED_UPDATES; i++) {
+            runner.update(POSE_ESTIMATE, POSE_VELOCITY, signal);
+        }
+        long allocated = allocatedBytes() - before;
+
+        // the measurement is only meaningful if every update was inside the segment
+        assertTrue(runner.isBusy());
+        assertEquals("bytes allocated over " + MEASURED_UPDATES + " updates", 0, allocated);
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static class FixedVoltageSensor implements VoltageSensor {
+        private final double voltage;
+
+        FixedVoltageSensor(double voltage) {
+            this.voltage = voltage;
+        }
+
+        @Override
+        public double getVoltage() {
+            return voltage;
+        }
+
+        @Override
+        public Manufacturer getManufacturer() {
+            return Manufacturer.Other;
+        }
+
+        @Override
+        public String getDeviceName() {
+            return "fixed voltage";
+        }
+
+        @Override
+        public String getConnectionInfo() {
+            return "";
+        }
+
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public void resetDeviceConfigurationForOpMode() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
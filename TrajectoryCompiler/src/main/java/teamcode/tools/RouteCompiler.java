@@ -0,0 +1,277 @@
+package teamcode.tools;
+
+import com.acmerobotics.roadrunner.geometry.Pose2d;
+import com.acmerobotics.roadrunner.profile.MotionSegment;
+import com.acmerobotics.roadrunner.trajectory.constraints.AngularVelocityConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.MecanumVelocityConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.MinVelocityConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.ProfileAccelerationConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryAccelerationConstraint;
+import com.acmerobotics.roadrunner.trajectory.constraints.TrajectoryVelocityConstraint;
+
+import teamcode.NanoTrojansAuto.AutoRoutes;
+import teamcode.trajectorysequence.TrajectorySequence;
+import teamcode.trajectorysequence.TrajectorySequenceBuilder;
+import teamcode.trajectorysequence.sequencesegment.SequenceSegment;
+import teamcode.trajectorysequence.sequencesegment.TrajectoryLookupTable;
+import teamcode.trajectorysequence.sequencesegment.TrajectorySegment;
+import teamcode.trajectorysequence.sequencesegment.TurnSegment;
+import teamcode.util.TrajectorySequenceAsset;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles every route in {@link AutoRoutes} into {@link TrajectorySequenceAsset} files with the
+ * drive constraints from DriveConstants.java, and fails if a route breaks those constraints or a
+ * detection branch takes longer than the autonomous period. Run by the TeamCode
+ * {@code compileRoutes} task.
+ * <p>
+ * DriveConstants itself needs the FTC SDK, so its motion limits are read from the source file.
+ * They must be plain numbers or {@code Math.toRadians(<number>)}.
+ * <p>
+ * Usage: {@code RouteCompiler <DriveConstants.java> <output dir> [dt]}
+ */
+public class RouteCompiler {
+    public static final double AUTO_PERIOD = 30.0;
+    public static final double DEFAULT_DT = 0.01;
+
+    // slack for the discretization of the generated profiles
+    private static final double TOLERANCE = 0.01;
+
+    private static final Pattern CONSTANT = Pattern.compile(
+            "^\\s*public\\s+static\\s+(?:final\\s+)?double\\s+(\\w+)\\s*=\\s*([^;]+);", Pattern.MULTILINE);
+    private static final Pattern TO_RADIANS = Pattern.compile("Math\\.toRadians\\(\\s*([^)]+?)\\s*\\)");
+
+    private final double maxVel;
+    private final double maxAccel;
+    private final double maxAngVel;
+    private final double maxAngAccel;
+    private final double trackWidth;
+
+    private final List<String> violations = new ArrayList<>();
+
+    public RouteCompiler(double maxVel, double maxAccel, double maxAngVel, double maxAngAccel, double trackWidth) {
+        this.maxVel = maxVel;
+        this.maxAccel = maxAccel;
+        this.maxAngVel = maxAngVel;
+        this.maxAngAccel = maxAngAccel;
+        this.trackWidth = trackWidth;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("usage: RouteCompiler <DriveConstants.java> <output dir> [dt]");
+            System.exit(2);
+        }
+
+        Map<String, Double> constants = readConstants(new File(args[0]));
+        File outputDir = new File(args[1]);
+        double dt = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_DT;
+
+        RouteCompiler compiler = new RouteCompiler(
+                constant(constants, "MAX_VEL"),
+                constant(constants, "MAX_ACCEL"),
+                constant(constants, "MAX_ANG_VEL"),
+                constant(constants, "MAX_ANG_ACCEL"),
+                constant(constants, "TRACK_WIDTH")
+        );
+
+        List<String> violations = compiler.compileAll(outputDir, dt);
+
+        if (!violations.isEmpty()) {
+            for (String violation : violations) {
+                System.err.println("error: " + violation);
+            }
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compiles and checks every route, returning the violations found. Routes are written even if
+     * they have violations so they can be inspected.
+     */
+    public List<String> compileAll(File outputDir, double dt) throws IOException {
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Could not create " + outputDir);
+        }
+
+        // drop routes that no longer exist
+        File[] stale = outputDir.listFiles((dir, name) -> name.endsWith(TrajectorySequenceAsset.EXTENSION));
+        if (stale != null) {
+            for (File file : stale) {
+                Files.delete(file.toPath());
+            }
+        }
+
+        TrajectoryVelocityConstraint velConstraint = new MinVelocityConstraint(Arrays.asList(
+                new AngularVelocityConstraint(maxAngVel),
+                new MecanumVelocityConstraint(maxVel, trackWidth)
+        ));
+        TrajectoryAccelerationConstraint accelConstraint = new ProfileAccelerationConstraint(maxAccel);
+
+        Map<String, Double> branchDurations = new LinkedHashMap<>();
+        double totalSaved = 0.0;
+
+        for (Map.Entry<String, UnaryOperator<TrajectorySequenceBuilder>> route : AutoRoutes.getRoutes().entrySet()) {
+            String name = route.getKey();
+
+            TrajectorySequenceBuilder builder = route.getValue().apply(new TrajectorySequenceBuilder(
+                    AutoRoutes.START_POSE, velConstraint, accelConstraint, maxAngVel, maxAngAccel
+            ).bake(dt));
+            TrajectorySequence sequence = builder.build();
+            double saved = builder.getBlendTimeSaved();
+            totalSaved += saved;
+
+            check(name, sequence);
+            branchDurations.merge(AutoRoutes.branch(name), sequence.duration(), Double::sum);
+
+            File outputFile = new File(outputDir, name + TrajectorySequenceAsset.EXTENSION);
+            try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+                TrajectorySequenceAsset.write(sequence, dt, outputStream);
+            }
+
+            System.out.println(String.format(Locale.US, "%s: %.2f s (%.2f s saved by blending), %d segments, %d bytes",
+                    name, sequence.duration(), saved, sequence.size(), outputFile.length()));
+        }
+
+        System.out.println(String.format(Locale.US, "blending saved %.2f s over all routes", totalSaved));
+
+        for (Map.Entry<String, Double> branch : branchDurations.entrySet()) {
+            if (branch.getValue() > AUTO_PERIOD) {
+                violations.add(String.format(Locale.US, "%s takes %.2f s of driving, more than the %.0f s autonomous period",
+                        branch.getKey(), branch.getValue(), AUTO_PERIOD));
+            }
+        }
+
+        return violations;
+    }
+
+    private void check(String name, TrajectorySequence sequence) {
+        for (int i = 0; i < sequence.size(); i++) {
+            SequenceSegment segment = sequence.get(i);
+            String where = name + " segment " + i;
+
+            if (segment instanceof TrajectorySegment) {
+                TrajectorySegment trajectorySegment = (TrajectorySegment) segment;
+
+                checkWheelVelocities(where, trajectorySegment.getLookupTable());
+                checkProfile(where, trajectorySegment.getTrajectory().getProfile().getSegments(),
+                        Double.POSITIVE_INFINITY, maxAccel, "in/s");
+            } else if (segment instanceof TurnSegment) {
+                checkProfile(where, ((TurnSegment) segment).getMotionProfile().getSegments(),
+                        maxAngVel, maxAngAccel, "rad/s");
+            }
+        }
+    }
+
+    /**
+     * Checks every sample against the mecanum wheel speed limit and the angular velocity limit,
+     * reporting only the first sample that breaks each.
+     */
+    private void checkWheelVelocities(String where, TrajectoryLookupTable lookupTable) {
+        boolean wheelReported = false;
+        boolean angularReported = false;
+
+        for (int i = 0; i < lookupTable.getSampleCount(); i++) {
+            double t = Math.min(i * lookupTable.getDt(), lookupTable.duration());
+
+            Pose2d pose = lookupTable.get(t);
+            Pose2d velocity = lookupTable.velocity(t);
+
+            double cos = Math.cos(pose.getHeading());
+            double sin = Math.sin(pose.getHeading());
+            double forward = velocity.getX() * cos + velocity.getY() * sin;
+            double lateral = -velocity.getX() * sin + velocity.getY() * cos;
+
+            // fastest wheel of a mecanum drive whose wheelbase equals its track width
+            double wheel = Math.abs(forward) + Math.abs(lateral) + trackWidth * Math.abs(velocity.getHeading());
+
+            if (!wheelReported && exceeds(wheel, maxVel)) {
+                violations.add(String.format(Locale.US, "%s: wheel speed %.2f in/s at %.2f s exceeds %.2f in/s",
+                        where, wheel, t, maxVel));
+                wheelReported = true;
+            }
+
+            if (!angularReported && exceeds(Math.abs(velocity.getHeading()), maxAngVel)) {
+                violations.add(String.format(Locale.US, "%s: angular velocity %.2f rad/s at %.2f s exceeds %.2f rad/s",
+                        where, Math.abs(velocity.getHeading()), t, maxAngVel));
+                angularReported = true;
+            }
+        }
+    }
+
+    private void checkProfile(String where, List<MotionSegment> segments, double maxV, double maxA, String unit) {
+        double t = 0.0;
+
+        for (MotionSegment segment : segments) {
+            double v = Math.abs(segment.getStart().getV());
+            double a = Math.abs(segment.getStart().getA());
+
+            if (exceeds(v, maxV)) {
+                violations.add(String.format(Locale.US, "%s: velocity %.2f %s at %.2f s exceeds %.2f %s",
+                        where, v, unit, t, maxV, unit));
+                return;
+            }
+
+            if (exceeds(a, maxA)) {
+                violations.add(String.format(Locale.US, "%s: acceleration %.2f %s^2 at %.2f s exceeds %.2f %s^2",
+                        where, a, unit, t, maxA, unit));
+                return;
+            }
+
+            t += segment.getDt();
+        }
+    }
+
+    private static boolean exceeds(double value, double limit) {
+        return value > limit * (1 + TOLERANCE) + 1e-6;
+    }
+
+    static Map<String, Double> readConstants(File driveConstants) throws IOException {
+        String source = new String(Files.readAllBytes(driveConstants.toPath()), StandardCharsets.UTF_8);
+        Map<String, Double> constants = new HashMap<>();
+
+        Matcher matcher = CONSTANT.matcher(source);
+        while (matcher.find()) {
+            String expression = matcher.group(2).trim();
+            Matcher toRadians = TO_RADIANS.matcher(expression);
+
+            try {
+                constants.put(matcher.group(1), toRadians.matches()
+                        ? Math.toRadians(Double.parseDouble(toRadians.group(1)))
+                        : Double.parseDouble(expression));
+            } catch (NumberFormatException e) {
+                // computed constants are not needed here
+            }
+        }
+
+        return constants;
+    }
+
+    private static double constant(Map<String, Double> constants, String name) {
+        Double value = constants.get(name);
+
+        if (value == null) {
+            throw new IllegalArgumentException("DriveConstants." + name
+                    + " must be a number or Math.toRadians(<number>) for the route compiler");
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,102 @@
+package teamcode.tools;
+
+import com.acmerobotics.roadrunner.trajectory.Trajectory;
+import com.acmerobotics.roadrunner.trajectory.TrajectoryBuilder;
+import com.acmerobotics.roadrunner.trajectory.config.TrajectoryConfig;
+import com.acmerobotics.roadrunner.trajectory.config.TrajectoryConfigManager;
+import com.acmerobotics.roadrunner.trajectory.config.TrajectoryGroupConfig;
+
+import teamcode.trajectorysequence.sequencesegment.TrajectoryLookupTable;
+import teamcode.util.TrajectoryAsset;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compiles trajectories into {@link TrajectoryAsset} files for the robot to memory-map instead of
+ * generating them during init. Every YAML trajectory next to the group config in the input
+ * directory (the plugin save location) is built with Road Runner and sampled every {@code dt}
+ * seconds.
+ * <p>
+ * Usage: {@code TrajectoryCompiler <yaml dir> <output dir> [dt]}
+ */
+public class TrajectoryCompiler {
+    public static final double DEFAULT_DT = 0.01;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("usage: TrajectoryCompiler <yaml dir> <output dir> [dt]");
+            System.exit(2);
+        }
+
+        File inputDir = new File(args[0]);
+        File outputDir = new File(args[1]);
+        double dt = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_DT;
+
+        File groupFile = new File(inputDir, TrajectoryConfigManager.GROUP_FILENAME);
+        if (!groupFile.isFile()) {
+            System.out.println("No " + TrajectoryConfigManager.GROUP_FILENAME + " in " + inputDir + ", nothing to compile");
+            return;
+        }
+
+        TrajectoryGroupConfig groupConfig;
+        try (InputStream inputStream = new FileInputStream(groupFile)) {
+            groupConfig = TrajectoryConfigManager.loadGroupConfig(inputStream);
+        }
+
+        File[] files = inputDir.listFiles((dir, name) ->
+                name.endsWith(".yaml") && !name.equals(TrajectoryConfigManager.GROUP_FILENAME));
+        if (files == null) files = new File[0];
+        Arrays.sort(files);
+
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Could not create " + outputDir);
+        }
+
+        for (File file : files) {
+            String name = file.getName().substring(0, file.getName().length() - ".yaml".length());
+
+            TrajectoryConfig config;
+            try (InputStream inputStream = new FileInputStream(file)) {
+                config = TrajectoryConfigManager.loadConfig(inputStream);
+            }
+
+            TrajectoryBuilder builder = config == null ? null : config.toTrajectoryBuilder(groupConfig);
+            if (builder == null) {
+                throw new IOException("Could not load trajectory " + file);
+            }
+
+            compile(name, builder.build(), Collections.emptyList(), dt, outputDir);
+        }
+    }
+
+    /**
+     * Samples one trajectory and writes it to {@code <output dir>/<name>.rrtraj}. Marker times are
+     * relative to the start of the trajectory.
+     */
+    public static File compile(
+            String name, Trajectory trajectory, List<TrajectoryAsset.NamedMarker> markers,
+            double dt, File outputDir
+    ) throws IOException {
+        TrajectoryAsset asset = new TrajectoryAsset(new TrajectoryLookupTable(trajectory, dt), markers);
+        File outputFile = new File(outputDir, name + TrajectoryAsset.EXTENSION);
+
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            asset.write(outputStream);
+        }
+
+        System.out.println(String.format(Locale.US, "%s: %.2f s, %d samples, %d markers, %d bytes",
+                name, asset.duration(), asset.getLookupTable().getSampleCount(), markers.size(), outputFile.length()));
+
+        return outputFile;
+    }
+}